@@ -0,0 +1,157 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**************************************************************************
+ * Benchmarks the hot paths of the {@code MetroEngine} on the saved
+ * games made by {@code MetroStates}. Moves are undone after they are
+ * timed, so every invocation starts from the same game.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetroEngineBenchmark {
+
+	/** The number of rows and columns in the game board. */
+	@Param({ "6", "8", "12" })
+	public int size;
+
+	/** The stage of the game. */
+	@Param({ "early", "middle", "late" })
+	public String stage;
+
+	/** The game being benchmarked. */
+	private MetroEngine game;
+
+	/**
+	 * The legal packed cell that tiles are placed on, where the current
+	 * tile completes as many stations as it can.
+	 */
+	private int cell;
+
+	/**************************************************************************
+	 * Loads the saved game and picks the cell to place tiles on. Each
+	 * legal cell is tried, and the first one that completes the most
+	 * stations is kept, so that the scoring benchmarks have routes to
+	 * score.
+	 * 
+	 * @throws Exception
+	 *             If the game cannot be loaded, or no legal move
+	 *             completes a station.
+	 **************************************************************************/
+	@Setup
+	public void load() throws Exception {
+		int completed = 0;
+		int count;
+		game = new MetroEngine();
+		game.loadGame(MetroStates.getFile(size, stage).getPath());
+		for (int next = game.nextLegalMove(0); next >= 0; next = game
+				.nextLegalMove(next + 1)) {
+			game.setTile(next);
+			count = game.getLastCompletedStations().length;
+			game.undoTile();
+			if (count > completed) {
+				completed = count;
+				cell = next;
+			}
+		}
+		if (completed == 0)
+			throw new IllegalStateException("No legal move completes a "
+					+ "station in " + size + "x" + size + " " + stage);
+	}
+
+	/**************************************************************************
+	 * Places a tile and takes it back.
+	 * 
+	 * @return whether the tile was taken back.
+	 * @throws Exception
+	 *             If the tile cannot be placed.
+	 **************************************************************************/
+	@Benchmark
+	public boolean setTile() throws Exception {
+		game.setTile(cell);
+		return game.undoTile();
+	}
+
+	/**************************************************************************
+	 * Places a tile, updates the simple scores and takes it back.
+	 * 
+	 * @return whether the tile was taken back.
+	 * @throws Exception
+	 *             If the tile cannot be placed.
+	 **************************************************************************/
+	@Benchmark
+	public boolean getScoresSimple() throws Exception {
+		return scoreMove(ScoreKeeper.SIMPLE);
+	}
+
+	/**************************************************************************
+	 * Places a tile, updates the crossover scores and takes it back.
+	 * 
+	 * @return whether the tile was taken back.
+	 * @throws Exception
+	 *             If the tile cannot be placed.
+	 **************************************************************************/
+	@Benchmark
+	public boolean getScoresCrossover() throws Exception {
+		return scoreMove(ScoreKeeper.CROSS);
+	}
+
+	/**************************************************************************
+	 * Places a tile, updates the time placement scores and takes it
+	 * back.
+	 * 
+	 * @return whether the tile was taken back.
+	 * @throws Exception
+	 *             If the tile cannot be placed.
+	 **************************************************************************/
+	@Benchmark
+	public boolean getScoresTime() throws Exception {
+		return scoreMove(ScoreKeeper.TIME);
+	}
+
+	/**************************************************************************
+	 * Checks whether the exception overrides apply to the current tile.
+	 * 
+	 * @return the game, so the check is not optimized away.
+	 **************************************************************************/
+	@Benchmark
+	public MetroEngine exceptionOverride() {
+		game.exceptionOverride();
+		return game;
+	}
+
+	/**************************************************************************
+	 * Checks whether the game board is full.
+	 * 
+	 * @return {@code true} if the game is complete.
+	 **************************************************************************/
+	@Benchmark
+	public boolean isComplete() {
+		return game.isComplete();
+	}
+
+	/**************************************************************************
+	 * Places a tile, scores the stations it completes with the given
+	 * scoring method and takes it back. Compare with {@code setTile} to
+	 * find the cost of the scoring.
+	 * 
+	 * @param type
+	 *            The integer of the scoring method.
+	 * @return whether the tile was taken back.
+	 * @throws Exception
+	 *             If the tile cannot be placed.
+	 **************************************************************************/
+	private boolean scoreMove(int type) throws Exception {
+		game.setTile(cell);
+		game.updateScores(type);
+		return game.undoTile();
+	}
+}
@@ -0,0 +1,97 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**************************************************************************
+ * Benchmarks the {@code MetroSearch} on the saved 8x8 games made by
+ * {@code MetroStates}. Each invocation searches every legal move three
+ * turns ahead, and the positions searched are counted so that JMH
+ * reports them as nodes per millisecond next to the searches.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetroSearchBenchmark {
+
+	/** The number of turns each move is searched, including its own. */
+	private static final int TURNS = 3;
+
+	/** The stage of the game. */
+	@Param({ "early", "middle", "late" })
+	public String stage;
+
+	/** The search being benchmarked, which works on its own copy. */
+	private MetroSearch search;
+
+	/** The legal packed cells of the current tile. */
+	private int[] cells;
+
+	/**************************************************************************
+	 * The positions searched, which JMH reports per millisecond.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Nodes {
+
+		/** The number of positions searched. */
+		public long nodes;
+
+		/**************************************************************************
+		 * Starts each iteration from no positions.
+		 **************************************************************************/
+		@Setup(Level.Iteration)
+		public void clear() {
+			nodes = 0;
+		}
+	}
+
+	/**************************************************************************
+	 * Loads the saved game and finds the legal moves.
+	 * 
+	 * @throws Exception
+	 *             If the game cannot be loaded.
+	 **************************************************************************/
+	@Setup
+	public void load() throws Exception {
+		MetroEngine game = new MetroEngine();
+		int count = 0;
+		game.loadGame(MetroStates.getFile(8, stage).getPath());
+		search = new MetroSearch(game);
+		cells = new int[game.getRows() * game.getCols()];
+		for (int cell = game.nextLegalMove(0); cell >= 0; cell = game
+				.nextLegalMove(cell + 1))
+			cells[count++] = cell;
+		if (count == 0)
+			throw new IllegalStateException("No legal move in 8x8 "
+					+ stage);
+		cells = Arrays.copyOf(cells, count);
+	}
+
+	/**************************************************************************
+	 * Searches every legal move three turns ahead.
+	 * 
+	 * @param counter
+	 *            The count of the positions searched.
+	 * @return the sum of the values of the moves.
+	 **************************************************************************/
+	@Benchmark
+	public double search(Nodes counter) {
+		double total = 0;
+		for (int i = 0; i < cells.length; i++) {
+			total += search.getMoveValue(cells[i], TURNS, Long.MAX_VALUE);
+			counter.nodes += search.getNodes();
+		}
+		return total;
+	}
+}
@@ -0,0 +1,85 @@
+package game;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Random;
+
+/**************************************************************************
+ * Creates the saved games the benchmarks are run on. Each board size
+ * has an early, middle and late game, with a quarter, a half and
+ * seven eighths of the board filled by random legal moves.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroStates {
+
+	/** The sizes of the benchmark game boards. */
+	protected static final int[] SIZES = { 6, 8, 12 };
+
+	/** The names of the stages of the benchmark games. */
+	protected static final String[] STAGES = { "early", "middle", "late" };
+
+	/** The eighths of the board filled in each stage. */
+	private static final int[] FILLED = { 2, 4, 7 };
+
+	/** The seed the benchmark games are played with. */
+	private static final long SEED = 2010;
+
+	/**************************************************************************
+	 * Gets the file of a benchmark game. The directory of the saved games
+	 * is set by the {@code metro.games} system property and is {@code
+	 * Games} by default.
+	 * 
+	 * @param size
+	 *            The number of rows and columns in the game board.
+	 * @param stage
+	 *            The name of the stage of the game.
+	 * @return the file of the benchmark game.
+	 **************************************************************************/
+	protected static File getFile(int size, String stage) {
+		return new File(System.getProperty("metro.games", "Games"),
+				"bench" + size + "x" + size + stage + ".game");
+	}
+
+	/**************************************************************************
+	 * Plays and saves one benchmark game.
+	 * 
+	 * @param size
+	 *            The number of rows and columns in the game board.
+	 * @param stage
+	 *            The index of the stage of the game.
+	 * @throws Exception
+	 *             If the game cannot be played or saved.
+	 **************************************************************************/
+	private static void createGame(int size, int stage) throws Exception {
+		Random random = new Random(SEED + size);
+		MetroEngine game = new MetroEngine();
+		BitSet legal;
+		int cell;
+		int tiles = size * size * FILLED[stage] / 8;
+		game.newGame(2, size, size, ScoreKeeper.SIMPLE, SEED + size);
+		for (int placed = 0; placed < tiles; placed++) {
+			legal = game.getLegalMoves();
+			cell = legal.nextSetBit(0);
+			for (int k = random.nextInt(legal.cardinality()); k > 0; k--)
+				cell = legal.nextSetBit(cell + 1);
+			game.setTile(cell);
+		}
+		game.saveGame(getFile(size, STAGES[stage]).getPath());
+	}
+
+	/**************************************************************************
+	 * Creates every benchmark game.
+	 * 
+	 * @param args
+	 *            The command line arguments, which are not used.
+	 * @throws Exception
+	 *             If a game cannot be played or saved.
+	 **************************************************************************/
+	public static void main(String[] args) throws Exception {
+		for (int s = 0; s < SIZES.length; s++)
+			for (int stage = 0; stage < STAGES.length; stage++)
+				createGame(SIZES[s], stage);
+	}
+}
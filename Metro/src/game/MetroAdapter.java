@@ -0,0 +1,66 @@
+package game;
+
+/**************************************************************************
+ * An abstract adapter class for receiving Metro game events. The
+ * methods in this class are empty, so a listener only has to override
+ * the events it needs.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public abstract class MetroAdapter implements MetroListener {
+
+	/**************************************************************************
+	 * Invoked when a tile has been placed on the game board.
+	 * 
+	 * @param e
+	 *            The event of the placed tile.
+	 **************************************************************************/
+	public void tilePlaced(MetroEvent e) {
+	}
+
+	/**************************************************************************
+	 * Invoked when a tile placement has been undone.
+	 * 
+	 * @param e
+	 *            The event of the removed tile.
+	 **************************************************************************/
+	public void tileRemoved(MetroEvent e) {
+	}
+
+	/**************************************************************************
+	 * Invoked when the route of a station has been completed.
+	 * 
+	 * @param e
+	 *            The event of the completed station.
+	 **************************************************************************/
+	public void stationCompleted(MetroEvent e) {
+	}
+
+	/**************************************************************************
+	 * Invoked when the score of a player has changed.
+	 * 
+	 * @param e
+	 *            The event of the changed score.
+	 **************************************************************************/
+	public void scoreChanged(MetroEvent e) {
+	}
+
+	/**************************************************************************
+	 * Invoked when the turn has passed to another player.
+	 * 
+	 * @param e
+	 *            The event of the new turn.
+	 **************************************************************************/
+	public void turnAdvanced(MetroEvent e) {
+	}
+
+	/**************************************************************************
+	 * Invoked when the last tile has been placed.
+	 * 
+	 * @param e
+	 *            The event of the finished game.
+	 **************************************************************************/
+	public void gameOver(MetroEvent e) {
+	}
+}
@@ -0,0 +1,156 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import utility.*;
+
+/**************************************************************************
+ * Ranks every legal position for the current tile. The positions are
+ * searched at the same depth in parallel on a fork-join pool, each by
+ * its own {@code MetroSearch} working on its own copy of the game, and
+ * the search deepens one turn at a time until the time budget runs
+ * out. The ranking comes from the deepest search that finished for
+ * every position.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroAdvisor {
+
+	/** The pool shared by every advisor. */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	/** The game being advised. */
+	private MetroEngine game;
+
+	/** The packed cells of the legal positions. */
+	private int[] cells;
+
+	/** The search of each legal position. */
+	private MetroSearch[] searches;
+
+	/** The values of the positions found by the current depth. */
+	private double[] values;
+
+	/** The time the search must stop by, in nanoseconds. */
+	private long deadline;
+
+	/** Whether the time budget ran out during the current depth. */
+	private volatile boolean outOfTime;
+
+	/**************************************************************************
+	 * Constructor for the {@code MetroAdvisor} class. The game must not
+	 * change while the advisor is ranking its positions.
+	 * 
+	 * @param game
+	 *            The game to rank positions in.
+	 **************************************************************************/
+	protected MetroAdvisor(MetroEngine game) {
+		this.game = game;
+	}
+
+	/**************************************************************************
+	 * Ranks every legal position for the current tile within the time
+	 * budget. Every position is searched at least one turn ahead, even
+	 * if that takes longer than the budget.
+	 * 
+	 * @param millis
+	 *            The time budget in milliseconds.
+	 * @return the list of suggestions, best first, which is empty if
+	 *         there is no legal position.
+	 **************************************************************************/
+	protected List<MoveSuggestion> suggestMoves(long millis) {
+		BitSet legal = game.getLegalMoves();
+		List<MoveSuggestion> suggestions = new ArrayList<MoveSuggestion>();
+		double[] best = null;
+		int depth = 0;
+		int turns;
+		long end = System.nanoTime() + millis * 1000000;
+		cells = new int[legal.cardinality()];
+		searches = new MetroSearch[cells.length];
+		if (cells.length == 0)
+			return suggestions;
+		cells[0] = legal.nextSetBit(0);
+		for (int i = 1; i < cells.length; i++)
+			cells[i] = legal.nextSetBit(cells[i - 1] + 1);
+		for (turns = 1; turns <= game.getRows() * game.getCols(); turns++) {
+
+			// The first depth is always finished so every position has a
+			// value.
+			deadline = turns == 1 ? Long.MAX_VALUE : end;
+			outOfTime = false;
+			values = new double[cells.length];
+			POOL.invoke(new Evaluation(turns, 0, cells.length));
+			if (outOfTime)
+				break;
+			best = values;
+			depth = turns;
+			if (System.nanoTime() > end)
+				break;
+		}
+		for (int i = 0; i < cells.length; i++)
+			suggestions.add(new MoveSuggestion(new Position(cells[i]
+					/ game.getCols(), cells[i] % game.getCols()), best[i],
+					depth));
+		Collections.sort(suggestions);
+		return suggestions;
+	}
+
+	/**************************************************************************
+	 * A task that searches a range of positions at one depth, splitting
+	 * the range in half until a single position is left.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private class Evaluation extends RecursiveAction {
+
+		/** The serial version ID. */
+		private static final long serialVersionUID = -2769185740338151429L;
+
+		/** The number of turns to search. */
+		private int turns;
+
+		/** The first position and one past the last position of the range. */
+		private int start, end;
+
+		/**************************************************************************
+		 * Constructor for the {@code Evaluation} class.
+		 * 
+		 * @param turns
+		 *            The number of turns to search.
+		 * @param start
+		 *            The first position of the range.
+		 * @param end
+		 *            One past the last position of the range.
+		 **************************************************************************/
+		private Evaluation(int turns, int start, int end) {
+			this.turns = turns;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**************************************************************************
+		 * Searches the range of positions. The first search of a position
+		 * copies the game, so the copies are also made in parallel.
+		 **************************************************************************/
+		protected void compute() {
+			if (end - start > 1) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new Evaluation(turns, start, middle),
+						new Evaluation(turns, middle, end));
+			} else if (!outOfTime) {
+				if (searches[start] == null)
+					searches[start] = new MetroSearch(game);
+				values[start] = searches[start].getMoveValue(cells[start],
+						turns, deadline);
+				if (Double.isNaN(values[start]))
+					outOfTime = true;
+			}
+		}
+	}
+}
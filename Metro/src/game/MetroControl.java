@@ -2,6 +2,9 @@ package game;
 
 import java.io.*;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import utility.*;
 
 /**************************************************************************
@@ -12,15 +15,87 @@ import utility.*;
  **************************************************************************/
 public class MetroControl {
 
+	/** The kind of event for a placed tile. */
+	private static final int TILE_PLACED = 0;
+
+	/** The kind of event for a removed tile. */
+	private static final int TILE_REMOVED = 1;
+
+	/** The kind of event for a completed station. */
+	private static final int STATION_COMPLETED = 2;
+
+	/** The kind of event for a changed score. */
+	private static final int SCORE_CHANGED = 3;
+
+	/** The kind of event for a new turn. */
+	private static final int TURN_ADVANCED = 4;
+
+	/** The kind of event for a finished game. */
+	private static final int GAME_OVER = 5;
+
 	/** The current game object. */
 	private MetroEngine game;
 
+	/** The listeners told of the changes each move makes. */
+	private ArrayList<MetroListener> listeners;
+
+	/** The scores the listeners were last told of. */
+	private int[] scores;
+
+	/** The snapshot of the game after the last move. */
+	private volatile MetroSnapshot snapshot;
+
+	/** Whether a snapshot is published after every move. */
+	private boolean eager;
+
+	/** Whether moves have been made since the snapshot was built. */
+	private boolean stale;
+
 	/**************************************************************************
 	 * Constructs the control class and instantiates the {@code
 	 * MetroEngine} game object.
 	 **************************************************************************/
 	public MetroControl() {
 		game = new MetroEngine();
+		listeners = new ArrayList<MetroListener>();
+		eager = true;
+	}
+
+	/**************************************************************************
+	 * Constructs a control class for an independent copy of the game
+	 * controlled by {@code other}. Moves made on the copy do not
+	 * change the original game. Copies are mostly used to try moves, so
+	 * the copy starts from the snapshot of {@code other} and only builds
+	 * a new one when it is asked for.
+	 * 
+	 * @param other
+	 *            The control class of the game to copy.
+	 **************************************************************************/
+	public MetroControl(MetroControl other) {
+		game = new MetroEngine(other.game);
+		listeners = new ArrayList<MetroListener>();
+		snapshot = other.getSnapshot();
+	}
+
+	/**************************************************************************
+	 * Adds a listener to be told of the changes each move makes.
+	 * 
+	 * @param listener
+	 *            The listener to add.
+	 **************************************************************************/
+	public void addMetroListener(MetroListener listener) {
+		listeners.add(listener);
+		resetScores();
+	}
+
+	/**************************************************************************
+	 * Removes a listener so it is no longer told of moves.
+	 * 
+	 * @param listener
+	 *            The listener to remove.
+	 **************************************************************************/
+	public void removeMetroListener(MetroListener listener) {
+		listeners.remove(listener);
 	}
 
 	/**************************************************************************
@@ -65,6 +140,39 @@ public class MetroControl {
 	 **************************************************************************/
 	public void newGame(int playerNum, int rows, int cols, int scoreType) {
 		game.newGame(playerNum, rows, cols, scoreType);
+		publish();
+		resetScores();
+	}
+
+	/**************************************************************************
+	 * Starts a new game of Metro whose tiles are drawn in an order set
+	 * by the seed, so the game can be reproduced.
+	 * 
+	 * @param playerNum
+	 *            The number of players.
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of cols in the game board.
+	 * @param scoreType
+	 *            The type of scoring system.
+	 * @param seed
+	 *            The seed used to shuffle the tiles.
+	 **************************************************************************/
+	public void newGame(int playerNum, int rows, int cols, int scoreType,
+			long seed) {
+		game.newGame(playerNum, rows, cols, scoreType, seed);
+		publish();
+		resetScores();
+	}
+
+	/**************************************************************************
+	 * Gets the seed the tiles of the current game were shuffled with.
+	 * 
+	 * @return the seed of the current game.
+	 **************************************************************************/
+	public long getSeed() {
+		return game.getSeed();
 	}
 
 	/**************************************************************************
@@ -110,7 +218,200 @@ public class MetroControl {
 	 **************************************************************************/
 	public void setTile(Position position)
 			throws MiddleOfNowhereException, CutoffException {
+		int slot = game.getCurrentPlayerNum();
+		int tile = game.getCurrentActiveTile().ordinal();
+		int[] completed;
 		game.setTile(position.getX(), position.getY());
+		publish(position.getX() * game.getCols() + position.getY());
+		if (listeners.isEmpty())
+			return;
+		fireEvent(TILE_PLACED, slot, position, tile, -1, -1);
+		completed = game.getLastCompletedStations();
+		for (int i = 0; i < completed.length; i++)
+			fireEvent(STATION_COMPLETED, game
+					.getStationOwner(completed[i]), null, -1,
+					completed[i], game.getStationValue(completed[i]));
+		fireScoreChanges();
+		fireEvent(TURN_ADVANCED, game.getCurrentPlayerNum(), null, -1, -1,
+				-1);
+		if (game.isComplete())
+			fireEvent(GAME_OVER, -1, null, -1, -1, -1);
+	}
+
+	/**************************************************************************
+	 * Undoes the last tile placement.
+	 * 
+	 * @return {@code true} if a tile was removed, {@code false} if
+	 *         there is nothing to undo.
+	 **************************************************************************/
+	public boolean undoTile() {
+		int cell = game.getLastMove();
+		if (!game.undoTile())
+			return false;
+		publish(cell);
+		if (listeners.isEmpty())
+			return true;
+		fireEvent(TILE_REMOVED, game.getCurrentPlayerNum(), new Position(
+				cell / game.getCols(), cell % game.getCols()), game
+				.getCurrentActiveTile().ordinal(), -1, -1);
+		fireScoreChanges();
+		fireEvent(TURN_ADVANCED, game.getCurrentPlayerNum(), null, -1, -1,
+				-1);
+		return true;
+	}
+
+	/**************************************************************************
+	 * Publishes a snapshot of the whole game.
+	 **************************************************************************/
+	private void publish() {
+		if (eager)
+			snapshot = game.getSnapshot(snapshot == null ? 0 : snapshot
+					.getVersion() + 1);
+		else
+			stale = true;
+	}
+
+	/**************************************************************************
+	 * Publishes a snapshot of the game after a move that changed at
+	 * most one cell.
+	 * 
+	 * @param cell
+	 *            The packed cell the move changed, or {@code -1}.
+	 **************************************************************************/
+	private void publish(int cell) {
+		if (eager)
+			snapshot = game.getSnapshot(snapshot, cell);
+		else
+			stale = true;
+	}
+
+	/**************************************************************************
+	 * Gets the snapshot of the game after the last move. Snapshots never
+	 * change, and the latest one can be read from any thread without
+	 * locking while the game is played on another. A copy of a control
+	 * class builds its snapshot here instead, on the thread playing it.
+	 * 
+	 * @return the latest snapshot, or {@code null} if no game has been
+	 *         started.
+	 **************************************************************************/
+	public MetroSnapshot getSnapshot() {
+		if (stale) {
+			snapshot = game.getSnapshot(snapshot == null ? 0 : snapshot
+					.getVersion() + 1);
+			stale = false;
+		}
+		return snapshot;
+	}
+
+	/**************************************************************************
+	 * Tells the listeners of every score that has changed since they
+	 * were last told.
+	 **************************************************************************/
+	private void fireScoreChanges() {
+		int score;
+		for (int i = 0; i < scores.length; i++) {
+			score = getScore(i);
+			if (score != scores[i]) {
+				scores[i] = score;
+				fireEvent(SCORE_CHANGED, i, null, -1, -1, score);
+			}
+		}
+	}
+
+	/**************************************************************************
+	 * Remembers the current scores so that only later changes are
+	 * passed on to the listeners.
+	 **************************************************************************/
+	private void resetScores() {
+		scores = new int[game.getNumOfPlayers()];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = getScore(i);
+	}
+
+	/**************************************************************************
+	 * Tells every listener of an event. The listeners are copied first
+	 * so that a listener can remove itself or start a new game.
+	 * 
+	 * @param kind
+	 *            The kind of event.
+	 * @param playerNum
+	 *            The number of the player, or {@code -1}.
+	 * @param position
+	 *            The position of the tile, or {@code null}.
+	 * @param tile
+	 *            The type of the tile, or {@code -1}.
+	 * @param station
+	 *            The number of the station, or {@code -1}.
+	 * @param score
+	 *            The score or the points, or {@code -1}.
+	 **************************************************************************/
+	private void fireEvent(int kind, int playerNum, Position position,
+			int tile, int station, int score) {
+		MetroEvent e = new MetroEvent(this, playerNum, position, tile,
+				station, score);
+		MetroListener[] targets = listeners
+				.toArray(new MetroListener[listeners.size()]);
+		for (int i = 0; i < targets.length; i++)
+			switch (kind) {
+			case TILE_PLACED:
+				targets[i].tilePlaced(e);
+				break;
+			case TILE_REMOVED:
+				targets[i].tileRemoved(e);
+				break;
+			case STATION_COMPLETED:
+				targets[i].stationCompleted(e);
+				break;
+			case SCORE_CHANGED:
+				targets[i].scoreChanged(e);
+				break;
+			case TURN_ADVANCED:
+				targets[i].turnAdvanced(e);
+				break;
+			default:
+				targets[i].gameOver(e);
+			}
+	}
+
+	/**************************************************************************
+	 * Searches for the best position for the current active tile within
+	 * the given time budget.
+	 * 
+	 * @param millis
+	 *            The time budget in milliseconds.
+	 * @return the best position, or {@code null} if there is no legal
+	 *         position.
+	 **************************************************************************/
+	public Position getBestMove(long millis) {
+		int cell = new MetroSearch(game).getBestMove(millis);
+		if (cell == -1)
+			return null;
+		else
+			return new Position(cell / game.getCols(), cell
+					% game.getCols());
+	}
+
+	/**************************************************************************
+	 * Ranks every position where the current active tile can be placed,
+	 * searching the positions in parallel within the given time budget.
+	 * 
+	 * @param millis
+	 *            The time budget in milliseconds.
+	 * @return the list of suggested positions, best first.
+	 **************************************************************************/
+	public List<MoveSuggestion> suggestMoves(long millis) {
+		return new MetroAdvisor(game).suggestMoves(millis);
+	}
+
+	/**************************************************************************
+	 * Gets the set of cells where the current active tile can be placed
+	 * without an exception. Each cell is numbered {@code row * cols +
+	 * col}.
+	 * 
+	 * @return the set of legal cells for the current active tile.
+	 **************************************************************************/
+	public BitSet getLegalMoves() {
+		return game.getLegalMoves();
 	}
 
 	/**************************************************************************
@@ -145,6 +446,7 @@ public class MetroControl {
 	 **************************************************************************/
 	public void activateDrawPile() {
 		game.activateDrawPile();
+		publish(-1);
 	}
 
 	/**************************************************************************
@@ -162,6 +464,7 @@ public class MetroControl {
 	 **************************************************************************/
 	public void deactivateDrawPile() {
 		game.deactivateDrawPile();
+		publish(-1);
 	}
 
 	/**************************************************************************
@@ -198,16 +501,86 @@ public class MetroControl {
 	public void loadGame(String filename) throws FileNotFoundException,
 			ParseException {
 		game.loadGame(filename);
+		publish();
+		resetScores();
+	}
+
+	/**************************************************************************
+	 * Starts writing a journal of the moves of the current game, which
+	 * must not have had any tiles placed yet.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @throws IOException
+	 *             If the journal cannot be written.
+	 **************************************************************************/
+	public void startJournal(String filename) throws IOException {
+		game.startJournal(filename);
+	}
+
+	/**************************************************************************
+	 * Stops writing the journal of the current game.
+	 * 
+	 * @return {@code true} if every move was written, {@code false} if
+	 *         writing failed.
+	 **************************************************************************/
+	public boolean stopJournal() {
+		return game.stopJournal();
+	}
+
+	/**************************************************************************
+	 * Replays a journal into a new game up to the specified move.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @param moveIndex
+	 *            The number of moves to replay, or -1 to replay all of
+	 *            them.
+	 * @return the number of moves replayed.
+	 * @throws FileNotFoundException
+	 *             If the file cannot be found.
+	 * @throws ParseException
+	 *             If the journal is invalid.
+	 **************************************************************************/
+	public int replayGame(String filename, int moveIndex)
+			throws FileNotFoundException, ParseException {
+		int replayed = game.replayGame(filename, moveIndex);
+		publish();
+		resetScores();
+		return replayed;
+	}
+
+	/**************************************************************************
+	 * Replays a whole journal and continues writing moves to it.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @return the number of moves replayed.
+	 * @throws IOException
+	 *             If the journal cannot be read or written.
+	 * @throws ParseException
+	 *             If the journal is invalid.
+	 **************************************************************************/
+	public int resumeJournal(String filename) throws IOException,
+			ParseException {
+		int replayed = game.resumeJournal(filename);
+		publish();
+		resetScores();
+		return replayed;
 	}
 
 	/**************************************************************************
 	 * Gets the array of integers representing the current game board.
+	 * The array is made from the latest snapshot.
 	 * 
 	 * @return the array of integers representing the current game
 	 *         board.
 	 **************************************************************************/
 	public int[][] getGameBoard() {
-		return game.getGameboard();
+		MetroSnapshot latest = snapshot;
+		if (latest == null || stale)
+			return game.getGameboard();
+		return latest.getGameBoard();
 	}
 
 	/**************************************************************************
@@ -5,6 +5,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
 import utility.*;
 
 /**************************************************************************
@@ -24,20 +27,41 @@ public class MetroEngine implements ScoreKeeper {
 	/** The boolean for bottom or right terminals. */
 	private static final boolean DOWNORRIGHT = false;
 
+	/** The number of entrance links on each tile. */
+	private static final int LINKS = 8;
+
+	/** The packed cell of a terminal just off the game board. */
+	private static final int OFFBOARD = -1;
+
+	/** The packed cell for links that do not lead out of a tile. */
+	private static final int NOWHERE = -2;
+
 	/** The number of rows and columns in the game board. */
 	private int rows, cols;
 
 	/** Boolean to represent an active game. */
 	private boolean inProgress;
 
-	/** The ArrayList of tiles not played yet. */
-	private ArrayList<TileCell> tileStack;
+	/**
+	 * The shuffled {@code Type} ordinals of the tiles in the stack. The
+	 * tiles before {@code stackTop} have already been drawn.
+	 */
+	private int[] tileStack;
+
+	/** The index of the next tile to be drawn from the stack. */
+	private int stackTop;
+
+	/** The seed the stack of the current game was shuffled with. */
+	private long seed;
 
 	/** The current tiles held by each player. */
 	private TileCell[] currentPlayerTiles;
 
-	/** The array of tiles that represents the game board. */
-	private TileCell[][] gameBoard;
+	/**
+	 * The array of tiles that represents the game board, indexed by the
+	 * packed cell {@code row * cols + col}.
+	 */
+	private TileCell[] gameBoard;
 
 	/** The current id number of the game. */
 	private int id;
@@ -57,15 +81,66 @@ public class MetroEngine implements ScoreKeeper {
 	/** The ArrayList of the stations on the game board. */
 	private ArrayList<StationCell> stations;
 
+	/** The cells marked while scoring the route of a station. */
+	private BitSet routeCells;
+
+	/** The stations completed since the scores were last updated. */
+	private ArrayList<StationCell> completedStations;
+
+	/**
+	 * The stations waiting for a tile, indexed by the cell and entrance
+	 * {@code Link} their tail points at.
+	 */
+	private StationCell[] waitingStations;
+
 	/** Boolean to disable the exceptions. */
 	private boolean override;
 
 	/** An array of the player scores. */
 	private int[] playerScores;
 
+	/**
+	 * The points each player would get for the unfinished routes of
+	 * their stations if they were completed as they stand.
+	 */
+	private int[] openRouteScores;
+
 	/** The type of scoring system in use. */
 	private int scoreType;
 
+	/** The empty cells. */
+	private BitSet openCells;
+
+	/** The empty interior cells that are next to at least one tile. */
+	private BitSet adjacentMoves;
+
+	/**
+	 * The empty cells next to a terminal that each tile type can be
+	 * placed on without cutting off a terminal.
+	 */
+	private BitSet[] edgeMoves;
+
+	/** The number of unstarted stations each tile type would cut off. */
+	private int[] cutoffStations;
+
+	/** The number of stations that have not been started. */
+	private int openStations;
+
+	/** The number of cells with a tile on them. */
+	private int placedTiles;
+
+	/** The number of empty cells that are not next to a terminal. */
+	private int insideOpenTiles;
+
+	/** The records of the placed tiles, reused as moves are undone. */
+	private ArrayList<MoveRecord> history;
+
+	/** The number of placed tiles that can be undone. */
+	private int moves;
+
+	/** The journal the moves are written to, or null if there is none. */
+	private MetroJournal journal;
+
 	/**************************************************************************
 	 * Primary constructor for the {@code MetroEngine} class.
 	 **************************************************************************/
@@ -74,7 +149,62 @@ public class MetroEngine implements ScoreKeeper {
 	}
 
 	/**************************************************************************
-	 * Starts a new game with the given data.
+	 * Copy constructor for the {@code MetroEngine} class. The copy can
+	 * be played independently of the original game. Placed tiles are
+	 * never changed again, so they are shared between both games.
+	 * 
+	 * @param other
+	 *            The game to copy.
+	 **************************************************************************/
+	protected MetroEngine(MetroEngine other) {
+		rows = other.rows;
+		cols = other.cols;
+		inProgress = other.inProgress;
+		id = other.id;
+		numOfPlayers = other.numOfPlayers;
+		drawPileActivePlayer = other.drawPileActivePlayer;
+		drawPileActive = other.drawPileActive;
+		currentPlayerNum = other.currentPlayerNum;
+		override = other.override;
+		scoreType = other.scoreType;
+		if (!inProgress)
+			return;
+		gameBoard = other.gameBoard.clone();
+		playerScores = other.playerScores.clone();
+		tileStack = other.tileStack.clone();
+		stackTop = other.stackTop;
+		seed = other.seed;
+		currentPlayerTiles = new TileCell[other.currentPlayerTiles.length];
+		for (int i = 0; i < currentPlayerTiles.length; i++)
+			if (other.currentPlayerTiles[i] != null)
+				currentPlayerTiles[i] = new TileCell(
+						other.currentPlayerTiles[i]);
+		stations = new ArrayList<StationCell>(other.stations.size());
+		completedStations = new ArrayList<StationCell>();
+		waitingStations = new StationCell[other.waitingStations.length];
+		for (int i = 0; i < other.stations.size(); i++) {
+			stations.add(new StationCell(other.stations.get(i)));
+			if (!stations.get(i).isComplete())
+				waitForTile(stations.get(i));
+			else if (!stations.get(i).isScored())
+				completedStations.add(stations.get(i));
+		}
+		openCells = (BitSet) other.openCells.clone();
+		adjacentMoves = (BitSet) other.adjacentMoves.clone();
+		edgeMoves = new BitSet[other.edgeMoves.length];
+		for (int i = 0; i < edgeMoves.length; i++)
+			edgeMoves[i] = (BitSet) other.edgeMoves[i].clone();
+		cutoffStations = other.cutoffStations.clone();
+		routeCells = new BitSet(rows * cols);
+		openStations = other.openStations;
+		placedTiles = other.placedTiles;
+		insideOpenTiles = other.insideOpenTiles;
+		openRouteLoader();
+		history = new ArrayList<MoveRecord>();
+	}
+
+	/**************************************************************************
+	 * Starts a new game with the given data and a random seed.
 	 * 
 	 * @param playerNum
 	 *            The number of players in the game.
@@ -87,20 +217,49 @@ public class MetroEngine implements ScoreKeeper {
 	 **************************************************************************/
 	protected void newGame(int playerNum, int rows, int cols,
 			int scoreType) {
+		newGame(playerNum, rows, cols, scoreType, new Random().nextLong());
+	}
+
+	/**************************************************************************
+	 * Starts a new game with the given data. Games started with the
+	 * same data and seed draw their tiles in the same order.
+	 * 
+	 * @param playerNum
+	 *            The number of players in the game.
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @param scoreType
+	 *            The type of scoring system.
+	 * @param seed
+	 *            The seed used to shuffle the stack.
+	 **************************************************************************/
+	protected void newGame(int playerNum, int rows, int cols,
+			int scoreType, long seed) {
+		this.seed = seed;
 		this.scoreType = scoreType;
 		inProgress = true;
 		this.rows = rows;
 		this.cols = cols;
+		stopJournal();
 		numOfPlayers = playerNum;
 		id = 1;
 		currentPlayerNum = 0;
-		gameBoard = new TileCell[rows][cols];
+		gameBoard = new TileCell[rows * cols];
 		playerScores = new int[numOfPlayers];
 		currentPlayerTiles = new TileCell[playerNum + 1];
 		stackGenerator((rows * cols) / 2);
 		givePlayerTiles(playerNum);
 		stations = new ArrayList<StationCell>();
+		completedStations = new ArrayList<StationCell>();
+		waitingStations = new StationCell[rows * cols * LINKS];
+		routeCells = new BitSet(rows * cols);
 		loadTerminals();
+		legalMoveGenerator();
+		openRouteLoader();
+		history = new ArrayList<MoveRecord>();
+		moves = 0;
 	}
 
 	/**************************************************************************
@@ -129,27 +288,65 @@ public class MetroEngine implements ScoreKeeper {
 			loadTiles(4);
 		else if (sizeNum == 10)
 			loadTiles(5);
+
+		// Larger boards get enough tiles to fill every cell and still
+		// leave a tile in each hand and in the draw pile, so a player is
+		// never left holding a tile that is already on the board.
 		else
-			loadTiles(6);
+			loadTiles(Math.max(6, (rows * cols + numOfPlayers
+					+ TileCell.types.length) / TileCell.types.length));
 	}
 
 	/**************************************************************************
 	 * Loads the specified number of each of the {@code TileCells} into
-	 * the stack.
+	 * the stack and shuffles it.
 	 * 
 	 * @param numEach
 	 *            The number of each tile in the game.
 	 **************************************************************************/
 	private void loadTiles(int numEach) {
-		char tileId = (char) ASCIIJUMP;
-		tileStack = new ArrayList<TileCell>();
-		for (int i = 0; i < TileCell.types.length; i++) {
-			for (int j = 0; j < numEach; j++)
-				tileStack.add(new TileCell(String.valueOf(tileId)));
-			tileId += (char) 1;
+		tileStack = new int[TileCell.types.length * numEach];
+		stackTop = 0;
+		for (int i = 0; i < tileStack.length; i++)
+			tileStack[i] = i / numEach;
+		shuffleStack();
+	}
+
+	/**************************************************************************
+	 * Shuffles the tiles left in the stack using the seed of the game.
+	 **************************************************************************/
+	private void shuffleStack() {
+		Random random = new Random(seed);
+		int swap;
+		int temp;
+		for (int i = tileStack.length - 1; i > stackTop; i--) {
+			swap = stackTop + random.nextInt(i - stackTop + 1);
+			temp = tileStack[i];
+			tileStack[i] = tileStack[swap];
+			tileStack[swap] = temp;
 		}
 	}
 
+	/**************************************************************************
+	 * Rebuilds the stack for a game that did not save it by removing
+	 * the tiles on the game board and in the hands of the players from
+	 * a full stack.
+	 **************************************************************************/
+	private void stackRebuilder() {
+		int[] used = new int[TileCell.types.length];
+		for (int i = 0; i < gameBoard.length; i++)
+			if (gameBoard[i] != null)
+				used[gameBoard[i].getType().ordinal()]++;
+		for (int i = 0; i < currentPlayerTiles.length; i++)
+			used[currentPlayerTiles[i].getType().ordinal()]++;
+		stackGenerator((rows * cols) / 2);
+		int size = 0;
+		for (int i = 0; i < tileStack.length; i++)
+			if (used[tileStack[i]]-- <= 0)
+				tileStack[size++] = tileStack[i];
+		tileStack = Arrays.copyOf(tileStack, size);
+	}
+
 	/**************************************************************************
 	 * Loads each of the terminals into the game and sets their owners.
 	 **************************************************************************/
@@ -204,7 +401,10 @@ public class MetroEngine implements ScoreKeeper {
 	 *            The y coordinate of the station to be added.
 	 **************************************************************************/
 	private void terminalAdder(int x, int y) {
-		stations.add(new StationCell(new Position(x, y), rows, cols));
+		StationCell station = new StationCell(new Position(x, y), rows,
+				cols);
+		stations.add(station);
+		waitForTile(station);
 	}
 
 	/**************************************************************************
@@ -212,13 +412,15 @@ public class MetroEngine implements ScoreKeeper {
 	 * 
 	 * @param playerNum
 	 *            The player drawing the tile.
+	 * @return {@code true} if a tile was drawn, {@code false} if the
+	 *         stack is empty.
 	 **************************************************************************/
-	private void drawFromStack(int playerNum) {
-		if (tileStack.size() != 0) {
-			int index = (int) (Math.random() * tileStack.size());
-			currentPlayerTiles[playerNum] = tileStack.get(index);
-			tileStack.remove(index);
-		}
+	private boolean drawFromStack(int playerNum) {
+		if (stackTop == tileStack.length)
+			return false;
+		currentPlayerTiles[playerNum] = new TileCell(
+				TileCell.types[tileStack[stackTop++]]);
+		return true;
 	}
 
 	/**************************************************************************
@@ -280,6 +482,15 @@ public class MetroEngine implements ScoreKeeper {
 		return getPlayerTile(playerNum);
 	}
 
+	/**************************************************************************
+	 * Gets the seed the stack of the current game was shuffled with.
+	 * 
+	 * @return the seed of the current game.
+	 **************************************************************************/
+	protected long getSeed() {
+		return seed;
+	}
+
 	/**************************************************************************
 	 * Gets the type of the tile that the current player holds.
 	 * 
@@ -331,118 +542,472 @@ public class MetroEngine implements ScoreKeeper {
 	 **************************************************************************/
 	protected void setTile(int x, int y)
 			throws MiddleOfNowhereException, CutoffException {
+		setTile(x * cols + y);
+	}
+
+	/**************************************************************************
+	 * Sets a tile at the given packed cell.
+	 * 
+	 * @param cell
+	 *            The packed cell of the tile to be added.
+	 * @throws MiddleOfNowhereException
+	 *             if the tile is adjacent to no others.
+	 * @throws CutoffException
+	 *             if the tile cuts off another player.
+	 **************************************************************************/
+	protected void setTile(int cell) throws MiddleOfNowhereException,
+			CutoffException {
+		MoveRecord move;
 
 		// Checks for overrides, then exceptions, then places a tile.
 		exceptionOverride();
-		validityChecker(x, y);
-		gameBoard[x][y] = currentPlayerTiles[currentPlayerNum];
-		gameBoard[x][y].setID(id);
+		validityChecker(cell);
+		move = recordMove(cell);
+		legalMoveUpdate(cell);
+		gameBoard[cell] = currentPlayerTiles[currentPlayerNum];
+		gameBoard[cell].setID(id);
 		if (drawPileActive)
-			gameBoard[x][y].setOwner(drawPileActivePlayer);
+			gameBoard[cell].setOwner(drawPileActivePlayer);
 		else
-			gameBoard[x][y].setOwner(currentPlayerNum);
+			gameBoard[cell].setOwner(currentPlayerNum);
 		id++;
-		drawFromStack(currentPlayerNum);
+		routeUpdate(cell, move);
+		move.drew = drawFromStack(currentPlayerNum);
+		if (journal != null)
+			journal.writeMove(cell, move.drawPileActive,
+					move.drew ? getPlayerTile(move.slot) : null);
 		advance();
 	}
 
+	/**************************************************************************
+	 * Records the state that placing a tile on the given cell will
+	 * change. The scores are brought up to date first so that undoing
+	 * the move only has to restore them.
+	 * 
+	 * @param cell
+	 *            The packed cell of the tile to be added.
+	 * @return the record of the move.
+	 **************************************************************************/
+	private MoveRecord recordMove(int cell) {
+		MoveRecord move;
+		int x = cell / cols;
+		int y = cell % cols;
+		updateScores(scoreType);
+		if (moves == history.size())
+			history.add(new MoveRecord(numOfPlayers));
+		move = history.get(moves);
+		moves++;
+		move.cell = cell;
+		move.slot = currentPlayerNum;
+		move.placed = currentPlayerTiles[currentPlayerNum];
+		move.id = id;
+		move.drawPileActive = drawPileActive;
+		move.drawPileActivePlayer = drawPileActivePlayer;
+		move.override = override;
+		move.opened = openCells.get(cell);
+		move.walked = 0;
+		System.arraycopy(playerScores, 0, move.scores, 0, numOfPlayers);
+		move.edgeMask = 0;
+		if (isEdge(cell))
+			for (int t = 0; t < edgeMoves.length; t++)
+				if (edgeMoves[t].get(cell))
+					move.edgeMask |= 1 << t;
+		move.adjacentMask = 0;
+		if (adjacentMoves.get(cell))
+			move.adjacentMask |= 1;
+		if (x > 0 && adjacentMoves.get(cell - cols))
+			move.adjacentMask |= 2;
+		if (x < rows - 1 && adjacentMoves.get(cell + cols))
+			move.adjacentMask |= 4;
+		if (y > 0 && adjacentMoves.get(cell - 1))
+			move.adjacentMask |= 8;
+		if (y < cols - 1 && adjacentMoves.get(cell + 1))
+			move.adjacentMask |= 16;
+		return move;
+	}
+
+	/**************************************************************************
+	 * Undoes the last tile placement, restoring the game board, the
+	 * stations, the tile stack, the turn, the ids and the scores.
+	 * 
+	 * @return {@code true} if a tile was removed, {@code false} if
+	 *         there is nothing to undo.
+	 **************************************************************************/
+	protected boolean undoTile() {
+		MoveRecord move;
+		StationCell station;
+		int cell;
+		int x;
+		int y;
+		if (moves == 0)
+			return false;
+		moves--;
+		move = history.get(moves);
+		if (journal != null)
+			journal.writeUndo();
+		cell = move.cell;
+		x = cell / cols;
+		y = cell % cols;
+		if (move.drew)
+			tileStack[--stackTop] = getPlayerTile(move.slot).ordinal();
+
+		// The removed tile may still be on the board of a copy, so the
+		// player is given a new tile of the same type.
+		currentPlayerTiles[move.slot] = new TileCell(move.placed.getType());
+		currentPlayerNum = move.slot;
+		drawPileActive = move.drawPileActive;
+		drawPileActivePlayer = move.drawPileActivePlayer;
+		override = move.override;
+		id = move.id;
+		System.arraycopy(move.scores, 0, playerScores, 0, numOfPlayers);
+
+		// The scores were updated before the move, so only stations it
+		// completed can be waiting to be scored.
+		completedStations.clear();
+		for (int i = move.walked - 1; i >= 0; i--) {
+			station = move.stations[i];
+			if (!station.isComplete())
+				waitingStations[getWaitingIndex(station)] = null;
+			openRouteChange(station, -1);
+			station.removeTiles(move.sizes[i]);
+			openRouteChange(station, 1);
+			waitForTile(station);
+		}
+		gameBoard[cell] = null;
+		if (move.opened) {
+			openCells.set(cell);
+			placedTiles--;
+
+			// Placing the tile cleared the cell from every set of edge
+			// moves, so only the bits that were set need to be restored.
+			for (int t = 0; t < edgeMoves.length; t++)
+				if ((move.edgeMask & 1 << t) != 0)
+					edgeMoves[t].set(cell);
+			if (isEdge(cell)) {
+				if (x == 0 || x == rows - 1)
+					stationStarted(cell, -1);
+				if (y == 0 || y == cols - 1)
+					stationStarted(cell, -1);
+			} else
+				insideOpenTiles++;
+			adjacentMoves.set(cell, (move.adjacentMask & 1) != 0);
+			if (x > 0)
+				adjacentMoves.set(cell - cols,
+						(move.adjacentMask & 2) != 0);
+			if (x < rows - 1)
+				adjacentMoves.set(cell + cols,
+						(move.adjacentMask & 4) != 0);
+			if (y > 0)
+				adjacentMoves.set(cell - 1, (move.adjacentMask & 8) != 0);
+			if (y < cols - 1)
+				adjacentMoves.set(cell + 1,
+						(move.adjacentMask & 16) != 0);
+		}
+		return true;
+	}
+
+	/**************************************************************************
+	 * Sets the type of the tile held by the specified player. This is
+	 * used by searches to try each possible draw from the stack.
+	 * 
+	 * @param playerNum
+	 *            The number of the specified player.
+	 * @param type
+	 *            The {@code Type} of the tile.
+	 * @return the tile the player held before.
+	 **************************************************************************/
+	protected TileCell setCurrentTile(int playerNum, Type type) {
+		TileCell held = currentPlayerTiles[playerNum];
+		currentPlayerTiles[playerNum] = new TileCell(type);
+		return held;
+	}
+
+	/**************************************************************************
+	 * Gets the tile on a cell of the game board.
+	 * 
+	 * @param cell
+	 *            The packed cell.
+	 * @return the tile on the cell, or {@code null} if it is empty.
+	 **************************************************************************/
+	protected TileCell getTileAt(int cell) {
+		return gameBoard[cell];
+	}
+
+	/**************************************************************************
+	 * Gives a tile back to the specified player after a search has
+	 * tried other draws.
+	 * 
+	 * @param playerNum
+	 *            The number of the specified player.
+	 * @param tile
+	 *            The tile the player held before.
+	 **************************************************************************/
+	protected void restoreCurrentTile(int playerNum, TileCell tile) {
+		currentPlayerTiles[playerNum] = tile;
+	}
+
+	/**************************************************************************
+	 * Gets the number of tiles of each type left in the stack.
+	 * 
+	 * @return the number of tiles left, indexed by {@code Type}
+	 *         ordinal.
+	 **************************************************************************/
+	protected int[] getStackCounts() {
+		int[] counts = new int[TileCell.types.length];
+		for (int i = stackTop; i < tileStack.length; i++)
+			counts[tileStack[i]]++;
+		return counts;
+	}
+
 	/**************************************************************************
 	 * Checks to see if a move is valid.
 	 * 
-	 * @param x
-	 *            The x coordinate of the tile to be added.
-	 * @param y
-	 *            The y coordinate of the tile to be added.
+	 * @param cell
+	 *            The packed cell of the tile to be added.
 	 * @throws MiddleOfNowhereException
 	 *             if the tile is adjacent to no others.
 	 * @throws CutoffException
 	 *             if the tile cuts off another player.
 	 **************************************************************************/
-	private void validityChecker(int x, int y)
+	private void validityChecker(int cell)
 			throws MiddleOfNowhereException, CutoffException {
 		if (!override) {
-			if (x == 0 || y == 0 || x == rows - 1 || y == cols - 1)
-				exceptionChecker(x, y);
-			else
-				adjacentChecker(x, y);
+			if (!isEdge(cell))
+				adjacentChecker(cell);
+			else if (!openCells.get(cell))
+				exceptionChecker(cell);
+			else if (!edgeMoves[getCurrentActiveTile().ordinal()]
+					.get(cell))
+				throw new CutoffException();
 		}
 	}
 
 	/**************************************************************************
 	 * Checks for a placement exception where tiles cutoff others.
 	 * 
-	 * @param x
-	 *            The x coordinate of the tile to be added.
-	 * @param y
-	 *            The y coordinate of the tile to be added.
+	 * @param cell
+	 *            The packed cell of the tile to be added.
 	 * @throws CutoffException
 	 *             if the tile cuts off another player.
 	 **************************************************************************/
-	private void exceptionChecker(int x, int y) throws CutoffException {
-		Link currentExit = null;
+	private void exceptionChecker(int cell) throws CutoffException {
+		if (isCutoff(getCurrentActiveTile(), cell))
+			throw new CutoffException();
+	}
+
+	/**************************************************************************
+	 * Tests to see if a tile of the given type would cut off a terminal
+	 * next to the given cell.
+	 * 
+	 * @param type
+	 *            The {@code Type} of the tile to be added.
+	 * @param cell
+	 *            The packed cell of the tile to be added.
+	 * @return {@code true} if the tile cuts off a terminal, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	private boolean isCutoff(Type type, int cell) {
 		try {
-			currentExit = currentPlayerTiles[currentPlayerNum]
-					.getExitLink(exitToEntrance(getNeighborTerminal(x,
-							y).getTail().getExit()));
-			if (isTerminalNext(currentExit, x, y))
-				throw new CutoffException();
+			return isTerminalNext(TileCell.getExitLink(type,
+					exitToEntrance(getNeighborTerminal(cell)
+							.getTailExit())), cell);
 		} catch (CornerException e) {
-			checkCorners(x, y);
+			return checkCorners(type, cell);
 		}
 	}
 
 	/**************************************************************************
 	 * Checks to see if any tile can be placed without exceptions and
-	 * enables the exception overrides if this is the case.
+	 * enables the exception overrides if this is the case. Every
+	 * unstarted station that the current tile would cut off counts as
+	 * an error.
 	 **************************************************************************/
-	private void exceptionOverride() {
-		StationCell station;
-		Position pos;
-		int errors = 0;
-		int open = 0;
-		for (int i = 0; i < stations.size(); i++)
-			if (!stations.get(i).isStarted()) {
-				open++;
-				station = stations.get(i);
-				pos = station.getPosition();
-				try {
-					if (pos.getX() == -1)
-						exceptionChecker(pos.getX() + 1, pos.getY());
-					else if (pos.getX() == rows)
-						exceptionChecker(pos.getX() - 1, pos.getY());
-					else if (pos.getY() == cols)
-						exceptionChecker(pos.getX(), pos.getY() - 1);
-					else if (pos.getY() == -1)
-						exceptionChecker(pos.getX(), pos.getY() + 1);
-				} catch (CutoffException e) {
-					errors++;
-				}
-			}
+	protected void exceptionOverride() {
+		int errors = cutoffStations[getCurrentActiveTile().ordinal()];
 		if (numOfInsideOpenTiles() != 0 && isStationStarted())
 			override = false;
-		else if (errors == open)
+		else if (errors == openStations)
 			override = true;
 		else
 			override = false;
 	}
 
+	/**************************************************************************
+	 * Generates the sets of legal moves and the counts of unstarted
+	 * stations from the current game board.
+	 **************************************************************************/
+	private void legalMoveGenerator() {
+		openCells = new BitSet(rows * cols);
+		adjacentMoves = new BitSet(rows * cols);
+		edgeMoves = new BitSet[TileCell.types.length];
+		cutoffStations = new int[TileCell.types.length];
+		openStations = 0;
+		placedTiles = gameBoard.length;
+		insideOpenTiles = 0;
+		for (int t = 0; t < edgeMoves.length; t++)
+			edgeMoves[t] = new BitSet(rows * cols);
+		for (int cell = 0; cell < gameBoard.length; cell++)
+			if (gameBoard[cell] == null) {
+				openCells.set(cell);
+				placedTiles--;
+				if (isEdge(cell)) {
+					for (int t = 0; t < edgeMoves.length; t++)
+						if (!isCutoff(TileCell.types[t], cell))
+							edgeMoves[t].set(cell);
+				} else {
+					insideOpenTiles++;
+					if (hasNeighbor(cell))
+						adjacentMoves.set(cell);
+				}
+			}
+		for (int i = 0; i < stations.size(); i++)
+			if (!stations.get(i).isStarted())
+				stationStarted(stations.get(i).getEntryCell(), -1);
+	}
+
+	/**************************************************************************
+	 * Updates the sets of legal moves before a tile is placed on the
+	 * given cell. Only the cell, its neighbors and the terminals next to
+	 * it can change, and only cells next to a terminal are in the sets
+	 * of edge moves.
+	 * 
+	 * @param cell
+	 *            The packed cell of the tile being added.
+	 **************************************************************************/
+	private void legalMoveUpdate(int cell) {
+		int x = cell / cols;
+		int y = cell % cols;
+		if (!openCells.get(cell))
+			return;
+		placedTiles++;
+		if (isEdge(cell)) {
+			if (x == 0 || x == rows - 1)
+				stationStarted(cell, 1);
+			if (y == 0 || y == cols - 1)
+				stationStarted(cell, 1);
+			for (int t = 0; t < edgeMoves.length; t++)
+				if (edgeMoves[t].get(cell))
+					edgeMoves[t].clear(cell);
+		} else
+			insideOpenTiles--;
+		openCells.clear(cell);
+		adjacentMoves.clear(cell);
+		if (x > 0)
+			adjacentMove(cell - cols);
+		if (x < rows - 1)
+			adjacentMove(cell + cols);
+		if (y > 0)
+			adjacentMove(cell - 1);
+		if (y < cols - 1)
+			adjacentMove(cell + 1);
+	}
+
+	/**************************************************************************
+	 * Marks an empty interior cell as a legal move because one of its
+	 * neighbors has a tile.
+	 * 
+	 * @param cell
+	 *            The packed cell next to the tile being added.
+	 **************************************************************************/
+	private void adjacentMove(int cell) {
+		if (gameBoard[cell] == null && !isEdge(cell))
+			adjacentMoves.set(cell);
+	}
+
+	/**************************************************************************
+	 * Updates the counts of unstarted stations when the station leading
+	 * into the given cell is started or added. The cell must still be
+	 * empty.
+	 * 
+	 * @param cell
+	 *            The packed cell that the station leads into.
+	 * @param change
+	 *            {@code 1} if the station was started, {@code -1} if an
+	 *            unstarted station is being counted.
+	 **************************************************************************/
+	private void stationStarted(int cell, int change) {
+		openStations -= change;
+		for (int t = 0; t < cutoffStations.length; t++)
+			if (!edgeMoves[t].get(cell))
+				cutoffStations[t] -= change;
+	}
+
+	/**************************************************************************
+	 * Gets the set of cells where the current tile can be placed.
+	 * 
+	 * @return the set of legal packed cells for the current tile.
+	 **************************************************************************/
+	protected BitSet getLegalMoves() {
+		BitSet legal;
+		exceptionOverride();
+		if (override)
+			return (BitSet) openCells.clone();
+		legal = (BitSet) edgeMoves[getCurrentActiveTile().ordinal()]
+				.clone();
+		legal.or(adjacentMoves);
+		return legal;
+	}
+
+	/**************************************************************************
+	 * Gets the first cell at or after the given one where the current
+	 * tile can be placed. Unlike {@code getLegalMoves()} nothing is
+	 * copied, so a search can walk the legal moves of a position this
+	 * way as long as each move it tries is undone before the next call.
+	 * 
+	 * @param from
+	 *            The packed cell to start looking from.
+	 * @return the next legal packed cell, or {@code -1} if there is
+	 *         none.
+	 **************************************************************************/
+	protected int nextLegalMove(int from) {
+		int edge;
+		int inside;
+		exceptionOverride();
+		if (override)
+			return openCells.nextSetBit(from);
+		edge = edgeMoves[getCurrentActiveTile().ordinal()].nextSetBit(from);
+		inside = adjacentMoves.nextSetBit(from);
+		if (edge == -1 || (inside != -1 && inside < edge))
+			return inside;
+		return edge;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a cell is next to a terminal.
+	 * 
+	 * @param cell
+	 *            The packed cell being tested.
+	 * @return {@code true} if the cell is on the edge of the board,
+	 *         {@code false} otherwise.
+	 **************************************************************************/
+	private boolean isEdge(int cell) {
+		int x = cell / cols;
+		int y = cell % cols;
+		return x == 0 || y == 0 || x == rows - 1 || y == cols - 1;
+	}
+
+	/**************************************************************************
+	 * Tests to see if any neighbor of an interior cell has a tile.
+	 * 
+	 * @param cell
+	 *            The packed interior cell being tested.
+	 * @return {@code true} if a neighbor has a tile, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	private boolean hasNeighbor(int cell) {
+		return adjacentTest(cell - cols) + adjacentTest(cell + cols)
+				+ adjacentTest(cell + 1) + adjacentTest(cell - 1) != 0;
+	}
+
 	/**************************************************************************
 	 * Gets the number of open tiles that are not adjacent to terminals.
+	 * The count is kept up to date as tiles are placed and undone.
 	 * 
 	 * @return the number of open tiles that are not adjacent to
 	 *         terminals.
 	 **************************************************************************/
 	private int numOfInsideOpenTiles() {
-		int total = 0;
-		if (rows == 2)
-			return total;
-		else {
-			for (int i = 1; i < gameBoard.length - 1; i++)
-				for (int j = 1; j < gameBoard[i].length - 1; j++)
-					if (gameBoard[i][j] == null)
-						total++;
-			return total;
-		}
+		return insideOpenTiles;
 	}
 
 	/**************************************************************************
@@ -452,22 +1017,86 @@ public class MetroEngine implements ScoreKeeper {
 	 *         otherwise.
 	 **************************************************************************/
 	private boolean isStationStarted() {
-		for (int i = 0; i < stations.size(); i++)
-			if (stations.get(i).isStarted())
-				return true;
-		return false;
+		return openStations != stations.size();
 	}
 
 	/**************************************************************************
-	 * Updates the stations with new tiles attached to them.
+	 * Updates the stations waiting on the given cell after a tile has
+	 * been placed there.
+	 * 
+	 * @param cell
+	 *            The packed cell of the placed tile.
+	 * @param move
+	 *            The record of the move, which keeps the stations that
+	 *            were updated.
+	 **************************************************************************/
+	private void routeUpdate(int cell, MoveRecord move) {
+		StationCell station;
+		int index = cell * LINKS;
+		for (int i = index; i < index + LINKS; i++) {
+			station = waitingStations[i];
+			if (station != null) {
+				waitingStations[i] = null;
+				move.stations[move.walked] = station;
+				move.sizes[move.walked] = station.numberOfCells();
+				move.walked++;
+				openRouteChange(station, -1);
+				updateStation(station);
+				openRouteChange(station, 1);
+			}
+		}
+	}
+
+	/**************************************************************************
+	 * Records that a station is waiting for a tile in the cell its tail
+	 * points at.
+	 * 
+	 * @param station
+	 *            The station waiting for a tile.
+	 **************************************************************************/
+	private void waitForTile(StationCell station) {
+		waitingStations[getWaitingIndex(station)] = station;
+	}
+
+	/**************************************************************************
+	 * Gets the index in the array of waiting stations of the cell and
+	 * entrance {@code Link} that the tail of a station points at.
+	 * 
+	 * @param station
+	 *            The station being tested.
+	 * @return the index of the cell and entrance after the tail.
+	 **************************************************************************/
+	private int getWaitingIndex(StationCell station) {
+		return getTailNext(station) * LINKS
+				+ exitToEntrance(station.getTailExit()).ordinal();
+	}
+
+	/**************************************************************************
+	 * Gets the packed cell that the tail of a station points at.
+	 * 
+	 * @param station
+	 *            The station being tested.
+	 * @return the packed cell after the tail of the station.
+	 **************************************************************************/
+	private int getTailNext(StationCell station) {
+		if (station.isStarted())
+			return getNextCell(station.getTailExit(), station
+					.getTailCell());
+		else
+			return station.getEntryCell();
+	}
+
+	/**************************************************************************
+	 * Rebuilds the routes of every incomplete station from its tail.
+	 * This is only needed when a whole board is loaded at once.
 	 **************************************************************************/
 	private void stationUpdate() {
+		Arrays.fill(waitingStations, null);
 		for (int i = 0; i < stations.size(); i++) {
 			if (stations.get(i).isComplete())
 				continue;
 			else
-				updateStation(stations.get(i).getTail(), stations
-						.get(i));
+				updateStation(stations.get(i));
 		}
 	}
 
@@ -478,39 +1107,35 @@ public class MetroEngine implements ScoreKeeper {
 	 *         otherwise.
 	 **************************************************************************/
 	protected boolean isComplete() {
-		for (int i = 0; i < gameBoard.length; i++)
-			for (int j = 0; j < gameBoard[i].length; j++)
-				if (gameBoard[i][j] == null)
-					return false;
-		return true;
+		return placedTiles == gameBoard.length;
 	}
 
 	/**************************************************************************
-	 * Updates the chain of tiles connected to a station. Continues
-	 * recursively until no connected tiles remain.
+	 * Updates the chain of tiles connected to a station starting at its
+	 * tail. Continues until no connected tiles remain, then waits on the
+	 * next empty cell.
 	 * 
-	 * @param posEx
-	 *            The current {@code PositionExit} of the tail of the
-	 *            station list.
 	 * @param station
 	 *            The station being added to.
 	 **************************************************************************/
-	private void updateStation(PositionExit posEx, StationCell station) {
-		Position nextPos = getNextPos(posEx.getExit(), posEx.getX(),
-				posEx.getY());
-		TileCell temp;
-		if (gameBoard[nextPos.getX()][nextPos.getY()] != null) {
-			temp = gameBoard[nextPos.getX()][nextPos.getY()];
-			station.addTile(nextPos.getX(), nextPos.getY(), temp
-					.getExitLink(exitToEntrance(posEx.getExit())));
-			if (isTerminalNext(temp.getExitLink(exitToEntrance(posEx
-					.getExit())), nextPos.getX(), nextPos.getY()))
+	private void updateStation(StationCell station) {
+		int next = getTailNext(station);
+		Link exit;
+
+		// Loops rather than recursing so long routes on large boards
+		// cannot overflow the stack.
+		while (gameBoard[next] != null) {
+			exit = gameBoard[next].getExitLink(exitToEntrance(station
+					.getTailExit()));
+			station.addTile(next, exit);
+			if (isTerminalNext(exit, next)) {
 				station.setComplete();
-
-			// The recursive step.
-			else
-				updateStation(station.getTail(), station);
+				completedStations.add(station);
+				return;
+			}
+			next = getTailNext(station);
 		}
+		waitForTile(station);
 	}
 
 	/**************************************************************************
@@ -518,48 +1143,41 @@ public class MetroEngine implements ScoreKeeper {
 	 * 
 	 * @param exit
 	 *            The exit link of the tile being tested.
-	 * @param x
-	 *            The x coordinate of the tile being tested.
-	 * @param y
-	 *            The y coordinate of the tile being tested.
+	 * @param cell
+	 *            The packed cell of the tile being tested.
 	 * @return {@code true} if a terminal is next, {@code false}
 	 *         otherwise.
 	 **************************************************************************/
-	private boolean isTerminalNext(Link exit, int x, int y) {
-		Position next = getNextPos(exit, x, y);
-		if (next == null)
-			return false;
-		else if (next.getX() == -1 || next.getY() == -1
-				|| next.getX() == rows || next.getY() == cols)
-			return true;
-		return false;
+	private boolean isTerminalNext(Link exit, int cell) {
+		return getNextCell(exit, cell) == OFFBOARD;
 	}
 
 	/**************************************************************************
-	 * Gets the next position given an exit and current position of a
-	 * tile.
+	 * Gets the next packed cell given an exit and current packed cell of
+	 * a tile.
 	 * 
 	 * @param exit
 	 *            The exit link of the tile.
-	 * @param x
-	 *            The x coordinate of the tile being tested.
-	 * @param y
-	 *            The y coordinate of the tile being tested.
-	 * @return the position of the next tile in the direction of the
-	 *         exit link.
+	 * @param cell
+	 *            The packed cell of the tile being tested.
+	 * @return the packed cell of the next tile in the direction of the
+	 *         exit link, {@code OFFBOARD} if the next cell is a terminal
+	 *         or {@code NOWHERE} if the link is not an exit.
 	 **************************************************************************/
-	private Position getNextPos(Link exit, int x, int y) {
+	private int getNextCell(Link exit, int cell) {
+		int x = cell / cols;
+		int y = cell % cols;
 		switch (exit) {
 		case NorthRight:
-			return new Position(x - 1, y);
+			return x == 0 ? OFFBOARD : cell - cols;
 		case EastLower:
-			return new Position(x, y + 1);
+			return y == cols - 1 ? OFFBOARD : cell + 1;
 		case SouthLeft:
-			return new Position(x + 1, y);
+			return x == rows - 1 ? OFFBOARD : cell + cols;
 		case WestUpper:
-			return new Position(x, y - 1);
+			return y == 0 ? OFFBOARD : cell - 1;
 		default:
-			return null;
+			return NOWHERE;
 		}
 	}
 
@@ -567,17 +1185,17 @@ public class MetroEngine implements ScoreKeeper {
 	 * Gets the neighbor terminal of {@code TileCells} that are adjacent
 	 * to a terminal.
 	 * 
-	 * @param x
-	 *            The x position of the {@code TileCell} being tested.
-	 * @param y
-	 *            The y position of the {@code TileCell} being tested.
+	 * @param cell
+	 *            The packed cell of the {@code TileCell} being tested.
 	 * @return the {@code StationCell} that is adjacent to the specified
 	 *         {@code TileCell}.
 	 * @throws CornerException
 	 *             if the {@code TileCell} was placed on a corner.
 	 **************************************************************************/
-	private StationCell getNeighborTerminal(int x, int y)
+	private StationCell getNeighborTerminal(int cell)
 			throws CornerException {
+		int x = cell / cols;
+		int y = cell % cols;
 		if ((x == 0 && y == 0) || (x == rows - 1 && y == cols - 1)
 				|| (x == 0 && y == cols - 1)
 				|| (x == rows - 1 && y == 0))
@@ -625,43 +1243,24 @@ public class MetroEngine implements ScoreKeeper {
 	}
 
 	/**************************************************************************
-	 * Checks the corners for a {@code CutoffException}.
+	 * Checks the corners for a cutoff.
 	 * 
-	 * @param x
-	 *            The x position of the {@code TileCell} being tested.
-	 * @param y
-	 *            The y position of the {@code TileCell} being tested.
-	 * @throws CutoffException
-	 *             if the tile cuts off a terminal in a corner.
-	 **************************************************************************/
-	private void checkCorners(int x, int y) throws CutoffException {
-		StationCell[] temp = getNeighborTerminals(x, y);
-		Link currentExit1 = currentPlayerTiles[currentPlayerNum]
-				.getExitLink(exitToEntrance(temp[0].getTail().getExit()));
-		Link currentExit2 = currentPlayerTiles[currentPlayerNum]
-				.getExitLink(exitToEntrance(temp[1].getTail().getExit()));
-		if (isTerminalNext(currentExit1, x, y)
-				|| isTerminalNext(currentExit2, x, y))
-			throw new CutoffException();
-
-	}
-
-	/**************************************************************************
-	 * Gets the neighbor terminals of a tile. This is only used if the
-	 * tile is in a corner.
-	 * 
-	 * @param x
-	 *            The x position of the {@code TileCell} being tested.
-	 * @param y
-	 *            The y position of the {@code TileCell} being tested.
-	 * @return the array of {@code StationCells} that are adjacent to
-	 *         the specified {@code TileCell}.
+	 * @param type
+	 *            The {@code Type} of the tile being tested.
+	 * @param cell
+	 *            The packed cell of the {@code TileCell} being tested.
+	 * @return {@code true} if the tile cuts off a terminal in a corner,
+	 *         {@code false} otherwise.
 	 **************************************************************************/
-	private StationCell[] getNeighborTerminals(int x, int y) {
-		StationCell[] temp = new StationCell[2];
-		temp[0] = getXStations(x, y);
-		temp[1] = getYStations(x, y);
-		return temp;
+	private boolean checkCorners(Type type, int cell) {
+		int x = cell / cols;
+		int y = cell % cols;
+		Link currentExit1 = TileCell.getExitLink(type,
+				exitToEntrance(getXStations(x, y).getTailExit()));
+		Link currentExit2 = TileCell.getExitLink(type,
+				exitToEntrance(getYStations(x, y).getTailExit()));
+		return isTerminalNext(currentExit1, cell)
+				|| isTerminalNext(currentExit2, cell);
 	}
 
 	/**************************************************************************
@@ -687,20 +1286,18 @@ public class MetroEngine implements ScoreKeeper {
 	/**************************************************************************
 	 * Tests to see if a {@code TileCell} is adjacent to something else.
 	 * 
-	 * @param x
-	 *            The x position of the {@code TileCell} being tested.
-	 * @param y
-	 *            The y position of the {@code TileCell} being tested.
+	 * @param cell
+	 *            The packed cell of the {@code TileCell} being tested.
 	 * @throws MiddleOfNowhereException
 	 *             if the tile is not adjacent to anything.
 	 **************************************************************************/
-	private void adjacentChecker(int x, int y)
+	private void adjacentChecker(int cell)
 			throws MiddleOfNowhereException {
 		int match = 0;
-		match += adjacentTest(x - 1, y);
-		match += adjacentTest(x + 1, y);
-		match += adjacentTest(x, y + 1);
-		match += adjacentTest(x, y - 1);
+		match += adjacentTest(cell - cols);
+		match += adjacentTest(cell + cols);
+		match += adjacentTest(cell + 1);
+		match += adjacentTest(cell - 1);
 		if (match == 0)
 			throw new MiddleOfNowhereException();
 	}
@@ -708,15 +1305,13 @@ public class MetroEngine implements ScoreKeeper {
 	/**************************************************************************
 	 * Tests to see if a cell exists.
 	 * 
-	 * @param x
-	 *            The x position of the {@code TileCell} being tested.
-	 * @param y
-	 *            The y position of the {@code TileCell} being tested.
+	 * @param cell
+	 *            The packed cell of the {@code TileCell} being tested.
 	 * @return {@code 1} if there is an adjacent, {@code 0} otherwise.
 	 **************************************************************************/
-	private int adjacentTest(int x, int y) {
+	private int adjacentTest(int cell) {
 		int match = 0;
-		if (gameBoard[x][y] != null)
+		if (gameBoard[cell] != null)
 			match++;
 		return match;
 	}
@@ -731,16 +1326,20 @@ public class MetroEngine implements ScoreKeeper {
 	}
 
 	/**************************************************************************
-	 * Sets the owners of the terminals.
+	 * Sets the owners of the terminals. Standard 8x8 games with two to
+	 * six players use the owners of the board game. Any other board is
+	 * dealt out one terminal to each player in turn, going clockwise
+	 * around the edge from the top left corner.
 	 **************************************************************************/
 	private void setOwners() {
 		int owner = 0;
-		if (rows != 8)
+		if (rows == 8 && cols == 8 && numOfPlayers >= 2
+				&& numOfPlayers <= 6)
+			setNormalOwners();
+		else
 			for (int i = 0; i < 4; i++) {
 				owner = setOwnersLoop(getTerminals(i), owner);
 			}
-		else
-			setNormalOwners();
 	}
 
 	/**************************************************************************
@@ -847,7 +1446,7 @@ public class MetroEngine implements ScoreKeeper {
 	 * @return the array of the stations of the specified type.
 	 **************************************************************************/
 	private StationCell[] getTerminalsLoop(int type, String test) {
-		StationCell[] temp = new StationCell[rows];
+		StationCell[] temp = new StationCell[test.equals("x") ? cols : rows];
 		Position position;
 		int j = 0;
 		for (int i = 0; i < stations.size(); i++) {
@@ -874,6 +1473,55 @@ public class MetroEngine implements ScoreKeeper {
 		return stations.get(station).getOwner();
 	}
 
+	/**************************************************************************
+	 * Gets the cell of the last tile placed that can be undone.
+	 * 
+	 * @return the packed cell of the last move, or {@code -1} if there
+	 *         is nothing to undo.
+	 **************************************************************************/
+	protected int getLastMove() {
+		if (moves == 0)
+			return -1;
+		return history.get(moves - 1).cell;
+	}
+
+	/**************************************************************************
+	 * Gets the stations whose routes were completed by the last tile
+	 * placed.
+	 * 
+	 * @return the array of the numbers of the completed stations, which
+	 *         is empty if no tile can be undone.
+	 **************************************************************************/
+	protected int[] getLastCompletedStations() {
+		MoveRecord move;
+		int[] completed;
+		int count = 0;
+		if (moves == 0)
+			return new int[0];
+		move = history.get(moves - 1);
+		for (int i = 0; i < move.walked; i++)
+			if (move.stations[i].isComplete())
+				count++;
+		completed = new int[count];
+		count = 0;
+		for (int i = 0; i < move.walked; i++)
+			if (move.stations[i].isComplete())
+				completed[count++] = stations.indexOf(move.stations[i]);
+		return completed;
+	}
+
+	/**************************************************************************
+	 * Gets the points the route of the specified station is worth with
+	 * the scoring system in use.
+	 * 
+	 * @param station
+	 *            The number of the station.
+	 * @return the points the route is worth.
+	 **************************************************************************/
+	protected int getStationValue(int station) {
+		return getRouteValue(stations.get(station), scoreType);
+	}
+
 	/**************************************************************************
 	 * Gets the player who activated the draw pile.
 	 * 
@@ -889,7 +1537,6 @@ public class MetroEngine implements ScoreKeeper {
 	 * @return the array of the current scores.
 	 **************************************************************************/
 	public int[] getScores() {
-		stationUpdate();
 		updateScores(scoreType);
 		return playerScores;
 	}
@@ -898,115 +1545,154 @@ public class MetroEngine implements ScoreKeeper {
 	 * Updates the crossover scores.
 	 **************************************************************************/
 	public void updateCrossoverScores() {
+		scoreStations(ScoreKeeper.CROSS);
+	}
+
+	/**************************************************************************
+	 * Updates the time placement scores.
+	 **************************************************************************/
+	public void updatePlacementTimeScores() {
+		scoreStations(ScoreKeeper.TIME);
+	}
+
+	/**************************************************************************
+	 * Updates the simple scores.
+	 **************************************************************************/
+	public void updateSimpleScores() {
+		scoreStations(ScoreKeeper.SIMPLE);
+	}
+
+	/**************************************************************************
+	 * Adds the value of every station completed since the last update
+	 * to the score of its owner.
+	 * 
+	 * @param type
+	 *            The integer of the selected scoring method.
+	 **************************************************************************/
+	private void scoreStations(int type) {
 		StationCell station;
-		int owner;
-		Position pos;
-		ArrayList<PositionExit> cells;
-		for (int i = 0; i < stations.size(); i++) {
-			station = stations.get(i);
-			if (station.isComplete() && !station.isScored()) {
-				try {
-					owner = station.getOwner();
-					cells = station.getCells();
-					pos = station.getFirstCell();
-					if (station.numberOfCells() == 1
-							&& gameBoard[pos.getX()][pos.getY()]
-									.getOwner() != owner)
-						playerScores[owner] += 10;
-					else
-						for (int j = 0; j < cells.size(); j++) {
-							playerScores[owner] += 1;
-							if (hasMatches(cells, j))
-								playerScores[owner] += 1;
-						}
-				} catch (ArrayIndexOutOfBoundsException e) {
-
-					// This is for when owner=6 in 8x8 games where there
-					// are dead tiles owned by nobody.
-				}
-				station.setScored();
-			}
+		for (int i = 0; i < completedStations.size(); i++) {
+			station = completedStations.get(i);
+
+			// Owner 6 in 8x8 games are dead terminals owned by nobody.
+			if (station.getOwner() < numOfPlayers)
+				playerScores[station.getOwner()] += getRouteValue(station,
+						type);
+			station.setScored();
 		}
+		completedStations.clear();
 	}
 
 	/**************************************************************************
-	 * Tests to see if a {@code ArrayList<PositionExit>} has matching
-	 * elements.
+	 * Gets the points the route of a station is worth with the selected
+	 * scoring method. A route of a single tile placed by another player
+	 * is worth a bonus of 10 except with time placement scoring.
 	 * 
-	 * @param cells
-	 *            The {@code ArrayList} to test.
-	 * @param endIndex
-	 *            The last index of the array list to test.
-	 * @return {@code true} if there are matches, {@code false}
-	 *         otherwise.
+	 * @param station
+	 *            The station being scored.
+	 * @param type
+	 *            The integer of the selected scoring method.
+	 * @return the points the route is worth.
 	 **************************************************************************/
-	private boolean hasMatches(ArrayList<PositionExit> cells,
-			int endIndex) {
-		PositionExit cell;
-		cell = cells.get(endIndex);
-		for (int i = 0; i < endIndex; i++)
-			if (cell.equals(cells.get(i)))
-				return true;
-		return false;
+	private int getRouteValue(StationCell station, int type) {
+		int value = 0;
+		if (type != ScoreKeeper.TIME
+				&& station.numberOfCells() == 1
+				&& gameBoard[station.getFirstCell()].getOwner() != station
+						.getOwner())
+			return 10;
+		if (type == ScoreKeeper.CROSS)
+			return getCrossoverValue(station);
+		for (int j = 0; j < station.numberOfCells(); j++)
+			if (type == ScoreKeeper.TIME)
+				value += gameBoard[station.getCell(j)].getID();
+			else
+				value++;
+		return value;
 	}
 
 	/**************************************************************************
-	 * Updates the time placement scores.
+	 * Gets the crossover value of the route of a station, where a cell
+	 * is worth 2 each time the route passes through it again and 1
+	 * otherwise. The visited cells are marked in {@code routeCells},
+	 * which is cleared again before returning.
+	 * 
+	 * @param station
+	 *            The station being scored.
+	 * @return the points the route is worth.
 	 **************************************************************************/
-	public void updatePlacementTimeScores() {
-		StationCell station;
-		int owner;
-		ArrayList<PositionExit> cells;
-		for (int i = 0; i < stations.size(); i++) {
-			station = stations.get(i);
-			if (station.isComplete() && !station.isScored()) {
-				owner = station.getOwner();
-				cells = station.getCells();
-				for (int j = 0; j < cells.size(); j++)
-					try {
-						playerScores[owner] += gameBoard[cells.get(j)
-								.getX()][cells.get(j).getY()].getID();
-					} catch (ArrayIndexOutOfBoundsException e) {
-
-						// This is for when owner=6 in 8x8 games where
-						// there
-						// are dead tiles owned by nobody.
-					}
-				station.setScored();
+	private int getCrossoverValue(StationCell station) {
+		int value = 0;
+		int cell;
+		for (int j = 0; j < station.numberOfCells(); j++) {
+			cell = station.getCell(j);
+			if (routeCells.get(cell))
+				value += 2;
+			else {
+				routeCells.set(cell);
+				value++;
 			}
 		}
+		for (int j = 0; j < station.numberOfCells(); j++)
+			routeCells.clear(station.getCell(j));
+		return value;
 	}
 
 	/**************************************************************************
-	 * Updates the simple scores.
+	 * Gets the scores each player would have if every unfinished route
+	 * were completed as it stands. This is used to judge positions
+	 * during a search.
+	 * 
+	 * @return the array of provisional scores.
 	 **************************************************************************/
-	public void updateSimpleScores() {
-		StationCell station;
-		Position pos;
-		int owner;
-		for (int i = 0; i < stations.size(); i++) {
-			station = stations.get(i);
-			if (station.isComplete() && !station.isScored()) {
-				owner = station.getOwner();
-				try {
-					if (station.numberOfCells() == 1) {
-						pos = station.getFirstCell();
-						if (gameBoard[pos.getX()][pos.getY()]
-								.getOwner() != owner)
-							playerScores[owner] += 10;
-						else
-							playerScores[owner] += station
-									.numberOfCells();
-					} else
-						playerScores[owner] += station.numberOfCells();
-				} catch (ArrayIndexOutOfBoundsException e) {
-
-					// This is for when owner=6 in 8x8 games where there
-					// are dead tiles owned by nobody.
-				}
-				station.setScored();
-			}
-		}
+	protected int[] getProvisionalScores() {
+		int[] scores = getScores().clone();
+		for (int i = 0; i < scores.length; i++)
+			scores[i] += openRouteScores[i];
+		return scores;
+	}
+
+	/**************************************************************************
+	 * Gets the score the specified player would have if every unfinished
+	 * route were completed as it stands. Unlike {@code
+	 * getProvisionalScores()} no array is made, so a search can call this
+	 * for every position it judges.
+	 * 
+	 * @param playerNum
+	 *            The number of the specified player.
+	 * @return the provisional score of the player.
+	 **************************************************************************/
+	protected int getProvisionalScore(int playerNum) {
+		updateScores(scoreType);
+		return playerScores[playerNum] + openRouteScores[playerNum];
+	}
+
+	/**************************************************************************
+	 * Adds up the points of the unfinished routes of every player from
+	 * the stations. Afterwards the totals are kept up to date as the
+	 * routes change.
+	 **************************************************************************/
+	private void openRouteLoader() {
+		openRouteScores = new int[numOfPlayers];
+		for (int i = 0; i < stations.size(); i++)
+			openRouteChange(stations.get(i), 1);
+	}
+
+	/**************************************************************************
+	 * Adds or takes away the points of the route of a station in the
+	 * totals of the unfinished routes, if the route is unfinished.
+	 * 
+	 * @param station
+	 *            The station whose route is about to change or has just
+	 *            changed.
+	 * @param sign
+	 *            {@code 1} to add the points, {@code -1} to take them
+	 *            away.
+	 **************************************************************************/
+	private void openRouteChange(StationCell station, int sign) {
+		if (!station.isComplete() && station.getOwner() < numOfPlayers)
+			openRouteScores[station.getOwner()] += sign
+					* getRouteValue(station, scoreType);
 	}
 
 	/**************************************************************************
@@ -1019,14 +1705,10 @@ public class MetroEngine implements ScoreKeeper {
 	 **************************************************************************/
 	protected void saveGame(String filename) throws IOException {
 		MetroLoadSave save = new MetroLoadSave();
-		if (drawPileActive)
-			save.saveGame(numOfPlayers, rows, cols,
-					drawPileActivePlayer, scoreType, id, gameBoard,
-					currentPlayerTiles, filename);
-		else
-			save.saveGame(numOfPlayers, rows, cols, currentPlayerNum,
-					scoreType, id, gameBoard, currentPlayerTiles,
-					filename);
+		save.saveGame(numOfPlayers, rows, cols, currentPlayerNum,
+				drawPileActive, drawPileActivePlayer, scoreType, id,
+				gameBoard, currentPlayerTiles, tileStack, stackTop,
+				filename);
 	}
 
 	/**************************************************************************
@@ -1042,31 +1724,190 @@ public class MetroEngine implements ScoreKeeper {
 	protected void loadGame(String filename)
 			throws FileNotFoundException, ParseException {
 		MetroLoadSave load = new MetroLoadSave();
-		String[][] game;
-		String[] current;
 		load.loadGame(filename);
 		newGame(load.getPlayers(), load.getSize()[0],
 				load.getSize()[1], load.getScoreType());
-		game = load.getGameboard();
-		current = load.getPlayerTiles();
 		id = load.getID();
 		currentPlayerNum = load.getTurn();
+		drawPileActive = load.isDrawPileActive();
+		drawPileActivePlayer = load.getDrawPileActivePlayer();
+		gameBoard = load.getGameboard();
+		currentPlayerTiles = load.getPlayerTiles();
+		if (load.getTileStack() != null) {
+			tileStack = load.getTileStack();
+			stackTop = 0;
+		} else
+			stackRebuilder();
+		stationUpdate();
+		legalMoveGenerator();
+		openRouteLoader();
+		history = new ArrayList<MoveRecord>();
+		moves = 0;
+	}
 
-		// Loading the state of the game board.
-		for (int i = 0; i < gameBoard.length; i++)
-			for (int j = 0; j < gameBoard[i].length; j++) {
-				if (game[i][j] != null) {
-					gameBoard[i][j] = new TileCell(game[i][j]
-							.substring(0, 1));
-					gameBoard[i][j].setID(Integer.parseInt(game[i][j]
-							.substring(1, 2)));
-					gameBoard[i][j].setOwner(Integer
-							.parseInt(game[i][j].substring(2, 3)));
-					gameBoard[i][j].setPosition(new Position(i, j));
+	/**************************************************************************
+	 * Starts writing a journal of the moves of the current game. The
+	 * game must not have had any tiles placed.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @throws IOException
+	 *             If the journal cannot be written.
+	 **************************************************************************/
+	protected void startJournal(String filename) throws IOException {
+		if (id != 1)
+			throw new IllegalStateException(
+					"A journal must start before the first move");
+		stopJournal();
+		journal = new MetroJournal();
+		journal.startJournal(filename, numOfPlayers, rows, cols,
+				scoreType, seed, currentPlayerTiles);
+	}
+
+	/**************************************************************************
+	 * Stops writing the journal of the current game.
+	 * 
+	 * @return {@code true} if every move was written, {@code false} if
+	 *         writing failed.
+	 **************************************************************************/
+	protected boolean stopJournal() {
+		boolean written = true;
+		if (journal != null) {
+			journal.close();
+			written = !journal.checkError();
+			journal = null;
+		}
+		return written;
+	}
+
+	/**************************************************************************
+	 * Replays the moves of a journal into a new game.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @param moveIndex
+	 *            The number of moves to replay, or -1 to replay all of
+	 *            them.
+	 * @return the number of moves replayed.
+	 * @throws FileNotFoundException
+	 *             If the file cannot be found.
+	 * @throws ParseException
+	 *             If the journal is not valid.
+	 **************************************************************************/
+	protected int replayGame(String filename, int moveIndex)
+			throws FileNotFoundException, ParseException {
+		MetroJournal load = new MetroJournal();
+		load.loadJournal(filename);
+		return replayGame(load, moveIndex);
+	}
+
+	/**************************************************************************
+	 * Replays all of the moves of a journal and then continues writing
+	 * to it, so a game can carry on after a crash.
+	 * 
+	 * @param filename
+	 *            The name of the journal file.
+	 * @return the number of moves replayed.
+	 * @throws IOException
+	 *             If the journal cannot be read or written.
+	 * @throws ParseException
+	 *             If the journal is not valid.
+	 **************************************************************************/
+	protected int resumeJournal(String filename) throws IOException,
+			ParseException {
+		MetroJournal load = new MetroJournal();
+		int replayed;
+		load.loadJournal(filename);
+		replayed = replayGame(load, -1);
+		load.resumeJournal(filename);
+		journal = load;
+		return replayed;
+	}
+
+	/**************************************************************************
+	 * Replays the moves of a loaded journal into a new game. Each tile is
+	 * dealt as it was recorded rather than drawn at random.
+	 * 
+	 * @param load
+	 *            The loaded journal.
+	 * @param moveIndex
+	 *            The number of moves to replay, or -1 to replay all of
+	 *            them.
+	 * @return the number of moves replayed.
+	 * @throws ParseException
+	 *             If the journal is not valid.
+	 **************************************************************************/
+	private int replayGame(MetroJournal load, int moveIndex)
+			throws ParseException {
+		int count = load.getMoves();
+		int slot;
+		if (moveIndex >= 0 && moveIndex < count)
+			count = moveIndex;
+		newGame(load.getPlayers(), load.getSize()[0],
+				load.getSize()[1], load.getScoreType(), load.getSeed());
+
+		// The dealt tiles go back in the stack in the order they were
+		// drawn, then are dealt again as recorded.
+		for (int k = numOfPlayers; k >= 0; k--) {
+			tileStack[--stackTop] = getPlayerTile(k).ordinal();
+			currentPlayerTiles[k] = null;
+		}
+		for (int k = 0; k <= numOfPlayers; k++)
+			if (!dealTile(k, load.getPlayerTile(k)))
+				throw new ParseException("Invalid journal", 0);
+		for (int i = 0; i < count; i++) {
+			if (load.isUndo(i)) {
+				if (!undoTile())
+					throw new ParseException("Invalid undo", i);
+				continue;
+			}
+			if (load.isDrawPile(i) && !drawPileActive)
+				activateDrawPile();
+			slot = currentPlayerNum;
+			try {
+				setTile(load.getCell(i));
+			} catch (MiddleOfNowhereException e) {
+				throw new ParseException("Invalid move", i);
+			} catch (CutoffException e) {
+				throw new ParseException("Invalid move", i);
+			}
+			if (load.getDrawn(i) != null
+					&& !dealTile(slot, load.getDrawn(i)))
+				throw new ParseException("Invalid draw", i);
+		}
+		return count;
+	}
+
+	/**************************************************************************
+	 * Gives a player a tile of the specified type from the stack in
+	 * place of the tile they hold, if any, which goes back into the
+	 * stack. A player without a tile draws it from the top of the
+	 * stack.
+	 * 
+	 * @param playerNum
+	 *            The player number, or the number of players for the
+	 *            draw pile.
+	 * @param type
+	 *            The {@code Type} of the tile to deal.
+	 * @return {@code true} if the player holds a tile of that type,
+	 *         {@code false} if none was left in the stack.
+	 **************************************************************************/
+	private boolean dealTile(int playerNum, Type type) {
+		TileCell held = currentPlayerTiles[playerNum];
+		if (held != null && held.getType() == type)
+			return true;
+		for (int i = stackTop; i < tileStack.length; i++)
+			if (tileStack[i] == type.ordinal()) {
+				if (held != null)
+					tileStack[i] = held.getType().ordinal();
+				else {
+					tileStack[i] = tileStack[stackTop];
+					tileStack[stackTop++] = type.ordinal();
 				}
+				currentPlayerTiles[playerNum] = new TileCell(type);
+				return true;
 			}
-		for (int k = 0; k < currentPlayerTiles.length; k++)
-			currentPlayerTiles[k] = new TileCell(current[k]);
+		return false;
 	}
 
 	/**************************************************************************
@@ -1076,15 +1917,62 @@ public class MetroEngine implements ScoreKeeper {
 	 **************************************************************************/
 	protected int[][] getGameboard() {
 		int[][] game = new int[rows][cols];
-		for (int i = 0; i < gameBoard.length; i++)
-			for (int j = 0; j < gameBoard[i].length; j++)
-				if (gameBoard[i][j] != null)
-					game[i][j] = gameBoard[i][j].getType().ordinal();
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (gameBoard[i * cols + j] != null)
+					game[i][j] = gameBoard[i * cols + j].getType()
+							.ordinal();
 				else
 					game[i][j] = -1;
 		return game;
 	}
 
+	/**************************************************************************
+	 * Takes a snapshot of the whole game.
+	 * 
+	 * @param version
+	 *            The version of the snapshot.
+	 * @return the snapshot of the game.
+	 **************************************************************************/
+	protected MetroSnapshot getSnapshot(long version) {
+		int[] tiles = new int[rows * cols];
+		int[] owners = new int[tiles.length];
+		int[] ids = new int[tiles.length];
+		for (int cell = 0; cell < tiles.length; cell++)
+			if (gameBoard[cell] != null) {
+				tiles[cell] = gameBoard[cell].getType().ordinal();
+				owners[cell] = gameBoard[cell].getOwner();
+				ids[cell] = gameBoard[cell].getID();
+			} else {
+				tiles[cell] = -1;
+				owners[cell] = -1;
+				ids[cell] = -1;
+			}
+		return new MetroSnapshot(version, rows, cols, tiles, owners, ids,
+				getScores().clone(), currentPlayerNum, placedTiles);
+	}
+
+	/**************************************************************************
+	 * Takes a snapshot of the game after a move, copying the unchanged
+	 * cells from the snapshot before it.
+	 * 
+	 * @param previous
+	 *            The snapshot before the move.
+	 * @param cell
+	 *            The packed cell the move changed, or {@code -1} if no
+	 *            cell changed.
+	 * @return the snapshot of the game.
+	 **************************************************************************/
+	protected MetroSnapshot getSnapshot(MetroSnapshot previous, int cell) {
+		TileCell tile = cell == -1 ? null : gameBoard[cell];
+		if (tile == null)
+			return new MetroSnapshot(previous, cell, -1, -1, -1,
+					getScores().clone(), currentPlayerNum, placedTiles);
+		return new MetroSnapshot(previous, cell, tile.getType().ordinal(),
+				tile.getOwner(), tile.getID(), getScores().clone(),
+				currentPlayerNum, placedTiles);
+	}
+
 	/**************************************************************************
 	 * Updates the scores based on the selected scoring method.
 	 * 
@@ -1125,4 +2013,71 @@ public class MetroEngine implements ScoreKeeper {
 	protected int getScoreType() {
 		return scoreType;
 	}
+
+	/**************************************************************************
+	 * A record of the state changed by a single tile placement so that
+	 * the placement can be undone.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private static class MoveRecord {
+
+		/** The packed cell of the placed tile. */
+		private int cell;
+
+		/** The player number whose tile was placed. */
+		private int slot;
+
+		/** The tile that was placed. */
+		private TileCell placed;
+
+		/** The id number before the tile was placed. */
+		private int id;
+
+		/** The draw pile status before the tile was placed. */
+		private boolean drawPileActive;
+
+		/** The player who activated the draw pile. */
+		private int drawPileActivePlayer;
+
+		/** The exception override status before the tile was placed. */
+		private boolean override;
+
+		/** Whether the cell was empty before the tile was placed. */
+		private boolean opened;
+
+		/** Whether a replacement tile was drawn from the stack. */
+		private boolean drew;
+
+		/** The player scores before the tile was placed. */
+		private int[] scores;
+
+		/** The stations that were updated by the tile. */
+		private StationCell[] stations;
+
+		/** The number of cells in each updated station beforehand. */
+		private int[] sizes;
+
+		/** The number of stations that were updated by the tile. */
+		private int walked;
+
+		/** The tile types that could be placed on the cell, as bits. */
+		private int edgeMask;
+
+		/** The adjacent move bits of the cell and its neighbors. */
+		private int adjacentMask;
+
+		/**************************************************************************
+		 * Constructor for the {@code MoveRecord} class.
+		 * 
+		 * @param numOfPlayers
+		 *            The number of players in the game.
+		 **************************************************************************/
+		private MoveRecord(int numOfPlayers) {
+			scores = new int[numOfPlayers];
+			stations = new StationCell[LINKS];
+			sizes = new int[LINKS];
+		}
+	}
 }
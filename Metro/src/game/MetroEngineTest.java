@@ -0,0 +1,1055 @@
+package game;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import utility.*;
+
+/**************************************************************************
+ * Tests the {@code MetroEngine} by playing random games and comparing
+ * its fast paths against the slower checks they replace.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroEngineTest {
+
+	/** The board sizes of the random games. */
+	private static final int[][] SIZES = { { 2, 2 }, { 3, 3 }, { 4, 4 },
+			{ 5, 5 }, { 6, 6 }, { 8, 8 }, { 3, 7 }, { 8, 5 } };
+
+	/** The board sizes of the large games. */
+	private static final int[][] LARGE = { { 12, 12 }, { 8, 20 },
+			{ 24, 24 }, { 33, 17 }, { 64, 64 } };
+
+	/** The numbers of players in the large games. */
+	private static final int[] LARGE_PLAYERS = { 1, 2, 4, 6, 7 };
+
+	/** The number of random games played for each board size. */
+	private static final int GAMES = 20;
+
+	/** The saved games in the Games folder. */
+	private static final String[] SAVED_GAMES = { "BigAlmostDone",
+			"bench12x12early", "bench12x12late", "bench12x12middle",
+			"bench6x6early", "bench6x6late", "bench6x6middle",
+			"bench8x8early", "bench8x8late", "bench8x8middle", "temp",
+			"temp2", "test", "time2" };
+
+	/**
+	 * The simple, crossover and time placement scores of each saved game
+	 * as it is loaded, indexed by scoring method. They were recorded with
+	 * the engine that scanned every station for new completions and
+	 * compared every cell of a route against the cells before it.
+	 */
+	private static final int[][][] SAVED_SCORES = {
+			{ { 43, 115 }, { 7, 4 }, { 77, 100 }, { 42, 13 }, { 0, 5 },
+					{ 21, 23 }, { 2, 7 }, { 0, 0 }, { 60, 38 }, { 0, 0 },
+					{ 0, 0 }, { 4, 8, 2, 29, 2, 3 }, { 0, 0, 2, 0, 0 },
+					{ 1, 10 } },
+			{ { 50, 147 }, { 8, 5 }, { 96, 126 }, { 57, 17 }, { 0, 7 },
+					{ 23, 27 }, { 2, 9 }, { 0, 0 }, { 76, 49 }, { 0, 0 },
+					{ 0, 0 }, { 4, 9, 2, 39, 2, 3 }, { 0, 0, 2, 0, 0 },
+					{ 1, 10 } },
+			{ { 1422, 3450 }, { 154, 38 }, { 3145, 4777 }, { 1127, 264 },
+					{ 0, 10 }, { 366, 364 }, { 19, 36 }, { 0, 0 },
+					{ 1733, 1408 }, { 0, 0 }, { 0, 0 },
+					{ 28, 229, 45, 576, 87, 42 }, { 0, 0, 3, 0, 0 },
+					{ 1, 1 } } };
+
+	/** The number of failed tests. */
+	private static int numFailures = 0;
+
+	/**************************************************************************
+	 * Makes sure the set of legal moves matches the cells where {@code
+	 * setTile} does not throw an exception, and that walking the legal
+	 * moves one at a time finds the same cells.
+	 **************************************************************************/
+	private static void testLegalMoves() {
+		Random random = new Random(1);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		BitSet legal;
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES; g++) {
+				game = new MetroEngine();
+				game.newGame(2 + random.nextInt(5), SIZES[s][0],
+						SIZES[s][1], random.nextInt(3), random.nextLong());
+				while (!game.isComplete()) {
+					if (random.nextInt(10) == 0)
+						game.activateDrawPile();
+					legal = game.getLegalMoves();
+					if (!legal.equals(getAcceptedMoves(game))
+							|| !legal.equals(getWalkedMoves(game))) {
+						passed = false;
+						numFailures++;
+						break;
+					}
+					checked++;
+					if (legal.isEmpty())
+						break;
+					placeRandom(game, legal, random);
+				}
+			}
+		System.out.println("Legal moves (" + checked + " positions)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure undoing a tile placement restores the game exactly,
+	 * both one move at a time and all the way back to the start, and
+	 * that the provisional scores kept through the moves match a copy
+	 * that counts them again.
+	 **************************************************************************/
+	private static void testUndo() {
+		Random random = new Random(2);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		BitSet legal;
+		String before;
+		String start;
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES; g++) {
+				game = new MetroEngine();
+				game.newGame(2 + random.nextInt(5), SIZES[s][0],
+						SIZES[s][1], random.nextInt(3), random.nextLong());
+				start = getState(game);
+				while (!game.isComplete()) {
+					if (random.nextInt(10) == 0)
+						game.activateDrawPile();
+					legal = game.getLegalMoves();
+					if (legal.isEmpty())
+						break;
+					before = getState(game);
+					placeRandom(game, legal, random);
+					if (!Arrays.equals(game.getProvisionalScores(),
+							new MetroEngine(game).getProvisionalScores())) {
+						passed = false;
+						numFailures++;
+					}
+					game.undoTile();
+					if (!before.equals(getState(game))) {
+						passed = false;
+						numFailures++;
+					}
+					checked++;
+					placeRandom(game, legal, random);
+				}
+				while (game.undoTile())
+					checked++;
+
+				// The first move may have been made from the draw pile.
+				if (game.getCurrentPlayerNum() != 0)
+					game.deactivateDrawPile();
+				if (!start.equals(getState(game))) {
+					passed = false;
+					numFailures++;
+				}
+			}
+		System.out.println("Undo (" + checked + " moves)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure large and non-square boards can be played to the end,
+	 * with the terminals shared out evenly and enough tiles to fill
+	 * every cell while every hand and the draw pile still hold a tile,
+	 * so that no tile is ever placed on two cells.
+	 **************************************************************************/
+	private static void testLargeBoards() {
+		Random random = new Random(6);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		BitSet legal;
+		int[] owned;
+		int players, cells, tiles;
+		for (int s = 0; s < LARGE.length; s++)
+			for (int p = 0; p < LARGE_PLAYERS.length; p++) {
+				players = LARGE_PLAYERS[p];
+				game = new MetroEngine();
+				game.newGame(players, LARGE[s][0], LARGE[s][1],
+						random.nextInt(3), random.nextLong());
+				cells = LARGE[s][0] * LARGE[s][1];
+
+				// Every player and the draw pile hold a tile.
+				tiles = players + 1;
+				for (int count : game.getStackCounts())
+					tiles += count;
+				if (tiles < cells + players + 1) {
+					passed = false;
+					numFailures++;
+				}
+				owned = new int[players];
+				for (int i = 0; i < 2 * (LARGE[s][0] + LARGE[s][1]); i++)
+					owned[game.getStationOwner(i)]++;
+				Arrays.sort(owned);
+				if (owned[players - 1] - owned[0] > 1) {
+					passed = false;
+					numFailures++;
+				}
+				while (!game.isComplete()) {
+					legal = game.getLegalMoves();
+					if (legal.isEmpty() || isStackEmpty(game)) {
+						passed = false;
+						numFailures++;
+						break;
+					}
+					placeRandom(game, legal, random);
+					checked++;
+				}
+				game.getScores();
+				if (!hasDistinctTiles(game, cells)) {
+					passed = false;
+					numFailures++;
+				}
+			}
+		System.out.println("Large boards (" + checked + " moves)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Tests to see if every filled cell of a game holds its own tile
+	 * with its own id.
+	 * 
+	 * @param game
+	 *            The game being tested.
+	 * @param cells
+	 *            The number of cells on the game board.
+	 * @return {@code true} if no tile or id is on two cells, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	private static boolean hasDistinctTiles(MetroEngine game, int cells) {
+		Set<TileCell> tiles = Collections
+				.newSetFromMap(new IdentityHashMap<TileCell, Boolean>());
+		Set<Integer> ids = new HashSet<Integer>();
+		TileCell tile;
+		for (int cell = 0; cell < cells; cell++) {
+			tile = game.getTileAt(cell);
+			if (tile != null
+					&& (!tiles.add(tile) || !ids.add(tile.getID())))
+				return false;
+		}
+		return true;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a game has run out of tiles to draw.
+	 * 
+	 * @param game
+	 *            The game being tested.
+	 * @return {@code true} if the stack is empty, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	private static boolean isStackEmpty(MetroEngine game) {
+		int[] counts = game.getStackCounts();
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] != 0)
+				return false;
+		return true;
+	}
+
+	/**************************************************************************
+	 * Makes sure games started with the same seed deal the same tiles
+	 * when the same moves are made.
+	 **************************************************************************/
+	private static void testSeed() {
+		Random random = new Random(5);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine first;
+		MetroEngine second;
+		long seed;
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES; g++) {
+				seed = random.nextLong();
+				first = new MetroEngine();
+				second = new MetroEngine();
+				first.newGame(2, SIZES[s][0], SIZES[s][1], 0, seed);
+				second.newGame(2, SIZES[s][0], SIZES[s][1], 0, seed);
+				while (!first.isComplete()
+						&& !first.getLegalMoves().isEmpty()) {
+					if (first.getCurrentActiveTile() != second
+							.getCurrentActiveTile()
+							|| !first.getLegalMoves().equals(
+									second.getLegalMoves())) {
+						passed = false;
+						numFailures++;
+						break;
+					}
+					try {
+						first.setTile(first.getLegalMoves().nextSetBit(0));
+						second.setTile(second.getLegalMoves().nextSetBit(0));
+					} catch (Exception e) {
+						passed = false;
+						numFailures++;
+						break;
+					}
+					checked++;
+				}
+			}
+		System.out.println("Seeded games (" + checked + " moves)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure a saved game loads back to the same state, in both the
+	 * binary format and the older text format.
+	 **************************************************************************/
+	private static void testSaveLoad() {
+		Random random = new Random(3);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		MetroEngine loaded;
+		BitSet legal;
+		File binary = null;
+		File text = null;
+		try {
+			binary = File.createTempFile("metro", ".game");
+			text = File.createTempFile("metro", ".game");
+			for (int s = 0; s < SIZES.length; s++)
+				for (int g = 0; g < GAMES; g++) {
+					game = new MetroEngine();
+					game.newGame(2 + random.nextInt(5), SIZES[s][0],
+							SIZES[s][1], random.nextInt(3), random.nextLong());
+					for (int k = random.nextInt(SIZES[s][0] * SIZES[s][1]); k > 0
+							&& !game.isComplete(); k--) {
+						legal = game.getLegalMoves();
+						if (legal.isEmpty())
+							break;
+						placeRandom(game, legal, random);
+					}
+					game.saveGame(binary.getPath());
+					loaded = new MetroEngine();
+					loaded.loadGame(binary.getPath());
+					if (!getState(game).equals(getState(loaded))) {
+						passed = false;
+						numFailures++;
+					}
+					writeText(binary, text);
+					loaded = new MetroEngine();
+					loaded.loadGame(text.getPath());
+					if (!getState(game).equals(getState(loaded))) {
+						passed = false;
+						numFailures++;
+					}
+					checked++;
+				}
+		} catch (Exception e) {
+			System.out.println("Unexpected exception: " + e);
+			passed = false;
+			numFailures++;
+		} finally {
+			if (binary != null)
+				binary.delete();
+			if (text != null)
+				text.delete();
+		}
+		System.out.println("Save and load (" + checked + " games)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure each saved game in the Games folder scores the same as
+	 * it did before the scores were kept from a queue of completed
+	 * stations and crossovers were found with a bitset, with every
+	 * scoring method. A copy made before the scores are read must queue
+	 * the same stations, and reading the scores again must not count
+	 * them twice. The folder is set by the {@code metro.games} system
+	 * property and is {@code Games} by default.
+	 **************************************************************************/
+	private static void testSavedGames() {
+		File folder = new File(System.getProperty("metro.games", "Games"));
+		boolean passed = true;
+		MetroEngine game;
+		MetroEngine copy;
+		for (int type = 0; type < SAVED_SCORES.length; type++)
+			for (int i = 0; i < SAVED_GAMES.length; i++) {
+				try {
+					game = new MetroEngine();
+					game.loadGame(new File(folder, SAVED_GAMES[i] + ".game")
+							.getPath());
+					copy = new MetroEngine(game);
+					game.updateScores(type);
+					copy.updateScores(type);
+					if (!Arrays.equals(SAVED_SCORES[type][i], game
+							.getScores())
+							|| !Arrays.equals(SAVED_SCORES[type][i], copy
+									.getScores())) {
+						System.out.println(SAVED_GAMES[i] + " scores "
+								+ Arrays.toString(game.getScores())
+								+ " with scoring " + type);
+						passed = false;
+						numFailures++;
+					}
+				} catch (Exception e) {
+					System.out.println(SAVED_GAMES[i] + ": " + e);
+					passed = false;
+					numFailures++;
+				}
+			}
+		System.out.println("Saved games (" + SAVED_GAMES.length
+				+ " games)\t" + (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure a journal replays to the same state as the game it was
+	 * written from, both at its end and part way through, and that a
+	 * resumed journal carries on correctly.
+	 **************************************************************************/
+	private static void testJournal() {
+		Random random = new Random(4);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		MetroEngine replayed;
+		MetroEngine middle;
+		int records = 0;
+		int stop;
+		File file = null;
+		try {
+			file = File.createTempFile("metro", ".journal");
+			for (int s = 0; s < SIZES.length; s++)
+				for (int g = 0; g < GAMES; g++) {
+					game = new MetroEngine();
+					game.newGame(2 + random.nextInt(5), SIZES[s][0],
+							SIZES[s][1], random.nextInt(3), random.nextLong());
+					game.startJournal(file.getPath());
+					stop = random.nextInt(SIZES[s][0] * SIZES[s][1]);
+					middle = null;
+					records = playJournaled(game, random, stop);
+					if (records >= stop)
+						middle = new MetroEngine(game);
+					records += playJournaled(game, random, -1);
+					if (!game.stopJournal()
+							|| !replays(file, -1, records, game)
+							|| middle != null
+							&& !replays(file, stop, stop, middle)) {
+						passed = false;
+						numFailures++;
+					}
+
+					// Resuming continues the game where the journal ends.
+					replayed = new MetroEngine();
+					replayed.resumeJournal(file.getPath());
+					records += replayed.undoTile() ? 1 : 0;
+					records += playJournaled(replayed, random, -1);
+					if (!replayed.stopJournal()
+							|| !replays(file, -1, records, replayed)) {
+						passed = false;
+						numFailures++;
+					}
+					checked += records;
+				}
+
+			// A partly written last record is ignored.
+			RandomAccessFile partial = new RandomAccessFile(file, "rw");
+			partial.setLength(partial.length() - 1);
+			partial.close();
+			replayed = new MetroEngine();
+			if (replayed.replayGame(file.getPath(), -1) != records - 1) {
+				passed = false;
+				numFailures++;
+			}
+		} catch (Exception e) {
+			System.out.println("Unexpected exception: " + e);
+			passed = false;
+			numFailures++;
+		} finally {
+			if (file != null)
+				file.delete();
+		}
+		System.out.println("Journal (" + checked + " records)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Plays random moves, sometimes from the draw pile and sometimes
+	 * undoing the last move.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param random
+	 *            The random number generator.
+	 * @param limit
+	 *            The number of moves and undos to make, or -1 to play
+	 *            until the game ends.
+	 * @return the number of moves and undos made.
+	 **************************************************************************/
+	private static int playJournaled(MetroEngine game, Random random,
+			int limit) {
+		int made = 0;
+		BitSet legal;
+		while (made != limit && !game.isComplete()) {
+			if (random.nextInt(8) == 0 && game.undoTile()) {
+				made++;
+				continue;
+			}
+			if (random.nextInt(10) == 0
+					&& game.getCurrentPlayerNum() != game.getNumOfPlayers())
+				game.activateDrawPile();
+			legal = game.getLegalMoves();
+			if (legal.isEmpty())
+				break;
+			placeRandom(game, legal, random);
+			made++;
+		}
+		return made;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a journal replays to the state of a game.
+	 * 
+	 * @param file
+	 *            The journal file.
+	 * @param moveIndex
+	 *            The number of moves to replay, or -1 for all of them.
+	 * @param expected
+	 *            The number of moves that should be replayed.
+	 * @param game
+	 *            The game the replay should match.
+	 * @return {@code true} if the replay matches, {@code false}
+	 *         otherwise.
+	 * @throws Exception
+	 *             If the journal cannot be replayed.
+	 **************************************************************************/
+	private static boolean replays(File file, int moveIndex, int expected,
+			MetroEngine game) throws Exception {
+		MetroEngine replayed = new MetroEngine();
+		if (replayed.replayGame(file.getPath(), moveIndex) != expected)
+			return false;
+
+		// Activating the draw pile is only journaled with a move.
+		if (game.getCurrentPlayerNum() != replayed.getCurrentPlayerNum())
+			replayed.activateDrawPile();
+		return getState(game).equals(getState(replayed));
+	}
+
+	/**************************************************************************
+	 * Rewrites a game saved in the binary format in the older text
+	 * format.
+	 * 
+	 * @param binary
+	 *            The file of the binary game.
+	 * @param text
+	 *            The file to write the text game to.
+	 * @throws Exception
+	 *             If either file cannot be used.
+	 **************************************************************************/
+	private static void writeText(File binary, File text) throws Exception {
+		MetroLoadSave load = new MetroLoadSave();
+		load.loadGame(binary.getPath());
+		int cols = load.getSize()[1];
+		TileCell[] board = load.getGameboard();
+		TileCell[] tiles = load.getPlayerTiles();
+		PrintWriter out = new PrintWriter(new FileWriter(text));
+		out.println(load.getSize()[0] + " " + cols + " "
+				+ load.getPlayers() + " " + load.getTurn() + " "
+				+ load.getScoreType() + " " + load.getID());
+		for (int i = 0; i < board.length; i++) {
+			if (board[i] == null)
+				out.print("0 ");
+			else
+				out.print(board[i].getType().name() + board[i].getID()
+						+ board[i].getOwner() + " ");
+			if (i % cols == cols - 1)
+				out.println();
+		}
+		for (int k = 0; k < tiles.length; k++)
+			out.print(tiles[k].getType().name() + " ");
+		out.close();
+	}
+
+	/**************************************************************************
+	 * Makes sure the suggested positions are exactly the legal moves,
+	 * sorted best first, and that ranking them leaves the game alone.
+	 **************************************************************************/
+	private static void testSuggestMoves() {
+		Random random = new Random(7);
+		int checked = 0;
+		boolean passed = true;
+		MetroEngine game;
+		List<MoveSuggestion> suggestions;
+		MoveSuggestion suggestion;
+		double last;
+		BitSet legal;
+		BitSet suggested;
+		Position position;
+		String before;
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES / 4; g++) {
+				game = new MetroEngine();
+				game.newGame(2 + random.nextInt(5), SIZES[s][0],
+						SIZES[s][1], random.nextInt(3), random.nextLong());
+				while (!game.isComplete() && passed) {
+					legal = game.getLegalMoves();
+					if (legal.isEmpty())
+						break;
+					before = getState(game);
+					suggestions = new MetroAdvisor(game)
+							.suggestMoves(random.nextInt(3));
+					suggested = new BitSet();
+					last = Double.POSITIVE_INFINITY;
+					for (int i = 0; i < suggestions.size(); i++) {
+						suggestion = suggestions.get(i);
+						position = suggestion.getPosition();
+						suggested.set(position.getX() * game.getCols()
+								+ position.getY());
+						if (suggestion.getDepth() < 1
+								|| suggestion.getValue() > last)
+							passed = false;
+						last = suggestion.getValue();
+					}
+					if (suggestions.size() != legal.cardinality()
+							|| !suggested.equals(legal)
+							|| !before.equals(getState(game)))
+						passed = false;
+					checked++;
+					placeRandom(game, legal, random);
+				}
+			}
+		if (!passed)
+			numFailures++;
+		System.out.println("Suggest moves (" + checked + " positions)	"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure a listener that only follows the events of a game ends
+	 * up with the same board, scores and turn as the game, and that the
+	 * points of the completed stations add up to the scores.
+	 **************************************************************************/
+	private static void testEvents() {
+		Random random = new Random(8);
+		int checked = 0;
+		boolean passed = true;
+		boolean undone;
+		MetroControl control;
+		EventRecorder recorder;
+		BitSet legal;
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES; g++) {
+				control = new MetroControl();
+				control.newGame(2 + random.nextInt(5), SIZES[s][0],
+						SIZES[s][1], random.nextInt(3), random.nextLong());
+				recorder = new EventRecorder(control);
+				control.addMetroListener(recorder);
+				undone = g % 2 == 1;
+				while (!control.isComplete() && passed) {
+
+					// An undone move may have been made from the draw pile.
+					if (random.nextInt(10) == 0
+							&& control.getCurrentPlayerNum() != control
+									.getNumOfPlayers())
+						control.activateDrawPile();
+					legal = control.getLegalMoves();
+					if (legal.isEmpty())
+						break;
+					try {
+						control.setTile(getPosition(legal, random, control
+								.getCols()));
+					} catch (Exception e) {
+						passed = false;
+					}
+					if (undone && random.nextInt(4) == 0)
+						control.undoTile();
+					if (!recorder.matches(control, !undone))
+						passed = false;
+					checked++;
+				}
+				if (recorder.over != control.isComplete())
+					passed = false;
+			}
+		if (!passed)
+			numFailures++;
+		System.out.println("Events (" + checked + " moves)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure the snapshot published after each move matches a
+	 * snapshot of the whole game, that older snapshots do not change,
+	 * that copies share the snapshot until they are moved on, and that a
+	 * thread reading the snapshots during the games only ever sees whole
+	 * moves.
+	 **************************************************************************/
+	private static void testSnapshots() {
+		final AtomicReference<MetroControl> playing;
+		final AtomicBoolean torn = new AtomicBoolean();
+		final AtomicBoolean done = new AtomicBoolean();
+		Random random = new Random(9);
+		int checked = 0;
+		boolean passed = true;
+		MetroControl control, copy;
+		MetroSnapshot before;
+		String description;
+		BitSet legal;
+		Thread reader;
+		playing = new AtomicReference<MetroControl>();
+		reader = new Thread() {
+
+			/****************************************************************
+			 * Reads the latest snapshot until the games are over.
+			 ****************************************************************/
+			public void run() {
+				MetroSnapshot snapshot;
+				int placed;
+				while (!done.get()) {
+					Thread.yield();
+					if (playing.get() == null)
+						continue;
+					snapshot = playing.get().getSnapshot();
+					placed = 0;
+					for (int cell = 0; cell < snapshot.getRows()
+							* snapshot.getCols(); cell++)
+						if (snapshot.getTile(cell) != -1)
+							placed++;
+					if (placed != snapshot.getPlacedTiles())
+						torn.set(true);
+				}
+			}
+		};
+		reader.start();
+		for (int s = 0; s < SIZES.length; s++)
+			for (int g = 0; g < GAMES; g++) {
+				control = new MetroControl();
+				control.newGame(2 + random.nextInt(5), SIZES[s][0],
+						SIZES[s][1], random.nextInt(3), random.nextLong());
+				playing.set(control);
+				while (!control.isComplete() && passed) {
+					before = control.getSnapshot();
+					description = describe(before);
+					if (random.nextInt(10) == 0
+							&& control.getCurrentPlayerNum() != control
+									.getNumOfPlayers())
+						control.activateDrawPile();
+					legal = control.getLegalMoves();
+					if (legal.isEmpty())
+						break;
+					try {
+						control.setTile(getPosition(legal, random, control
+								.getCols()));
+					} catch (Exception e) {
+						passed = false;
+					}
+					if (random.nextInt(4) == 0)
+						control.undoTile();
+					copy = new MetroControl(control);
+					if (copy.getSnapshot() != control.getSnapshot()
+							|| !description.equals(describe(before))
+							|| control.getSnapshot().getVersion() <= before
+									.getVersion()
+							|| control.getSnapshot().isComplete() != control
+									.isComplete())
+						passed = false;
+					description = describe(control.getSnapshot());
+					legal = copy.getLegalMoves();
+					if (!legal.isEmpty()) {
+						try {
+							copy.setTile(getPosition(legal, random, copy
+									.getCols()));
+						} catch (Exception e) {
+							passed = false;
+						}
+						if (!Arrays.deepEquals(copy.getGameBoard(), copy
+								.getSnapshot().getGameBoard())
+								|| copy.getSnapshot() == control
+										.getSnapshot()
+								|| !description.equals(describe(control
+										.getSnapshot())))
+							passed = false;
+					}
+					checked++;
+				}
+			}
+		done.set(true);
+		try {
+			reader.join();
+		} catch (InterruptedException e) {
+			passed = false;
+		}
+		if (torn.get())
+			passed = false;
+		if (!passed)
+			numFailures++;
+		System.out.println("Snapshots (" + checked + " moves)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Gets a description of a snapshot, leaving out its version.
+	 * 
+	 * @param snapshot
+	 *            The snapshot being described.
+	 * @return the description of the snapshot.
+	 **************************************************************************/
+	private static String describe(MetroSnapshot snapshot) {
+		StringBuilder state = new StringBuilder();
+		state.append(Arrays.deepToString(snapshot.getGameBoard()));
+		int cells = snapshot.getRows() * snapshot.getCols();
+		for (int cell = 0; cell < cells; cell++)
+			state.append(snapshot.getOwner(cell)).append(',').append(
+					snapshot.getId(cell)).append(';');
+		for (int i = 0; i < snapshot.getNumOfPlayers(); i++)
+			state.append(snapshot.getScore(i)).append(' ');
+		state.append(snapshot.getCurrentPlayerNum());
+		state.append(snapshot.getPlacedTiles());
+		return state.toString();
+	}
+
+	/**************************************************************************
+	 * Gets a random legal position.
+	 * 
+	 * @param legal
+	 *            The set of legal packed cells.
+	 * @param random
+	 *            The random number generator.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @return the position of the chosen cell.
+	 **************************************************************************/
+	private static Position getPosition(BitSet legal, Random random,
+			int cols) {
+		int cell = legal.nextSetBit(0);
+		for (int k = random.nextInt(legal.cardinality()); k > 0; k--)
+			cell = legal.nextSetBit(cell + 1);
+		return new Position(cell / cols, cell % cols);
+	}
+
+	/**************************************************************************
+	 * A listener that rebuilds the state of a game from its events.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private static class EventRecorder extends MetroAdapter {
+
+		/** The tile type on each cell, or -1 for an empty cell. */
+		private int[][] board;
+
+		/** The last score of each player. */
+		private int[] scores;
+
+		/** The points of the completed stations of each player. */
+		private int[] points;
+
+		/** The player whose turn it is. */
+		private int player;
+
+		/** Whether the game is over. */
+		private boolean over;
+
+		/**************************************************************************
+		 * Constructor for the {@code EventRecorder} class.
+		 * 
+		 * @param control
+		 *            The control class of a game that has just started.
+		 **************************************************************************/
+		private EventRecorder(MetroControl control) {
+			board = control.getGameBoard();
+			scores = new int[control.getNumOfPlayers()];
+			points = new int[scores.length];
+			player = control.getCurrentPlayerNum();
+		}
+
+		/**************************************************************************
+		 * Tests to see if the recorded state matches the game.
+		 * 
+		 * @param control
+		 *            The control class of the game.
+		 * @param stations
+		 *            Whether the station points should add up to the
+		 *            scores, which is only true without undoing.
+		 * @return {@code true} if the state matches, {@code false}
+		 *         otherwise.
+		 **************************************************************************/
+		private boolean matches(MetroControl control, boolean stations) {
+			if (!Arrays.deepEquals(board, control.getGameBoard())
+					|| player != control.getCurrentPlayerNum())
+				return false;
+			for (int i = 0; i < scores.length; i++)
+				if (scores[i] != control.getScore(i) || stations
+						&& points[i] != scores[i])
+					return false;
+			return true;
+		}
+
+		public void tilePlaced(MetroEvent e) {
+			board[e.getPosition().getX()][e.getPosition().getY()] = e
+					.getTile();
+		}
+
+		public void tileRemoved(MetroEvent e) {
+			board[e.getPosition().getX()][e.getPosition().getY()] = -1;
+		}
+
+		public void stationCompleted(MetroEvent e) {
+			if (e.getPlayerNum() < points.length)
+				points[e.getPlayerNum()] += e.getScore();
+		}
+
+		public void scoreChanged(MetroEvent e) {
+			scores[e.getPlayerNum()] = e.getScore();
+		}
+
+		public void turnAdvanced(MetroEvent e) {
+			player = e.getPlayerNum();
+		}
+
+		public void gameOver(MetroEvent e) {
+			over = true;
+		}
+	}
+
+	/**************************************************************************
+	 * Gets a description of the state of a game. The stations are
+	 * compared by finishing the game with a fixed sequence of tiles,
+	 * recording the scores along the way, and then undoing those moves.
+	 * 
+	 * @param game
+	 *            The game being described.
+	 * @return the description of the game.
+	 **************************************************************************/
+	private static String getState(MetroEngine game) {
+		StringBuilder state = new StringBuilder();
+		TileCell[] held = new TileCell[game.getRows() * game.getCols()];
+		int[] players = new int[held.length];
+		int[][] board = game.getGameboard();
+		boolean full = true;
+		BitSet legal;
+		int cell;
+		int k = 0;
+
+		// The counted completeness must match a scan of the board.
+		for (int i = 0; i < board.length; i++)
+			for (int j = 0; j < board[i].length; j++)
+				if (board[i][j] == -1)
+					full = false;
+		if (full != game.isComplete())
+			state.append("miscounted");
+		state.append(Arrays.deepToString(board));
+		state.append(Arrays.toString(game.getScores()));
+		state.append(Arrays.toString(game.getProvisionalScores()));
+		state.append(game.getLegalMoves());
+		state.append(game.getCurrentPlayerNum());
+		state.append(Arrays.toString(game.getStackCounts()));
+		for (int i = 0; i <= game.getNumOfPlayers(); i++)
+			state.append(game.getCurrentTile(i));
+		while (!game.isComplete()) {
+			players[k] = game.getCurrentPlayerNum();
+			held[k] = game.setCurrentTile(players[k],
+					TileCell.types[k % TileCell.types.length]);
+			legal = game.getLegalMoves();
+			cell = legal.nextSetBit(0);
+			try {
+				if (cell == -1)
+					throw new IllegalStateException();
+				game.setTile(cell / game.getCols(), cell % game.getCols());
+			} catch (Exception e) {
+				game.restoreCurrentTile(players[k], held[k]);
+				state.append("stuck");
+				break;
+			}
+			state.append(Arrays.toString(game.getScores()));
+			k++;
+		}
+		for (k--; k >= 0; k--) {
+			game.undoTile();
+			game.restoreCurrentTile(players[k], held[k]);
+		}
+		return state.toString();
+	}
+
+	/**************************************************************************
+	 * Gets the legal moves by walking them with {@code nextLegalMove}.
+	 * 
+	 * @param game
+	 *            The game being tested.
+	 * @return the set of legal packed cells.
+	 **************************************************************************/
+	private static BitSet getWalkedMoves(MetroEngine game) {
+		BitSet walked = new BitSet(game.getRows() * game.getCols());
+		for (int cell = game.nextLegalMove(0); cell >= 0; cell = game
+				.nextLegalMove(cell + 1))
+			walked.set(cell);
+		return walked;
+	}
+
+	/**************************************************************************
+	 * Gets the empty cells where {@code setTile} accepts the current
+	 * tile by trying each one on a copy of the game.
+	 * 
+	 * @param game
+	 *            The game being tested.
+	 * @return the set of accepted packed cells.
+	 **************************************************************************/
+	private static BitSet getAcceptedMoves(MetroEngine game) {
+		BitSet accepted = new BitSet();
+		int cols = game.getCols();
+		int[][] board = game.getGameboard();
+		for (int i = 0; i < board.length; i++)
+			for (int j = 0; j < board[i].length; j++)
+				if (board[i][j] == -1)
+					try {
+						new MetroEngine(game).setTile(i, j);
+						accepted.set(i * cols + j);
+					} catch (Exception e) {
+
+						// The move is not legal.
+					}
+		return accepted;
+	}
+
+	/**************************************************************************
+	 * Places the current tile on a random legal cell.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param legal
+	 *            The set of legal packed cells.
+	 * @param random
+	 *            The random number generator.
+	 **************************************************************************/
+	private static void placeRandom(MetroEngine game, BitSet legal,
+			Random random) {
+		int cell = legal.nextSetBit(0);
+		for (int k = random.nextInt(legal.cardinality()); k > 0; k--)
+			cell = legal.nextSetBit(cell + 1);
+		try {
+			game.setTile(cell / game.getCols(), cell % game.getCols());
+		} catch (Exception e) {
+			System.out.println("Legal move rejected\tFAILED");
+			numFailures++;
+		}
+	}
+
+	/**************************************************************************
+	 * Runs all of the tests.
+	 * 
+	 * @param args
+	 *            The command line arguments, which are not used.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		testLegalMoves();
+		testUndo();
+		testSeed();
+		testLargeBoards();
+		testSaveLoad();
+		testSavedGames();
+		testJournal();
+		testSuggestMoves();
+		testEvents();
+		testSnapshots();
+		System.out.println("Number of failures:  " + numFailures);
+	}
+}
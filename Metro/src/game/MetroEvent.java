@@ -0,0 +1,108 @@
+package game;
+
+import java.util.EventObject;
+import utility.*;
+
+/**************************************************************************
+ * An event that tells a {@code MetroListener} how a move changed the
+ * game. Only the values that belong to the kind of event are set; the
+ * others are {@code -1} or {@code null}.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroEvent extends EventObject {
+
+	/** The serial version ID. */
+	private static final long serialVersionUID = -4417263150853278106L;
+
+	/** The number of the player the event is about. */
+	private int playerNum;
+
+	/** The position of the tile the event is about. */
+	private Position position;
+
+	/** The type of the tile the event is about. */
+	private int tile;
+
+	/** The number of the station the event is about. */
+	private int station;
+
+	/** The score or the points the event is about. */
+	private int score;
+
+	/**************************************************************************
+	 * Constructor for the {@code MetroEvent} class.
+	 * 
+	 * @param source
+	 *            The {@code MetroControl} of the game.
+	 * @param playerNum
+	 *            The number of the player, or {@code -1}.
+	 * @param position
+	 *            The position of the tile, or {@code null}.
+	 * @param tile
+	 *            The type of the tile, or {@code -1}.
+	 * @param station
+	 *            The number of the station, or {@code -1}.
+	 * @param score
+	 *            The score or the points, or {@code -1}.
+	 **************************************************************************/
+	protected MetroEvent(MetroControl source, int playerNum,
+			Position position, int tile, int station, int score) {
+		super(source);
+		this.playerNum = playerNum;
+		this.position = position;
+		this.tile = tile;
+		this.station = station;
+		this.score = score;
+	}
+
+	/**************************************************************************
+	 * Gets the number of the player the event is about. This is the
+	 * player who placed or gets back a tile, the owner of a completed
+	 * station, the player whose score changed or the player whose turn
+	 * it now is.
+	 * 
+	 * @return the number of the player, or {@code -1}.
+	 **************************************************************************/
+	public int getPlayerNum() {
+		return playerNum;
+	}
+
+	/**************************************************************************
+	 * Gets the position of the placed or removed tile.
+	 * 
+	 * @return the position of the tile, or {@code null}.
+	 **************************************************************************/
+	public Position getPosition() {
+		return position;
+	}
+
+	/**************************************************************************
+	 * Gets the type of the placed or removed tile.
+	 * 
+	 * @return the type of the tile, or {@code -1}.
+	 **************************************************************************/
+	public int getTile() {
+		return tile;
+	}
+
+	/**************************************************************************
+	 * Gets the number of the completed station.
+	 * 
+	 * @return the number of the station, or {@code -1}.
+	 **************************************************************************/
+	public int getStation() {
+		return station;
+	}
+
+	/**************************************************************************
+	 * Gets the new score of a player, or the points the route of a
+	 * completed station is worth.
+	 * 
+	 * @return the score or the points, or {@code -1}.
+	 **************************************************************************/
+	public int getScore() {
+		return score;
+	}
+}
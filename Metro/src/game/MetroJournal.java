@@ -0,0 +1,404 @@
+package game;
+
+import game.TileCell.Type;
+import java.io.*;
+import java.text.ParseException;
+
+/**************************************************************************
+ * A class to write and read an append-only journal of the moves of a
+ * Metro game. The journal starts with the size data, the seed of the
+ * stack and the tiles dealt to the players, followed by one three
+ * byte record for every tile placed or undone. Each record is flushed
+ * as it is written, so a journal can be replayed up to the last
+ * complete move after a crash.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroJournal {
+
+	/** The first four bytes of a journal, "MTRJ". */
+	private static final int MAGIC = 0x4D54524A;
+
+	/** The version of the journal format written by this class. */
+	private static final int VERSION = 2;
+
+	/** The length of the header before the seed and the dealt tiles. */
+	private static final int HEADER = 11;
+
+	/** The length of the seed, which the first version did not store. */
+	private static final int SEED = 8;
+
+	/** The length of each move record. */
+	private static final int RECORD = 3;
+
+	/** The cell stored in a record for an undone move. */
+	private static final int UNDO = 0xFFFF;
+
+	/** The tile stored in a record when no tile could be drawn. */
+	private static final int NONE = 0x1F;
+
+	/** The bit of a record set when the draw pile was used. */
+	private static final int DRAWPILE = 0x20;
+
+	/** The stream of the journal being written. */
+	private DataOutputStream out;
+
+	/** Whether writing to the journal has failed. */
+	private boolean error;
+
+	/** The data of the loaded Metro game. */
+	private int rows, cols, players, scoreType;
+
+	/** The seed the stack of the loaded game was shuffled with. */
+	private long seed;
+
+	/** The loaded tiles dealt to each player and the draw pile. */
+	private Type[] playerTiles;
+
+	/** The loaded cells of each record. */
+	private int[] cells;
+
+	/** The loaded tile and draw pile data of each record. */
+	private byte[] draws;
+
+	/** The number of loaded records. */
+	private int moves;
+
+	/** The length of the loaded journal up to its last whole record. */
+	private long length;
+
+	/**************************************************************************
+	 * Starts a new journal for a game that has just been dealt, writing
+	 * its size data and the tiles dealt to the players.
+	 * 
+	 * @param filename
+	 *            The name of the file to be written.
+	 * @param numOfPlayers
+	 *            The number of players in the game.
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @param scoreType
+	 *            The type of scoring method in the game.
+	 * @param seed
+	 *            The seed the stack was shuffled with.
+	 * @param currentPlayerTiles
+	 *            The {@code TileCell} array of the current player
+	 *            tiles.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 **************************************************************************/
+	protected void startJournal(String filename, int numOfPlayers,
+			int rows, int cols, int scoreType, long seed,
+			TileCell[] currentPlayerTiles) throws IOException {
+		if (rows * cols >= UNDO)
+			throw new IOException("The game board is too large");
+		out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(filename)));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeShort(rows);
+		out.writeShort(cols);
+		out.writeByte(numOfPlayers);
+		out.writeByte(scoreType);
+		out.writeLong(seed);
+		for (int k = 0; k < currentPlayerTiles.length; k++)
+			out.writeByte(currentPlayerTiles[k].getType().ordinal());
+		out.flush();
+		error = false;
+	}
+
+	/**************************************************************************
+	 * Continues writing a journal that has been loaded, dropping any
+	 * partly written record at its end.
+	 * 
+	 * @param filename
+	 *            The name of the loaded file.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 **************************************************************************/
+	protected void resumeJournal(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "rw");
+		try {
+			file.setLength(length);
+		} finally {
+			file.close();
+		}
+		out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(filename, true)));
+		error = false;
+	}
+
+	/**************************************************************************
+	 * Writes the record of a tile placement.
+	 * 
+	 * @param cell
+	 *            The packed cell the tile was placed on.
+	 * @param drawPile
+	 *            Whether the tile came from the draw pile.
+	 * @param drawn
+	 *            The {@code Type} of the tile drawn to replace it, or
+	 *            {@code null} if the stack was empty.
+	 **************************************************************************/
+	protected void writeMove(int cell, boolean drawPile, Type drawn) {
+		int draw = drawn == null ? NONE : drawn.ordinal();
+		if (drawPile)
+			draw |= DRAWPILE;
+		writeRecord(cell, draw);
+	}
+
+	/**************************************************************************
+	 * Writes the record of a tile placement being undone.
+	 **************************************************************************/
+	protected void writeUndo() {
+		writeRecord(UNDO, 0);
+	}
+
+	/**************************************************************************
+	 * Writes and flushes a single record. A failure stops the journal
+	 * rather than interrupting the game.
+	 * 
+	 * @param cell
+	 *            The cell of the record.
+	 * @param draw
+	 *            The tile and draw pile data of the record.
+	 **************************************************************************/
+	private void writeRecord(int cell, int draw) {
+		if (out == null || error)
+			return;
+		try {
+			out.writeShort(cell);
+			out.writeByte(draw);
+			out.flush();
+		} catch (IOException e) {
+			error = true;
+		}
+	}
+
+	/**************************************************************************
+	 * Tests to see if writing to the journal has failed.
+	 * 
+	 * @return {@code true} if a record could not be written, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	protected boolean checkError() {
+		return error;
+	}
+
+	/**************************************************************************
+	 * Closes the journal being written.
+	 **************************************************************************/
+	protected void close() {
+		if (out == null)
+			return;
+		try {
+			out.close();
+		} catch (IOException e) {
+			error = true;
+		}
+		out = null;
+	}
+
+	/**************************************************************************
+	 * Loads a journal given a filename and stores its data as instance
+	 * variables. A partly written record at the end of the file is
+	 * ignored.
+	 * 
+	 * @param filename
+	 *            The name of the file storing the journal.
+	 * @throws FileNotFoundException
+	 *             If the file cannot be found.
+	 * @throws ParseException
+	 *             If the data is invalid.
+	 **************************************************************************/
+	protected void loadJournal(String filename)
+			throws FileNotFoundException, ParseException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(filename)));
+		try {
+			loadJournal(in, new File(filename).length());
+		} catch (IOException e) {
+			throw new ParseException("Invalid journal", 0);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+
+				// Nothing more can be read either way.
+			}
+		}
+	}
+
+	/**************************************************************************
+	 * Loads the header and then the records of a journal.
+	 * 
+	 * @param in
+	 *            The stream of the file to be read.
+	 * @param size
+	 *            The length of the file.
+	 * @throws IOException
+	 *             If the header cannot be read.
+	 * @throws ParseException
+	 *             If the data is invalid.
+	 **************************************************************************/
+	private void loadJournal(DataInputStream in, long size)
+			throws IOException, ParseException {
+		if (in.readInt() != MAGIC)
+			throw new ParseException("Not a journal", 0);
+		int version = in.readUnsignedByte();
+		if (version > VERSION)
+			throw new ParseException("Unsupported version", 4);
+		rows = in.readUnsignedShort();
+		cols = in.readUnsignedShort();
+		players = in.readUnsignedByte();
+		scoreType = in.readUnsignedByte();
+		if (rows == 0 || cols == 0 || players == 0)
+			throw new ParseException("Invalid size", 5);
+		length = HEADER;
+		seed = 0;
+		if (version > 1) {
+			seed = in.readLong();
+			length += SEED;
+		}
+		playerTiles = new Type[players + 1];
+		for (int k = 0; k < playerTiles.length; k++)
+			playerTiles[k] = getType(in.readUnsignedByte());
+		length += playerTiles.length;
+		moves = (int) ((size - length) / RECORD);
+		cells = new int[moves];
+		draws = new byte[moves];
+		for (int i = 0; i < moves; i++) {
+			cells[i] = in.readUnsignedShort();
+			draws[i] = in.readByte();
+			if (cells[i] != UNDO && cells[i] >= rows * cols)
+				throw new ParseException("Invalid move " + i, (int) length);
+			if ((draws[i] & NONE) != NONE
+					&& (draws[i] & NONE) >= TileCell.types.length)
+				throw new ParseException("Invalid move " + i, (int) length);
+			length += RECORD;
+		}
+	}
+
+	/**************************************************************************
+	 * Gets the tile {@code Type} with the specified ordinal.
+	 * 
+	 * @param ordinal
+	 *            The ordinal of the {@code Type}.
+	 * @return the {@code Type}.
+	 * @throws ParseException
+	 *             If there is no such {@code Type}.
+	 **************************************************************************/
+	private Type getType(int ordinal) throws ParseException {
+		if (ordinal >= TileCell.types.length)
+			throw new ParseException("Invalid tile type " + ordinal, 0);
+		return TileCell.types[ordinal];
+	}
+
+	/**************************************************************************
+	 * Gets the size of the game board.
+	 * 
+	 * @return the array of the size of the game board.
+	 **************************************************************************/
+	protected int[] getSize() {
+		int[] size = { rows, cols };
+		return size;
+	}
+
+	/**************************************************************************
+	 * Gets the seed the stack of the loaded game was shuffled with.
+	 * 
+	 * @return the seed of the loaded game.
+	 **************************************************************************/
+	protected long getSeed() {
+		return seed;
+	}
+
+	/**************************************************************************
+	 * Gets the number of players in the loaded game.
+	 * 
+	 * @return the number of players.
+	 **************************************************************************/
+	protected int getPlayers() {
+		return players;
+	}
+
+	/**************************************************************************
+	 * Gets the type of scoring system in the loaded game.
+	 * 
+	 * @return the type of scoring system in the loaded game.
+	 **************************************************************************/
+	protected int getScoreType() {
+		return scoreType;
+	}
+
+	/**************************************************************************
+	 * Gets the {@code Type} of the tile first dealt to a player.
+	 * 
+	 * @param playerNum
+	 *            The player number, or the number of players for the
+	 *            draw pile.
+	 * @return the {@code Type} of the dealt tile.
+	 **************************************************************************/
+	protected Type getPlayerTile(int playerNum) {
+		return playerTiles[playerNum];
+	}
+
+	/**************************************************************************
+	 * Gets the number of loaded records.
+	 * 
+	 * @return the number of records.
+	 **************************************************************************/
+	protected int getMoves() {
+		return moves;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a record is of a move being undone.
+	 * 
+	 * @param move
+	 *            The index of the record.
+	 * @return {@code true} if the move is an undo, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected boolean isUndo(int move) {
+		return cells[move] == UNDO;
+	}
+
+	/**************************************************************************
+	 * Gets the packed cell a tile was placed on.
+	 * 
+	 * @param move
+	 *            The index of the record.
+	 * @return the packed cell of the move.
+	 **************************************************************************/
+	protected int getCell(int move) {
+		return cells[move];
+	}
+
+	/**************************************************************************
+	 * Tests to see if a tile was placed from the draw pile.
+	 * 
+	 * @param move
+	 *            The index of the record.
+	 * @return {@code true} if the draw pile was used, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected boolean isDrawPile(int move) {
+		return (draws[move] & DRAWPILE) != 0;
+	}
+
+	/**************************************************************************
+	 * Gets the {@code Type} of the tile drawn after a move.
+	 * 
+	 * @param move
+	 *            The index of the record.
+	 * @return the {@code Type} of the drawn tile, or {@code null} if
+	 *         the stack was empty.
+	 **************************************************************************/
+	protected Type getDrawn(int move) {
+		int draw = draws[move] & NONE;
+		return draw == NONE ? null : TileCell.types[draw];
+	}
+}
@@ -0,0 +1,72 @@
+package game;
+
+import java.util.EventListener;
+
+/**************************************************************************
+ * The listener interface for receiving the changes a move makes to a
+ * game of Metro. A listener is registered with {@code
+ * MetroControl.addMetroListener}, and after each move it is told of
+ * the placed tile, then each completed station, then each changed
+ * score, then the new turn, and finally the end of the game.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public interface MetroListener extends EventListener {
+
+	/**************************************************************************
+	 * Invoked when a tile has been placed on the game board. The event
+	 * holds the player number the tile was placed from, its position
+	 * and its tile type.
+	 * 
+	 * @param e
+	 *            The event of the placed tile.
+	 **************************************************************************/
+	void tilePlaced(MetroEvent e);
+
+	/**************************************************************************
+	 * Invoked when a tile placement has been undone. The event holds
+	 * the player number the tile is given back to, its position and its
+	 * tile type.
+	 * 
+	 * @param e
+	 *            The event of the removed tile.
+	 **************************************************************************/
+	void tileRemoved(MetroEvent e);
+
+	/**************************************************************************
+	 * Invoked when the route of a station has been completed. The event
+	 * holds the station number, its owner and the points the route is
+	 * worth.
+	 * 
+	 * @param e
+	 *            The event of the completed station.
+	 **************************************************************************/
+	void stationCompleted(MetroEvent e);
+
+	/**************************************************************************
+	 * Invoked when the score of a player has changed. The event holds
+	 * the player number and the new score.
+	 * 
+	 * @param e
+	 *            The event of the changed score.
+	 **************************************************************************/
+	void scoreChanged(MetroEvent e);
+
+	/**************************************************************************
+	 * Invoked when the turn has passed to another player. The event
+	 * holds the number of the player whose turn it now is.
+	 * 
+	 * @param e
+	 *            The event of the new turn.
+	 **************************************************************************/
+	void turnAdvanced(MetroEvent e);
+
+	/**************************************************************************
+	 * Invoked when the last tile has been placed.
+	 * 
+	 * @param e
+	 *            The event of the finished game.
+	 **************************************************************************/
+	void gameOver(MetroEvent e);
+}
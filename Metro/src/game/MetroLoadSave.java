@@ -1,29 +1,54 @@
 package game;
 
+import game.TileCell.Type;
 import java.io.*;
 import java.text.ParseException;
-import java.util.Scanner;
 
 /**************************************************************************
- * A class to save and load a Metro game.
+ * A class to save and load a Metro game. Games are saved in a
+ * versioned binary format that stores the full id and owner of every
+ * tile along with the draw pile and the remaining tile stack. Games
+ * saved in the older text format can still be loaded.
  * 
  * @author Sam Eary and Tyler Blanchard
  * @version 1.0
  **************************************************************************/
 public class MetroLoadSave {
 
+	/** The first four bytes of a binary save game, "MTRO". */
+	private static final int MAGIC = 0x4D54524F;
+
+	/** The version of the binary format written by this class. */
+	private static final int VERSION = 1;
+
+	/** The value stored in place of the type of an empty cell. */
+	private static final int EMPTY = 0;
+
 	/** The data of the loaded Metro game. */
 	private int rows, cols, players, turn, scoreType, id;
 
-	/** The loaded version of the game board. */
-	private String[][] gameBoard;
+	/** The player the draw pile was activated by. */
+	private int drawPileActivePlayer;
+
+	/** Whether the draw pile was active in the loaded game. */
+	private boolean drawPileActive;
+
+	/** The loaded version of the game board, indexed by packed cell. */
+	private TileCell[] gameBoard;
 
 	/** The loaded version of the array of player tiles. */
-	private String[] playerTiles;
+	private TileCell[] playerTiles;
+
+	/**
+	 * The {@code Type} ordinals of the loaded tile stack, or {@code
+	 * null} if it was not saved.
+	 */
+	private int[] tileStack;
 
 	/**************************************************************************
 	 * Loads a Metro game given a filename and stores its data as
-	 * instance variables.
+	 * instance variables. The format of the file is found from its
+	 * first bytes.
 	 * 
 	 * @param fileName
 	 *            The name of the file storing the information.
@@ -34,188 +59,362 @@ public class MetroLoadSave {
 	 **************************************************************************/
 	protected void loadGame(String fileName)
 			throws FileNotFoundException, ParseException {
-		Scanner sc = new Scanner(new File(fileName));
-		loadGame(sc);
+		BufferedInputStream in = new BufferedInputStream(
+				new FileInputStream(fileName));
+		try {
+			if (isBinary(in))
+				loadBinary(new DataInputStream(in));
+			else
+				loadText(new BufferedReader(new InputStreamReader(in)));
+		} catch (EOFException e) {
+			throw new ParseException("Invalid file", 0);
+		} catch (IOException e) {
+			throw new ParseException("Invalid file: " + e.getMessage(), 0);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+
+				// Nothing more can be read either way.
+			}
+		}
 	}
 
 	/**************************************************************************
-	 * Loads the size data and then the data of the game board.
+	 * Tests to see if a file starts with the binary format marker. The
+	 * marker is consumed if it is found, otherwise the stream is reset
+	 * to the start of the file.
 	 * 
-	 * @param input
-	 *            The scanner of the file to be read.
-	 * @throws ParseException
-	 *             If the file cannot be loaded.
+	 * @param in
+	 *            The stream of the file to be read.
+	 * @return {@code true} if the file is in the binary format, {@code
+	 *         false} otherwise.
+	 * @throws IOException
+	 *             If the file cannot be read.
 	 **************************************************************************/
-	private void loadGame(Scanner input) throws ParseException {
-		sizeLoader(input);
-		dataLoader(input);
+	private boolean isBinary(BufferedInputStream in) throws IOException {
+		int marker = 0;
+		in.mark(4);
+		for (int i = 0; i < 4; i++) {
+			int next = in.read();
+			if (next == -1)
+				break;
+			marker = (marker << 8) | next;
+			if (i == 3 && marker == MAGIC)
+				return true;
+		}
+		in.reset();
+		return false;
 	}
 
 	/**************************************************************************
-	 * Loads the size data of the save game files. This data includes
-	 * size, number of players, the current turn, the score type, and
-	 * the current tile id number.
+	 * Loads a game saved in the binary format.
 	 * 
-	 * @param input
-	 *            The scanner of the file to be read.
+	 * @param in
+	 *            The stream of the file to be read, positioned after
+	 *            the format marker.
+	 * @throws IOException
+	 *             If the file cannot be read.
 	 * @throws ParseException
-	 *             If the file cannot be loaded.
+	 *             If the data is invalid.
 	 **************************************************************************/
-	private void sizeLoader(Scanner input) throws ParseException {
-		String in;
-		Scanner sc;
-		in = getNextDataLine(input);
-		sc = new Scanner(in);
-		while (sc.hasNext()) {
-			rows = sc.nextInt();
-			cols = sc.nextInt();
-			players = sc.nextInt();
-			turn = sc.nextInt();
-			scoreType = sc.nextInt();
-			id = sc.nextInt();
+	private void loadBinary(DataInputStream in) throws IOException,
+			ParseException {
+		int version = in.readUnsignedByte();
+		if (version > VERSION)
+			throw new ParseException("Unsupported version " + version, 4);
+		rows = in.readUnsignedShort();
+		cols = in.readUnsignedShort();
+		players = in.readUnsignedByte();
+		turn = in.readUnsignedByte();
+		drawPileActive = in.readBoolean();
+		drawPileActivePlayer = in.readUnsignedByte();
+		scoreType = in.readUnsignedByte();
+		id = in.readInt();
+		checkSize();
+		if (turn > players || drawPileActivePlayer >= players)
+			throw new ParseException("Invalid turn", 12);
+
+		// The game board, one type per cell followed by the id and
+		// owner of the tiles that have been placed.
+		TileCell tile;
+		int type;
+		for (int i = 0; i < gameBoard.length; i++) {
+			type = in.readUnsignedByte();
+			if (type != EMPTY) {
+				tile = new TileCell(getType(type - 1));
+				tile.setID(in.readInt());
+				tile.setOwner(in.readUnsignedByte());
+				gameBoard[i] = tile;
+			}
 		}
+		for (int k = 0; k < playerTiles.length; k++)
+			playerTiles[k] = new TileCell(getType(in.readUnsignedByte()));
+		tileStack = new int[in.readInt()];
+		for (int k = 0; k < tileStack.length; k++)
+			tileStack[k] = getType(in.readUnsignedByte()).ordinal();
 
-		// This occurs only if there is extra data.
-		if (sc.hasNext())
-			throw new ParseException("Invalid file", 47);
-		gameBoard = new String[rows][cols];
-		playerTiles = new String[players + 1];
+		// Occurs if there is extra data.
+		if (in.read() != -1)
+			throw new ParseException("Invalid file", 0);
 	}
 
 	/**************************************************************************
-	 * Loads the data for the game. This includes the gameboard and
-	 * current player held tiles.
+	 * Loads a game saved in the text format. The first line holds the
+	 * size data, followed by one line for each row of the game board
+	 * and a line of player tiles. The text format does not store the
+	 * tile stack.
 	 * 
 	 * @param input
-	 *            The scanner of the file to be read.
-	 * @throws ParseException
+	 *            The reader of the file to be read.
+	 * @throws IOException
 	 *             If the file cannot be read.
+	 * @throws ParseException
+	 *             If the data is invalid.
 	 **************************************************************************/
-	private void dataLoader(Scanner input) throws ParseException {
-		String data;
-		Scanner sc = null;
-		String temp;
-		for (int i = 0; i < gameBoard.length; i++) {
+	private void loadText(BufferedReader input) throws IOException,
+			ParseException {
+		String[] data = getNextDataLine(input);
+		if (data.length != 6)
+			throw new ParseException("Invalid file", 0);
+		try {
+			rows = Integer.parseInt(data[0]);
+			cols = Integer.parseInt(data[1]);
+			players = Integer.parseInt(data[2]);
+			turn = Integer.parseInt(data[3]);
+			scoreType = Integer.parseInt(data[4]);
+			id = Integer.parseInt(data[5]);
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid file", 0);
+		}
+		checkSize();
+		drawPileActive = false;
+		tileStack = null;
+		for (int i = 0; i < rows; i++) {
 			data = getNextDataLine(input);
-			sc = new Scanner(data);
-			for (int j = 0; j < gameBoard[i].length; j++)
-				if (sc.hasNext()) {
-					temp = sc.next();
-					if (temp.equals("0"))
-						gameBoard[i][j] = null;
-					else
-						gameBoard[i][j] = temp;
-				}
 
 			// Occurs if there is extra data on each line.
-			if (sc.hasNext())
-				throw new ParseException("Invalid File", 68);
+			if (data.length > cols)
+				throw new ParseException("Invalid File", i + 1);
+			for (int j = 0; j < data.length; j++)
+				if (!data[j].equals("0"))
+					gameBoard[i * cols + j] = parseTile(data[j], i + 1);
 		}
 		data = getNextDataLine(input);
-		sc = new Scanner(data);
+
+		// Occurs if there is missing or extra data.
+		if (data.length != playerTiles.length)
+			throw new ParseException("Invalid File", rows + 1);
 		for (int k = 0; k < playerTiles.length; k++)
-			if (sc.hasNext())
-				playerTiles[k] = sc.next();
+			playerTiles[k] = new TileCell(getType(data[k], rows + 1));
+	}
 
-		// Occurs if there is extra data.
-		if (sc.hasNext())
-			throw new ParseException("Invalid File", 68);
+	/**************************************************************************
+	 * Parses a placed tile of the text format, which is the letter of
+	 * its type followed by its id and then its single digit owner.
+	 * 
+	 * @param data
+	 *            The text of the tile.
+	 * @param line
+	 *            The line the tile is on, used for error reporting.
+	 * @return the loaded {@code TileCell}.
+	 * @throws ParseException
+	 *             If the tile is not valid.
+	 **************************************************************************/
+	private TileCell parseTile(String data, int line)
+			throws ParseException {
+		if (data.length() < 3)
+			throw new ParseException("Invalid tile " + data, line);
+		TileCell tile = new TileCell(getType(data.substring(0, 1), line));
+		try {
+			tile.setID(Integer.parseInt(data.substring(1,
+					data.length() - 1)));
+			tile.setOwner(Integer.parseInt(data.substring(data
+					.length() - 1)));
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid tile " + data, line);
+		}
+		return tile;
 	}
 
 	/**************************************************************************
-	 * Gets the next line of data from the file.
+	 * Gets the next line of data from the file split into its words.
 	 * 
 	 * @param input
-	 *            The scanner of the file being read.
-	 * @return the next line of data.
+	 *            The reader of the file being read.
+	 * @return the words of the next line of data.
+	 * @throws IOException
+	 *             If the file cannot be read.
 	 **************************************************************************/
-	private String getNextDataLine(Scanner input) {
-		String data = "";
-		if (input.hasNext())
-			data = input.nextLine().trim();
-		return data;
+	private String[] getNextDataLine(BufferedReader input)
+			throws IOException {
+		String data = input.readLine();
+		if (data == null || (data = data.trim()).length() == 0)
+			return new String[0];
+		return data.split("\\s+");
 	}
 
 	/**************************************************************************
-	 * Creates a file representing a game of Metro.
+	 * Makes sure the loaded size data is usable and creates the arrays
+	 * for the rest of the game.
+	 * 
+	 * @throws ParseException
+	 *             If the size data is not valid.
+	 **************************************************************************/
+	private void checkSize() throws ParseException {
+		if (rows <= 0 || cols <= 0 || players <= 0)
+			throw new ParseException("Invalid size", 0);
+		gameBoard = new TileCell[rows * cols];
+		playerTiles = new TileCell[players + 1];
+	}
+
+	/**************************************************************************
+	 * Gets the tile {@code Type} with the specified ordinal.
+	 * 
+	 * @param ordinal
+	 *            The ordinal of the {@code Type}.
+	 * @return the {@code Type}.
+	 * @throws ParseException
+	 *             If there is no such {@code Type}.
+	 **************************************************************************/
+	private Type getType(int ordinal) throws ParseException {
+		if (ordinal < 0 || ordinal >= TileCell.types.length)
+			throw new ParseException("Invalid tile type " + ordinal, 0);
+		return TileCell.types[ordinal];
+	}
+
+	/**************************************************************************
+	 * Gets the tile {@code Type} with the specified name.
+	 * 
+	 * @param name
+	 *            The name of the {@code Type}.
+	 * @param line
+	 *            The line the name is on, used for error reporting.
+	 * @return the {@code Type}.
+	 * @throws ParseException
+	 *             If there is no such {@code Type}.
+	 **************************************************************************/
+	private Type getType(String name, int line) throws ParseException {
+		for (int i = 0; i < TileCell.types.length; i++)
+			if (TileCell.types[i].name().equals(name))
+				return TileCell.types[i];
+		throw new ParseException("Invalid tile type " + name, line);
+	}
+
+	/**************************************************************************
+	 * Creates a file representing a game of Metro in the binary format.
 	 * 
 	 * @param numOfPlayers
 	 *            The number of players in the game.
-	 * @param size
-	 *            The size of the game board.
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
 	 * @param turn
 	 *            The current turn.
+	 * @param drawPileActive
+	 *            Whether the draw pile is active.
+	 * @param drawPileActivePlayer
+	 *            The player that activated the draw pile.
 	 * @param scoreType
 	 *            The type of scoring method in the game.
 	 * @param id
 	 *            The current id number in the game.
 	 * @param currentGame
-	 *            The {@code TileCell} double array of the game board.
+	 *            The {@code TileCell} array of the game board, indexed
+	 *            by packed cell.
 	 * @param currentPlayerTiles
 	 *            The {@code TileCell} array of the current player
 	 *            tiles.
+	 * @param tileStack
+	 *            The {@code Type} ordinals of the tiles in the stack.
+	 * @param stackTop
+	 *            The index of the next tile to be drawn from the stack.
 	 * @param filename
 	 *            The name of the file to be saved.
 	 * @throws IOException
 	 *             If there is a problem saving.
 	 **************************************************************************/
 	protected void saveGame(int numOfPlayers, int rows, int cols,
-			int turn, int scoreType, int id, TileCell[][] currentGame,
-			TileCell[] currentPlayerTiles, String filename)
-			throws IOException {
-		BufferedWriter out = new BufferedWriter(
-				new FileWriter(filename));
-
-		// The size data.
-		out.write(rows + " " + cols + " " + numOfPlayers + " " + turn
-				+ " " + scoreType + " " + id);
-		out.newLine();
-		writeData(currentGame, currentPlayerTiles, out);
-		out.close();
+			int turn, boolean drawPileActive, int drawPileActivePlayer,
+			int scoreType, int id, TileCell[] currentGame,
+			TileCell[] currentPlayerTiles, int[] tileStack, int stackTop,
+			String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+
+			// The size data.
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeShort(rows);
+			out.writeShort(cols);
+			out.writeByte(numOfPlayers);
+			out.writeByte(turn);
+			out.writeBoolean(drawPileActive);
+			out.writeByte(drawPileActivePlayer);
+			out.writeByte(scoreType);
+			out.writeInt(id);
+			writeData(currentGame, currentPlayerTiles, tileStack,
+					stackTop, out);
+		} finally {
+			out.close();
+		}
 	}
 
 	/**************************************************************************
-	 * Writes the game board and player tile data to the file.
+	 * Writes the game board, player tile and tile stack data to the
+	 * file.
 	 * 
 	 * @param currentGame
-	 *            The {@code TileCell} double array of the game board.
+	 *            The {@code TileCell} array of the game board, indexed
+	 *            by packed cell.
 	 * @param currentPlayerTiles
 	 *            The {@code TileCell} array of the current player
 	 *            tiles.
+	 * @param tileStack
+	 *            The {@code Type} ordinals of the tiles in the stack.
+	 * @param stackTop
+	 *            The index of the next tile to be drawn from the stack.
 	 * @param out
-	 *            The {@code BufferedWriter} of the file being written.
+	 *            The {@code DataOutputStream} of the file being
+	 *            written.
 	 * @throws IOException
 	 *             If there is a problem saving.
 	 **************************************************************************/
-	private void writeData(TileCell[][] currentGame,
-			TileCell[] currentPlayerTiles, BufferedWriter out)
-			throws IOException {
+	private void writeData(TileCell[] currentGame,
+			TileCell[] currentPlayerTiles, int[] tileStack, int stackTop,
+			DataOutputStream out) throws IOException {
 		TileCell curr;
 
 		// The game data.
 		for (int i = 0; i < currentGame.length; i++) {
-			for (int j = 0; j < currentGame[i].length; j++) {
-				curr = currentGame[i][j];
-				if (curr != null)
-					out.write(curr.getType().name() + curr.getID()
-							+ curr.getOwner() + " ");
-				else
-					out.write(0 + " ");
-			}
-			out.newLine();
+			curr = currentGame[i];
+			if (curr != null) {
+				out.writeByte(curr.getType().ordinal() + 1);
+				out.writeInt(curr.getID());
+				out.writeByte(curr.getOwner());
+			} else
+				out.writeByte(EMPTY);
 		}
 
 		// The current player tile data.
 		for (int k = 0; k < currentPlayerTiles.length; k++)
-			out.write(currentPlayerTiles[k].getType().name() + " ");
+			out.writeByte(currentPlayerTiles[k].getType().ordinal());
+
+		// The tiles left in the stack.
+		out.writeInt(tileStack.length - stackTop);
+		for (int k = stackTop; k < tileStack.length; k++)
+			out.writeByte(tileStack[k]);
 	}
 
 	/**************************************************************************
 	 * Gets the array of the loaded game board.
 	 * 
-	 * @return the array of the loaded game board.
+	 * @return the array of the loaded game board, indexed by packed
+	 *         cell.
 	 **************************************************************************/
-	protected String[][] getGameboard() {
+	protected TileCell[] getGameboard() {
 		return gameBoard;
 	}
 
@@ -224,10 +423,20 @@ public class MetroLoadSave {
 	 * 
 	 * @return the array of the loaded player tiles.
 	 **************************************************************************/
-	protected String[] getPlayerTiles() {
+	protected TileCell[] getPlayerTiles() {
 		return playerTiles;
 	}
 
+	/**************************************************************************
+	 * Gets the loaded tile stack.
+	 * 
+	 * @return the {@code Type} ordinals of the loaded tile stack, or
+	 *         {@code null} if the file did not store it.
+	 **************************************************************************/
+	protected int[] getTileStack() {
+		return tileStack;
+	}
+
 	/**************************************************************************
 	 * Gets the size of the game board.
 	 * 
@@ -256,6 +465,25 @@ public class MetroLoadSave {
 		return turn;
 	}
 
+	/**************************************************************************
+	 * Gets whether the draw pile was active in a loaded game.
+	 * 
+	 * @return {@code true} if the draw pile was active, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected boolean isDrawPileActive() {
+		return drawPileActive;
+	}
+
+	/**************************************************************************
+	 * Gets the player that activated the draw pile in a loaded game.
+	 * 
+	 * @return the player that activated the draw pile.
+	 **************************************************************************/
+	protected int getDrawPileActivePlayer() {
+		return drawPileActivePlayer;
+	}
+
 	/**************************************************************************
 	 * Gets the current id number of the loaded game.
 	 * 
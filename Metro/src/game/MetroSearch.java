@@ -0,0 +1,291 @@
+package game;
+
+import java.util.Arrays;
+import utility.*;
+
+/**************************************************************************
+ * A computer player for Metro that searches ahead over the legal moves
+ * with expectimax. Turns of the player being advised pick the best
+ * value, turns of the other players pick the worst, and tiles drawn
+ * during the search are averaged over the tiles left in the stack. The
+ * search deepens one turn at a time until its time budget runs out.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroSearch {
+
+	/** How many nodes are searched between checks of the clock. */
+	private static final int CLOCK_CHECK = 1023;
+
+	/** The private copy of the game being searched. */
+	private MetroEngine game;
+
+	/** The player the search is choosing a move for. */
+	private int player;
+
+	/** Whether the tile held in each slot was drawn during the search. */
+	private boolean[] drawn;
+
+	/** The chance of drawing each tile type from the stack. */
+	private double[] chances;
+
+	/** The time the search must stop by, in nanoseconds. */
+	private long deadline;
+
+	/** Whether the time budget ran out. */
+	private boolean outOfTime;
+
+	/** The number of positions searched. */
+	private long nodes;
+
+	/** The depth of the last search that finished. */
+	private int depth;
+
+	/**************************************************************************
+	 * Constructor for the {@code MetroSearch} class. The search works
+	 * on its own copy of the game.
+	 * 
+	 * @param game
+	 *            The game to choose a move in.
+	 **************************************************************************/
+	protected MetroSearch(MetroEngine game) {
+		int[] counts = game.getStackCounts();
+		int total = 0;
+		this.game = new MetroEngine(game);
+		player = getOwner(game.getCurrentPlayerNum());
+		drawn = new boolean[game.getNumOfPlayers() + 1];
+		chances = new double[counts.length];
+		for (int t = 0; t < counts.length; t++)
+			total += counts[t];
+		for (int t = 0; t < counts.length && total != 0; t++)
+			chances[t] = (double) counts[t] / total;
+	}
+
+	/**************************************************************************
+	 * Finds the best move for the current tile within the time budget.
+	 * 
+	 * @param millis
+	 *            The time budget in milliseconds.
+	 * @return the packed cell of the best move, or {@code -1} if there
+	 *         is no legal move.
+	 **************************************************************************/
+	protected int getBestMove(long millis) {
+		int[] cells = getMoves();
+		int best;
+		int bestDepth;
+		double value;
+		double bestValue;
+		if (cells.length == 0)
+			return -1;
+		deadline = System.nanoTime() + millis * 1000000;
+		outOfTime = false;
+		nodes = 0;
+		depth = 0;
+		best = cells[0];
+		for (bestDepth = 1; !outOfTime && bestDepth <= game.getRows()
+				* game.getCols(); bestDepth++) {
+			bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < cells.length && !outOfTime; i++) {
+				value = moveValue(cells[i], bestDepth);
+				if (!outOfTime && value > bestValue) {
+					bestValue = value;
+
+					// Searching the best move first helps the next depth.
+					swapToFront(cells, i);
+				}
+			}
+			if (!outOfTime) {
+				best = cells[0];
+				depth = bestDepth;
+			}
+		}
+		return best;
+	}
+
+	/**************************************************************************
+	 * Gets the value of placing the current tile on the given cell,
+	 * searching the given number of turns ahead.
+	 * 
+	 * @param cell
+	 *            The packed cell of the move.
+	 * @param turns
+	 *            The number of turns to search, including this one.
+	 * @param deadline
+	 *            The {@code System.nanoTime} the search must stop by.
+	 * @return the value of the move, or {@code NaN} if the search ran
+	 *         out of time.
+	 **************************************************************************/
+	protected double getMoveValue(int cell, int turns, long deadline) {
+		double value;
+		this.deadline = deadline;
+		outOfTime = false;
+		nodes = 0;
+		value = moveValue(cell, turns);
+		if (outOfTime)
+			return Double.NaN;
+		depth = turns;
+		return value;
+	}
+
+	/**************************************************************************
+	 * Gets the legal moves for the current tile.
+	 * 
+	 * @return the array of the legal packed cells in order.
+	 **************************************************************************/
+	private int[] getMoves() {
+		int[] cells = new int[game.getRows() * game.getCols()];
+		int count = 0;
+		for (int cell = game.nextLegalMove(0); cell >= 0; cell = game
+				.nextLegalMove(cell + 1))
+			cells[count++] = cell;
+		return Arrays.copyOf(cells, count);
+	}
+
+	/**************************************************************************
+	 * Moves the given element of an array to the front, shifting the
+	 * elements before it back by one.
+	 * 
+	 * @param cells
+	 *            The array of cells.
+	 * @param index
+	 *            The index of the element to move.
+	 **************************************************************************/
+	private void swapToFront(int[] cells, int index) {
+		int cell = cells[index];
+		System.arraycopy(cells, 0, cells, 1, index);
+		cells[0] = cell;
+	}
+
+	/**************************************************************************
+	 * Gets the value of placing the current tile on the given cell.
+	 * 
+	 * @param cell
+	 *            The packed cell of the move.
+	 * @param depth
+	 *            The number of turns left to search after this one.
+	 * @return the value of the move for the player being advised.
+	 **************************************************************************/
+	private double moveValue(int cell, int depth) {
+		int slot = game.getCurrentPlayerNum();
+		boolean wasDrawn = drawn[slot];
+		double value;
+		try {
+			game.setTile(cell);
+		} catch (MiddleOfNowhereException e) {
+			return Double.NaN;
+		} catch (CutoffException e) {
+			return Double.NaN;
+		}
+		drawn[slot] = true;
+		value = value(depth - 1);
+		drawn[slot] = wasDrawn;
+		game.undoTile();
+		return value;
+	}
+
+	/**************************************************************************
+	 * Gets the value of the current position, averaging over the tile
+	 * the current player might hold if it was drawn during the search.
+	 * 
+	 * @param depth
+	 *            The number of turns left to search.
+	 * @return the value of the position for the player being advised.
+	 **************************************************************************/
+	private double value(int depth) {
+		int slot = game.getCurrentPlayerNum();
+		double value = 0;
+		TileCell held;
+		nodes++;
+		if ((nodes & CLOCK_CHECK) == 0 && System.nanoTime() > deadline)
+			outOfTime = true;
+		if (outOfTime || depth == 0 || game.isComplete())
+			return evaluate();
+		if (!drawn[slot])
+			return turnValue(depth);
+		for (int t = 0; t < chances.length; t++)
+			if (chances[t] != 0) {
+				held = game.setCurrentTile(slot, TileCell.types[t]);
+				value += chances[t] * turnValue(depth);
+				game.restoreCurrentTile(slot, held);
+			}
+		return value;
+	}
+
+	/**************************************************************************
+	 * Gets the value of the current position when the tile of the
+	 * current player is known. The legal moves are walked in the game
+	 * itself, which every move tried puts back as it was.
+	 * 
+	 * @param depth
+	 *            The number of turns left to search.
+	 * @return the value of the position for the player being advised.
+	 **************************************************************************/
+	private double turnValue(int depth) {
+		boolean advised = getOwner(game.getCurrentPlayerNum()) == player;
+		double best = advised ? Double.NEGATIVE_INFINITY
+				: Double.POSITIVE_INFINITY;
+		double value;
+		int cell = game.nextLegalMove(0);
+		if (cell == -1)
+			return evaluate();
+		while (cell >= 0 && !outOfTime) {
+			value = moveValue(cell, depth);
+			if (advised ? value > best : value < best)
+				best = value;
+			cell = game.nextLegalMove(cell + 1);
+		}
+		return best;
+	}
+
+	/**************************************************************************
+	 * Gets the value of the current position as the provisional score of
+	 * the player being advised minus the best provisional score of the
+	 * other players. Unfinished routes count as if they were completed
+	 * now, so the search does not rush to close short routes. The
+	 * engine keeps these scores up to date as tiles are placed and
+	 * undone, so nothing is counted here.
+	 * 
+	 * @return the value of the position.
+	 **************************************************************************/
+	private double evaluate() {
+		int other = Integer.MIN_VALUE;
+		for (int i = 0; i < game.getNumOfPlayers(); i++)
+			if (i != player)
+				other = Math.max(other, game.getProvisionalScore(i));
+		return game.getProvisionalScore(player) - other;
+	}
+
+	/**************************************************************************
+	 * Gets the player who owns the tile in the given slot.
+	 * 
+	 * @param slot
+	 *            The player number, or the number of players for the
+	 *            draw pile.
+	 * @return the player who owns the slot.
+	 **************************************************************************/
+	private int getOwner(int slot) {
+		if (slot == game.getNumOfPlayers())
+			return game.getDrawPilePlayer();
+		else
+			return slot;
+	}
+
+	/**************************************************************************
+	 * Gets the number of positions searched by the last search.
+	 * 
+	 * @return the number of positions searched.
+	 **************************************************************************/
+	protected long getNodes() {
+		return nodes;
+	}
+
+	/**************************************************************************
+	 * Gets the depth of the last search that finished in time.
+	 * 
+	 * @return the depth in turns of the last complete search.
+	 **************************************************************************/
+	protected int getDepth() {
+		return depth;
+	}
+}
@@ -0,0 +1,246 @@
+package game;
+
+/**************************************************************************
+ * An unchanging copy of the state of a Metro game after a move. The
+ * {@code MetroControl} publishes a new snapshot after every move, so
+ * any number of threads can read the latest one without locking while
+ * the game goes on. Each snapshot has a version one higher than the
+ * one before it. Arrays that a move does not change are shared with
+ * the snapshot before.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroSnapshot {
+
+	/** The value of an empty cell. */
+	private static final int EMPTY = -1;
+
+	/** The version of the snapshot. */
+	private final long version;
+
+	/** The number of rows and columns in the game board. */
+	private final int rows, cols;
+
+	/** The tile type on each packed cell, or {@code EMPTY}. */
+	private final int[] tiles;
+
+	/** The owner of the tile on each packed cell, or {@code EMPTY}. */
+	private final int[] owners;
+
+	/** The id of the tile on each packed cell, or {@code EMPTY}. */
+	private final int[] ids;
+
+	/** The score of each player. */
+	private final int[] scores;
+
+	/** The number of the current player. */
+	private final int turn;
+
+	/** The number of cells with a tile on them. */
+	private final int placed;
+
+	/**************************************************************************
+	 * Constructor for the first {@code MetroSnapshot} of a game. The
+	 * arrays are kept, so they must not be changed afterwards.
+	 * 
+	 * @param version
+	 *            The version of the snapshot.
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @param tiles
+	 *            The tile type on each packed cell.
+	 * @param owners
+	 *            The owner of the tile on each packed cell.
+	 * @param ids
+	 *            The id of the tile on each packed cell.
+	 * @param scores
+	 *            The score of each player.
+	 * @param turn
+	 *            The number of the current player.
+	 * @param placed
+	 *            The number of cells with a tile on them.
+	 **************************************************************************/
+	protected MetroSnapshot(long version, int rows, int cols, int[] tiles,
+			int[] owners, int[] ids, int[] scores, int turn, int placed) {
+		this.version = version;
+		this.rows = rows;
+		this.cols = cols;
+		this.tiles = tiles;
+		this.owners = owners;
+		this.ids = ids;
+		this.scores = scores;
+		this.turn = turn;
+		this.placed = placed;
+	}
+
+	/**************************************************************************
+	 * Constructor for the {@code MetroSnapshot} after a move that
+	 * changed at most one cell. The cell arrays are only copied if the
+	 * cell changed.
+	 * 
+	 * @param previous
+	 *            The snapshot before the move.
+	 * @param cell
+	 *            The packed cell the move changed, or {@code -1}.
+	 * @param tile
+	 *            The tile type now on the cell.
+	 * @param owner
+	 *            The owner of the tile now on the cell.
+	 * @param id
+	 *            The id of the tile now on the cell.
+	 * @param scores
+	 *            The score of each player, which is kept.
+	 * @param turn
+	 *            The number of the current player.
+	 * @param placed
+	 *            The number of cells with a tile on them.
+	 **************************************************************************/
+	protected MetroSnapshot(MetroSnapshot previous, int cell, int tile,
+			int owner, int id, int[] scores, int turn, int placed) {
+		version = previous.version + 1;
+		rows = previous.rows;
+		cols = previous.cols;
+		if (cell == -1) {
+			tiles = previous.tiles;
+			owners = previous.owners;
+			ids = previous.ids;
+		} else {
+			tiles = previous.tiles.clone();
+			owners = previous.owners.clone();
+			ids = previous.ids.clone();
+			tiles[cell] = tile;
+			owners[cell] = owner;
+			ids[cell] = id;
+		}
+		this.scores = scores;
+		this.turn = turn;
+		this.placed = placed;
+	}
+
+	/**************************************************************************
+	 * Gets the version of the snapshot, which goes up by one with every
+	 * snapshot published for a control class.
+	 * 
+	 * @return the version of the snapshot.
+	 **************************************************************************/
+	public long getVersion() {
+		return version;
+	}
+
+	/**************************************************************************
+	 * Gets the number of rows on the game board.
+	 * 
+	 * @return the number of rows on the game board.
+	 **************************************************************************/
+	public int getRows() {
+		return rows;
+	}
+
+	/**************************************************************************
+	 * Gets the number of columns on the game board.
+	 * 
+	 * @return the number of columns on the game board.
+	 **************************************************************************/
+	public int getCols() {
+		return cols;
+	}
+
+	/**************************************************************************
+	 * Gets the tile type on a cell. Each cell is numbered {@code row *
+	 * cols + col}.
+	 * 
+	 * @param cell
+	 *            The packed cell.
+	 * @return the tile type, or {@code -1} if the cell is empty.
+	 **************************************************************************/
+	public int getTile(int cell) {
+		return tiles[cell];
+	}
+
+	/**************************************************************************
+	 * Gets the player who owns the tile on a cell.
+	 * 
+	 * @param cell
+	 *            The packed cell.
+	 * @return the owner of the tile, or {@code -1} if the cell is empty.
+	 **************************************************************************/
+	public int getOwner(int cell) {
+		return owners[cell];
+	}
+
+	/**************************************************************************
+	 * Gets the id of the tile on a cell, which counts the order the
+	 * tiles were placed in.
+	 * 
+	 * @param cell
+	 *            The packed cell.
+	 * @return the id of the tile, or {@code -1} if the cell is empty.
+	 **************************************************************************/
+	public int getId(int cell) {
+		return ids[cell];
+	}
+
+	/**************************************************************************
+	 * Gets the number of players in the game.
+	 * 
+	 * @return the number of players.
+	 **************************************************************************/
+	public int getNumOfPlayers() {
+		return scores.length;
+	}
+
+	/**************************************************************************
+	 * Gets the score of a player.
+	 * 
+	 * @param playerNum
+	 *            The number of the player.
+	 * @return the score of the player.
+	 **************************************************************************/
+	public int getScore(int playerNum) {
+		return scores[playerNum];
+	}
+
+	/**************************************************************************
+	 * Gets the number of the current player, or the number of players
+	 * if the draw pile is in use.
+	 * 
+	 * @return the number of the current player.
+	 **************************************************************************/
+	public int getCurrentPlayerNum() {
+		return turn;
+	}
+
+	/**************************************************************************
+	 * Gets the number of tiles on the game board.
+	 * 
+	 * @return the number of placed tiles.
+	 **************************************************************************/
+	public int getPlacedTiles() {
+		return placed;
+	}
+
+	/**************************************************************************
+	 * Tests to see if every cell has a tile.
+	 * 
+	 * @return {@code true} if the game is complete, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	public boolean isComplete() {
+		return placed == tiles.length;
+	}
+
+	/**************************************************************************
+	 * Gets a new array of the tile types on the game board.
+	 * 
+	 * @return the array of tile types, with {@code -1} for empty cells.
+	 **************************************************************************/
+	public int[][] getGameBoard() {
+		int[][] board = new int[rows][cols];
+		for (int i = 0; i < rows; i++)
+			System.arraycopy(tiles, i * cols, board[i], 0, cols);
+		return board;
+	}
+}
@@ -0,0 +1,80 @@
+package game;
+
+import utility.*;
+
+/**************************************************************************
+ * A suggested position for the current tile, with the value the search
+ * gave it for the player whose turn it is. Suggestions sort with the
+ * best value first.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MoveSuggestion implements Comparable<MoveSuggestion> {
+
+	/** The suggested position. */
+	private Position position;
+
+	/** The value of the position. */
+	private double value;
+
+	/** The number of turns searched to find the value. */
+	private int depth;
+
+	/**************************************************************************
+	 * Constructor for the {@code MoveSuggestion} class.
+	 * 
+	 * @param position
+	 *            The suggested position.
+	 * @param value
+	 *            The value of the position.
+	 * @param depth
+	 *            The number of turns searched to find the value.
+	 **************************************************************************/
+	protected MoveSuggestion(Position position, double value, int depth) {
+		this.position = position;
+		this.value = value;
+		this.depth = depth;
+	}
+
+	/**************************************************************************
+	 * Gets the suggested position.
+	 * 
+	 * @return the suggested position.
+	 **************************************************************************/
+	public Position getPosition() {
+		return position;
+	}
+
+	/**************************************************************************
+	 * Gets the value of the position, which is the expected lead in
+	 * points of the current player over the best other player.
+	 * 
+	 * @return the value of the position.
+	 **************************************************************************/
+	public double getValue() {
+		return value;
+	}
+
+	/**************************************************************************
+	 * Gets the number of turns searched to find the value.
+	 * 
+	 * @return the depth of the search.
+	 **************************************************************************/
+	public int getDepth() {
+		return depth;
+	}
+
+	/**************************************************************************
+	 * Compares two suggestions so the one with the higher value comes
+	 * first.
+	 * 
+	 * @param other
+	 *            The suggestion to compare to.
+	 * @return a negative number if this suggestion is better, a positive
+	 *         number if it is worse, or zero if they are equal.
+	 **************************************************************************/
+	public int compareTo(MoveSuggestion other) {
+		return Double.compare(other.value, value);
+	}
+}
@@ -1,7 +1,7 @@
 package game;
 
 import game.TileCell.Link;
-import java.util.ArrayList;
+import java.util.Arrays;
 import utility.Position;
 
 /**************************************************************************
@@ -13,12 +13,21 @@ import utility.Position;
  **************************************************************************/
 public class StationCell extends Cell {
 
-	/** The array of {@code PositionExits} connected to the station. */
-	private ArrayList<PositionExit> cells;
+	/** The packed board cells connected to the station, in order. */
+	private int[] cells;
+
+	/** The exits of the cells connected to the station. */
+	private Link[] exits;
+
+	/** The number of cells connected to the station. */
+	private int size;
 
 	/** The exit of the station. */
 	private Link exit;
 
+	/** The packed board cell that the exit of the station leads into. */
+	private int entryCell;
+
 	/** The owner of the station. */
 	private int owner;
 
@@ -43,7 +52,28 @@ public class StationCell extends Cell {
 		super();
 		super.setPosition(position);
 		exit = getExit(super.getPosition(), rows, cols);
-		cells = new ArrayList<PositionExit>(0);
+		entryCell = getEntryCell(super.getPosition(), rows, cols);
+		cells = new int[8];
+		exits = new Link[8];
+	}
+
+	/**************************************************************************
+	 * Copy constructor for the {@code StationCell} class.
+	 * 
+	 * @param other
+	 *            The {@code StationCell} to copy.
+	 **************************************************************************/
+	protected StationCell(StationCell other) {
+		super();
+		super.setPosition(other.getPosition());
+		cells = other.cells.clone();
+		exits = other.exits.clone();
+		size = other.size;
+		exit = other.exit;
+		entryCell = other.entryCell;
+		owner = other.owner;
+		complete = other.complete;
+		scored = other.scored;
 	}
 
 	/**************************************************************************
@@ -69,15 +99,19 @@ public class StationCell extends Cell {
 	 * Adds a tile to the list of cells connected to this {@code
 	 * StationCell}.
 	 * 
-	 * @param x
-	 *            The x coordinate of the new cell.
-	 * @param y
-	 *            The y coordinate of the new cell.
+	 * @param cell
+	 *            The packed board cell of the new tile.
 	 * @param exit
 	 *            The exit of the new cell.
 	 **************************************************************************/
-	protected void addTile(int x, int y, Link exit) {
-		cells.add(new PositionExit(x, y, exit));
+	protected void addTile(int cell, Link exit) {
+		if (size == cells.length) {
+			cells = Arrays.copyOf(cells, size * 2);
+			exits = Arrays.copyOf(exits, size * 2);
+		}
+		cells[size] = cell;
+		exits[size] = exit;
+		size++;
 	}
 
 	/**************************************************************************
@@ -105,34 +139,77 @@ public class StationCell extends Cell {
 	}
 
 	/**************************************************************************
-	 * Gets the tail of the array of {@code PositionExits}.
+	 * Gets the packed board cell that the exit of the station leads
+	 * into.
+	 * 
+	 * @param position
+	 *            The position of the {@code StationCell}.
+	 * @param rows
+	 *            The total number of rows in the game board.
+	 * @param cols
+	 *            The total number of columns in the game board.
+	 * @return the packed board cell next to the {@code StationCell}.
+	 **************************************************************************/
+	private int getEntryCell(Position position, int rows, int cols) {
+		int x = Math.min(Math.max(position.getX(), 0), rows - 1);
+		int y = Math.min(Math.max(position.getY(), 0), cols - 1);
+		return x * cols + y;
+	}
+
+	/**************************************************************************
+	 * Gets the packed board cell that the exit of the station leads
+	 * into.
+	 * 
+	 * @return the packed board cell next to the {@code StationCell}.
+	 **************************************************************************/
+	protected int getEntryCell() {
+		return entryCell;
+	}
+
+	/**************************************************************************
+	 * Gets the packed board cell at the tail of the station.
+	 * 
+	 * @return the last cell connected to the station, or {@code -1} if
+	 *         the station has not been started.
+	 **************************************************************************/
+	protected int getTailCell() {
+		if (size == 0)
+			return -1;
+		else
+			return cells[size - 1];
+	}
+
+	/**************************************************************************
+	 * Gets the exit at the tail of the station.
 	 * 
-	 * @return The last element in the array of {@code PositionExits}.
+	 * @return the exit of the last cell connected to the station, or
+	 *         the exit of the station if it has not been started.
 	 **************************************************************************/
-	protected PositionExit getTail() {
-		if (cells.size() == 0)
-			return (new PositionExit(super.getPosition().getX(), super
-					.getPosition().getY(), exit));
+	protected Link getTailExit() {
+		if (size == 0)
+			return exit;
 		else
-			return cells.get(cells.size() - 1);
+			return exits[size - 1];
 	}
 
 	/**************************************************************************
-	 * Gets the first {@code PositionExit} of the array.
+	 * Gets the first packed board cell connected to the station.
 	 * 
-	 * @return the first {@code PositionExit} of the array.
+	 * @return the first cell connected to the station.
 	 **************************************************************************/
-	protected Position getFirstCell() {
-		return cells.get(0);
+	protected int getFirstCell() {
+		return cells[0];
 	}
 
 	/**************************************************************************
-	 * Gets the array of {@code PositionExits}.
+	 * Gets the packed board cell at the given index of the station.
 	 * 
-	 * @return the array of {@code PositionExits}.
+	 * @param index
+	 *            The index of the cell in the station.
+	 * @return the cell at the given index.
 	 **************************************************************************/
-	protected ArrayList<PositionExit> getCells() {
-		return cells;
+	protected int getCell(int index) {
+		return cells[index];
 	}
 
 	/**************************************************************************
@@ -142,6 +219,19 @@ public class StationCell extends Cell {
 		complete = true;
 	}
 
+	/**************************************************************************
+	 * Removes the cells added after the station had the given number of
+	 * cells. The station is no longer complete or scored.
+	 * 
+	 * @param size
+	 *            The number of cells to keep.
+	 **************************************************************************/
+	protected void removeTiles(int size) {
+		this.size = size;
+		complete = false;
+		scored = false;
+	}
+
 	/**************************************************************************
 	 * Sets the scored status of the station.
 	 **************************************************************************/
@@ -166,7 +256,7 @@ public class StationCell extends Cell {
 	 *         false} otherwise.
 	 **************************************************************************/
 	protected boolean isStarted() {
-		return cells.size() != 0;
+		return size != 0;
 	}
 
 	/**************************************************************************
@@ -180,11 +270,11 @@ public class StationCell extends Cell {
 	}
 
 	/**************************************************************************
-	 * Gets the number of cells in the {@code cell} array.
+	 * Gets the number of cells connected to the station.
 	 * 
-	 * @return the number of cells in the {@code cell} array.
+	 * @return the number of cells connected to the station.
 	 **************************************************************************/
 	protected int numberOfCells() {
-		return cells.size();
+		return size;
 	}
 }
@@ -27,9 +27,16 @@ public class TileCell extends Cell {
 			Type.r, Type.s, Type.t, Type.u, Type.v, Type.w, Type.x };
 
 	/** Directions of entrance and exit. */
-	private Link[] links = { Link.NorthLeft, Link.NorthRight,
-			Link.EastUpper, Link.EastLower, Link.SouthRight,
-			Link.SouthLeft, Link.WestLower, Link.WestUpper };
+	private static final Link[] links = { Link.NorthLeft,
+			Link.NorthRight, Link.EastUpper, Link.EastLower,
+			Link.SouthRight, Link.SouthLeft, Link.WestLower,
+			Link.WestUpper };
+
+	/**
+	 * The exit {@code Link} of every tile, indexed by the ordinal of
+	 * the {@code Type} and the ordinal of the entrance {@code Link}.
+	 */
+	private static final Link[][] routes = routeGenerator();
 
 	/**************************************************************************
 	 * Primary constructor for the {@code TileCell} class. Sets the type
@@ -43,6 +50,30 @@ public class TileCell extends Cell {
 		typeSelection(type);
 	}
 
+	/**************************************************************************
+	 * Constructor for the {@code TileCell} class given its {@code
+	 * Type}.
+	 * 
+	 * @param type
+	 *            The {@code Type} of the {@code TileCell}.
+	 **************************************************************************/
+	protected TileCell(Type type) {
+		tileType = type;
+	}
+
+	/**************************************************************************
+	 * Copy constructor for the {@code TileCell} class.
+	 * 
+	 * @param other
+	 *            The {@code TileCell} to copy.
+	 **************************************************************************/
+	protected TileCell(TileCell other) {
+		tileType = other.tileType;
+		id = other.id;
+		owner = other.owner;
+		setPosition(other.getPosition());
+	}
+
 	/**************************************************************************
 	 * Gets the {@code Type} of the {@code TileCell}.
 	 * 
@@ -124,7 +155,49 @@ public class TileCell extends Cell {
 	 * @return the exit {@code Link}.
 	 **************************************************************************/
 	protected Link getExitLink(Link entrance) {
-		int[] tilePath = tileType.getPath();
+		return routes[tileType.ordinal()][entrance.ordinal()];
+	}
+
+	/**************************************************************************
+	 * Finds the exit {@code Link} given a tile {@code Type} and an
+	 * entrance {@code Link} using the table of routes.
+	 * 
+	 * @param type
+	 *            The {@code Type} of the tile.
+	 * @param entrance
+	 *            The entrance {@code Link}.
+	 * @return the exit {@code Link}.
+	 **************************************************************************/
+	protected static Link getExitLink(Type type, Link entrance) {
+		return routes[type.ordinal()][entrance.ordinal()];
+	}
+
+	/**************************************************************************
+	 * Generates the table of routes by scanning the path of every
+	 * {@code Type} for every entrance {@code Link}.
+	 * 
+	 * @return the table of exit {@code Links} for every tile.
+	 **************************************************************************/
+	private static Link[][] routeGenerator() {
+		Link[][] table = new Link[types.length][links.length];
+		for (int i = 0; i < types.length; i++)
+			for (int j = 0; j < links.length; j++)
+				table[i][j] = scanExitLink(types[i], links[j]);
+		return table;
+	}
+
+	/**************************************************************************
+	 * Finds the exit {@code Link} given an entrance {@code Link} by
+	 * scanning the path of the given {@code Type}.
+	 * 
+	 * @param type
+	 *            The {@code Type} of the tile.
+	 * @param entrance
+	 *            The entrance {@code Link}.
+	 * @return the exit {@code Link}.
+	 **************************************************************************/
+	protected static Link scanExitLink(Type type, Link entrance) {
+		int[] tilePath = type.getPath();
 		int startNum = 0;
 		Link start = null;
 		for (int i = 0; i < tilePath.length; i++)
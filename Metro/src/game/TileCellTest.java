@@ -0,0 +1,80 @@
+package game;
+
+import game.TileCell.Link;
+import game.TileCell.Type;
+
+/**************************************************************************
+ * Tests the table of routes in {@code TileCell} against the path scan
+ * it replaced.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class TileCellTest {
+
+	/** The number of failed tests. */
+	private static int numFailures = 0;
+
+	/**************************************************************************
+	 * Makes sure the table gives the same exit as the path scan for
+	 * every tile and every entrance.
+	 **************************************************************************/
+	private static void testRouteParity() {
+		int checked = 0;
+		boolean passed = true;
+		Link expected;
+		TileCell tile;
+		for (Type type : TileCell.types) {
+			tile = new TileCell(type.name());
+			for (Link entrance : Link.values()) {
+				expected = TileCell.scanExitLink(type, entrance);
+				if (tile.getExitLink(entrance) != expected
+						|| TileCell.getExitLink(type, entrance) != expected) {
+					System.out.println(type + " " + entrance + ":\tFAILED");
+					passed = false;
+					numFailures++;
+				}
+				checked++;
+			}
+		}
+		if (checked != 192) {
+			passed = false;
+			numFailures++;
+		}
+		System.out.println("Route parity (" + checked + " routes)\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Makes sure every route leads to a different link and leads back
+	 * to where it started.
+	 **************************************************************************/
+	private static void testRouteSymmetry() {
+		Link exit;
+		boolean passed = true;
+		for (Type type : TileCell.types)
+			for (Link entrance : Link.values()) {
+				exit = TileCell.getExitLink(type, entrance);
+				if (exit == null || exit == entrance
+						|| TileCell.getExitLink(type, exit) != entrance) {
+					System.out.println(type + " " + entrance + ":\tFAILED");
+					passed = false;
+					numFailures++;
+				}
+			}
+		System.out.println("Route symmetry\t"
+				+ (passed ? "PASSED" : "FAILED"));
+	}
+
+	/**************************************************************************
+	 * Runs all of the tests.
+	 * 
+	 * @param args
+	 *            The command line arguments, which are not used.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		testRouteParity();
+		testRouteSymmetry();
+		System.out.println("Number of failures:  " + numFailures);
+	}
+}
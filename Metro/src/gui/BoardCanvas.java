@@ -0,0 +1,275 @@
+package gui;
+
+import game.MetroControl;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.JComponent;
+import utility.Position;
+
+/**************************************************************************
+ * A view of the whole Metro game board, terminals included, drawn onto
+ * a single double-buffered component. The cell under the mouse is found
+ * from its coordinates, and only the cells that change are repainted,
+ * so large boards do not need a panel and listeners for every cell.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class BoardCanvas extends JComponent {
+
+	/** The serial id of this class. */
+	private static final long serialVersionUID = -6153908468231770392L;
+
+	/** The value of an empty cell. */
+	private static final int EMPTY = -1;
+
+	/** The control class for the game. */
+	private MetroControl control;
+
+	/** The images the board is drawn from. */
+	private TileAtlas atlas;
+
+	/** The number of rows and columns in the game board. */
+	private int rows, cols;
+
+	/** The size of a side of each cell in pixels. */
+	private int dim;
+
+	/** The tile type on each packed cell, or {@code EMPTY}. */
+	private int[] cells;
+
+	/** The owner of the terminal next to each side of the board. */
+	private int[] top, bottom, left, right;
+
+	/** The packed cell showing the preview of the current tile. */
+	private int hover;
+
+	/**************************************************************************
+	 * Constructor for the {@code BoardCanvas} class. The board starts
+	 * with the tiles already placed in the game.
+	 * 
+	 * @param control
+	 *            The control class for the game.
+	 * @param atlas
+	 *            The images the board is drawn from.
+	 * @param dim
+	 *            The size of a side of each cell in pixels.
+	 **************************************************************************/
+	protected BoardCanvas(MetroControl control, TileAtlas atlas, int dim) {
+		int[][] board = control.getGameBoard();
+		int station = 0;
+		this.control = control;
+		this.atlas = atlas;
+		this.dim = dim;
+		rows = control.getRows();
+		cols = control.getCols();
+		cells = new int[rows * cols];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				cells[i * cols + j] = board[i][j];
+		top = new int[cols];
+		bottom = new int[cols];
+		left = new int[rows];
+		right = new int[rows];
+
+		// The stations are numbered across the top, down both sides and
+		// then across the bottom.
+		for (int j = 0; j < cols; j++)
+			top[j] = control.getStationOwner(station++);
+		for (int i = 0; i < rows; i++) {
+			left[i] = control.getStationOwner(station++);
+			right[i] = control.getStationOwner(station++);
+		}
+		for (int j = 0; j < cols; j++)
+			bottom[j] = control.getStationOwner(station++);
+		hover = EMPTY;
+		setPreferredSize(new Dimension((cols + 2) * dim, (rows + 2) * dim));
+		setOpaque(true);
+		setDoubleBuffered(true);
+		addMouseMotionListener(new MouseAdapter() {
+
+			/****************************************************************
+			 * Moves the preview of the current tile under the cursor.
+			 ****************************************************************/
+			public void mouseMoved(MouseEvent e) {
+				Position position = getPosition(e.getX(), e.getY());
+				if (position == null)
+					setHover(EMPTY);
+				else
+					setHover(position.getX() * cols + position.getY());
+			}
+		});
+		addMouseListener(new MouseAdapter() {
+
+			/****************************************************************
+			 * Removes the preview when the cursor leaves the board.
+			 ****************************************************************/
+			public void mouseExited(MouseEvent e) {
+				setHover(EMPTY);
+			}
+		});
+	}
+
+	/**************************************************************************
+	 * Gets the cell at the given pixel coordinates.
+	 * 
+	 * @param x
+	 *            The horizontal pixel coordinate.
+	 * @param y
+	 *            The vertical pixel coordinate.
+	 * @return the position of the cell, or {@code null} if the point is
+	 *         not on a cell.
+	 **************************************************************************/
+	protected Position getPosition(int x, int y) {
+		int row = y / dim - 1;
+		int col = x / dim - 1;
+		if (x < dim || y < dim || row >= rows || col >= cols)
+			return null;
+		return new Position(row, col);
+	}
+
+	/**************************************************************************
+	 * Tests to see if a tile has been placed on the given cell.
+	 * 
+	 * @param position
+	 *            The position of the cell.
+	 * @return {@code true} if the cell has a tile, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected boolean isSet(Position position) {
+		return cells[position.getX() * cols + position.getY()] != EMPTY;
+	}
+
+	/**************************************************************************
+	 * Shows a placed tile on the board.
+	 * 
+	 * @param position
+	 *            The position of the tile.
+	 * @param type
+	 *            The type of the tile.
+	 **************************************************************************/
+	protected void setTile(Position position, int type) {
+		int cell = position.getX() * cols + position.getY();
+		cells[cell] = type;
+		repaintCell(cell);
+	}
+
+	/**************************************************************************
+	 * Repaints the preview after the current tile has changed.
+	 **************************************************************************/
+	protected void updatePreview() {
+		if (hover != EMPTY)
+			repaintCell(hover);
+	}
+
+	/**************************************************************************
+	 * Moves the preview to another cell, repainting only the cell it
+	 * leaves and the cell it enters.
+	 * 
+	 * @param cell
+	 *            The packed cell to preview on, or {@code EMPTY}.
+	 **************************************************************************/
+	private void setHover(int cell) {
+		if (cell == hover)
+			return;
+		if (hover != EMPTY)
+			repaintCell(hover);
+		hover = cell;
+		if (hover != EMPTY)
+			repaintCell(hover);
+	}
+
+	/**************************************************************************
+	 * Marks the rectangle of a single cell to be repainted.
+	 * 
+	 * @param cell
+	 *            The packed cell.
+	 **************************************************************************/
+	private void repaintCell(int cell) {
+		repaint((cell % cols + 1) * dim, (cell / cols + 1) * dim, dim, dim);
+	}
+
+	/**************************************************************************
+	 * Paints the cells and terminals that lie in the area being
+	 * repainted.
+	 * 
+	 * @param g
+	 *            The graphics context to paint with.
+	 **************************************************************************/
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		int first;
+		int last;
+		int firstCol;
+		int lastCol;
+		int cell;
+		if (clip == null)
+			clip = new Rectangle(getSize());
+		first = Math.max(0, clip.y / dim);
+		last = Math.min(rows + 1, (clip.y + clip.height - 1) / dim);
+		firstCol = Math.max(0, clip.x / dim);
+		lastCol = Math.min(cols + 1, (clip.x + clip.width - 1) / dim);
+		for (int i = first; i <= last; i++)
+			for (int j = firstCol; j <= lastCol; j++) {
+				if (i == 0 || i == rows + 1)
+					paintTerminalRow(g, i, j);
+				else if (j == 0)
+					paintImage(g, atlas.getTerminal(left[i - 1],
+							TileAtlas.LEFT), i, j);
+				else if (j == cols + 1)
+					paintImage(g, atlas.getTerminal(right[i - 1],
+							TileAtlas.RIGHT), i, j);
+				else {
+					cell = (i - 1) * cols + j - 1;
+					if (cells[cell] != EMPTY)
+						paintImage(g, atlas.getTile(cells[cell]), i, j);
+					else if (cell == hover && control.inProgress())
+						paintImage(g, atlas.getTile(control
+								.getCurrentActiveTile()), i, j);
+					else
+						paintImage(g, atlas.getBackground(), i, j);
+				}
+			}
+	}
+
+	/**************************************************************************
+	 * Paints a square of the top or bottom row of terminals.
+	 * 
+	 * @param g
+	 *            The graphics context to paint with.
+	 * @param i
+	 *            The row of the square, counting the terminals.
+	 * @param j
+	 *            The column of the square, counting the terminals.
+	 **************************************************************************/
+	private void paintTerminalRow(Graphics g, int i, int j) {
+		if (j == 0 || j == cols + 1)
+			paintImage(g, atlas.getCorner(), i, j);
+		else if (i == 0)
+			paintImage(g, atlas.getTerminal(top[j - 1], TileAtlas.TOP), i,
+					j);
+		else
+			paintImage(g, atlas.getTerminal(bottom[j - 1],
+					TileAtlas.BOTTOM), i, j);
+	}
+
+	/**************************************************************************
+	 * Copies an image onto a square of the board.
+	 * 
+	 * @param g
+	 *            The graphics context to paint with.
+	 * @param image
+	 *            The image to copy.
+	 * @param i
+	 *            The row of the square, counting the terminals.
+	 * @param j
+	 *            The column of the square, counting the terminals.
+	 **************************************************************************/
+	private void paintImage(Graphics g, Image image, int i, int j) {
+		g.drawImage(image, j * dim, i * dim, null);
+	}
+}
@@ -1,14 +1,11 @@
 package gui;
 
 import game.*;
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 import utility.*;
 import java.awt.*;
-import java.awt.color.ColorSpace;
 import java.awt.event.*;
-import java.awt.geom.*;
 import java.awt.image.*;
 import java.io.*;
 import java.text.ParseException;
@@ -34,6 +31,12 @@ public class MetroGUI extends JFrame implements ActionListener {
 	/** The maximum board size. */
 	private static final int MAX = 10;
 
+	/**
+	 * The largest number of cells shown with a panel for every cell.
+	 * Larger boards are drawn onto a single {@code BoardCanvas}.
+	 */
+	private static final int PANEL_CELLS = 64;
+
 	/** The maximum number of players. */
 	private static final int MAX_PLAYERS = 7;
 
@@ -49,16 +52,16 @@ public class MetroGUI extends JFrame implements ActionListener {
 			DIM);
 
 	/** The orientation value of the top terminals. */
-	private static final int TOP = 1;
+	private static final int TOP = TileAtlas.TOP;
 
 	/** The orientation value of the right terminals. */
-	private static final int RIGHT = 2;
+	private static final int RIGHT = TileAtlas.RIGHT;
 
 	/** The orientation value of the bottom terminals. */
-	private static final int BOTTOM = 3;
+	private static final int BOTTOM = TileAtlas.BOTTOM;
 
 	/** The orientation value of the left terminals. */
-	private static final int LEFT = 4;
+	private static final int LEFT = TileAtlas.LEFT;
 
 	/** The new game window. */
 	private JFrame newGameWindow;
@@ -66,6 +69,9 @@ public class MetroGUI extends JFrame implements ActionListener {
 	/** The Metro tile fields. */
 	private MetroTile[][] tiles;
 
+	/** The board drawn onto one component, or null if panels are used. */
+	private BoardCanvas canvas;
+
 	/** A list of the board's {@code TerminalTiles}. */
 	private ArrayList<TerminalTile> terminals;
 
@@ -93,24 +99,18 @@ public class MetroGUI extends JFrame implements ActionListener {
 	/** The exit button for the frame. */
 	private JButton exit;
 
-	/** {@code ArrayLists} to store loaded images. */
-	private ArrayList<BufferedImage> tile, terminalImages;
+	/** The prepared images of the tiles and terminals. */
+	private TileAtlas atlas;
 
 	/** The current active {@code MetroTile}. */
 	private MetroTile current;
 
-	/** {@code MetroTile} background image. */
-	private BufferedImage background;
-
 	/** The {@code MetroTile} for each player. */
 	private MetroTile[] playerTiles;
 
 	/** The labels for each player's score. */
 	private JLabel[] playerScores;
 
-	/** The image of the corner terminals. */
-	private BufferedImage cornerTile;
-
 	/**************************************************************************
 	 * Constructor for the MetroGUI class. It will start the new game
 	 * window and primary frame setup process.
@@ -121,6 +121,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 				"<html>M<br><br>E<br><br>T<br><br>R<br>"
 						+ "<br>O</html>");
 		control = new MetroControl();
+		gameListenerAdder();
 		right = new JPanel();
 		scorePanel = new JPanel();
 		scorePanelBottom = new JPanel();
@@ -183,35 +184,11 @@ public class MetroGUI extends JFrame implements ActionListener {
 	}
 
 	/**************************************************************************
-	 * Loads all images necessary for operation of the GUI.
+	 * Starts loading all images necessary for operation of the GUI in
+	 * the background.
 	 **************************************************************************/
 	private void loadImages() {
-		char tileId = (char) MetroEngine.ASCIIJUMP;
-		tile = new ArrayList<BufferedImage>();
-		terminalImages = new ArrayList<BufferedImage>();
-		try {
-
-			// Loads the MetroTile images.
-			for (int i = 0; i < NUMBEROFTILES; i++) {
-				tile.add(ImageIO.read(new File(String.valueOf(tileId)
-						+ ".jpg")));
-				tileId += (char) 1;
-			}
-
-			// Loads the TerminalTile images
-			for (int j = 0; j < MAX_PLAYERS; j++)
-				terminalImages.add(ImageIO.read(new File(String
-						.valueOf(j)
-						+ ".jpg")));
-
-			// Misc images.
-			background = ImageIO.read(new File("background.jpg"));
-			cornerTile = ImageIO.read(new File("cornertile.jpg"));
-		} catch (IOException e) {
-			JOptionPane.showMessageDialog(null, "Image Load Error",
-					"Program Terminating", JOptionPane.ERROR_MESSAGE);
-			System.exit(0);
-		}
+		atlas = new TileAtlas(NUMBEROFTILES, MAX_PLAYERS);
 	}
 
 	/**************************************************************************
@@ -346,6 +323,11 @@ public class MetroGUI extends JFrame implements ActionListener {
 	private void mainFieldSetup() {
 		int rows = control.getRows();
 		int cols = control.getCols();
+		canvas = null;
+		if (rows * cols > PANEL_CELLS || Boolean.getBoolean("metro.canvas")) {
+			canvasSetup();
+			return;
+		}
 		tiles = new MetroTile[rows][cols];
 		terminals = new ArrayList<TerminalTile>();
 		gamePanel.setLayout(new GridLayout(rows + 2, cols + 2));
@@ -356,7 +338,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 			terminalAdder(LEFT);
 			for (int j = 0; j < tiles[i].length; j++) {
 				tiles[i][j] = new MetroTile(new Position(i, j),
-						background);
+						atlas.getBackground());
 				tileListenerAdder(i, j);
 				tiles[i][j].setPreferredSize(PANEL_SIZE);
 				tiles[i][j].setBorder(BorderFactory
@@ -369,6 +351,27 @@ public class MetroGUI extends JFrame implements ActionListener {
 		terminalRowAdder(cols, BOTTOM);
 	}
 
+	/**************************************************************************
+	 * Sets up the game board as a single {@code BoardCanvas}, which
+	 * finds the clicked cell from the mouse coordinates.
+	 **************************************************************************/
+	private void canvasSetup() {
+		canvas = new BoardCanvas(control, atlas, DIM);
+		gamePanel.setLayout(new BorderLayout());
+		gamePanel.add(canvas, BorderLayout.CENTER);
+		canvas.addMouseListener(new MouseAdapter() {
+
+			/****************************************************************
+			 * Places the current tile on the clicked cell.
+			 ****************************************************************/
+			public void mouseClicked(MouseEvent e) {
+				Position position = canvas.getPosition(e.getX(), e.getY());
+				if (position != null && !canvas.isSet(position))
+					placeTile(position);
+			}
+		});
+	}
+
 	/**************************************************************************
 	 * Adds listeners to {@code MetroTiles}.
 	 * 
@@ -414,26 +417,30 @@ public class MetroGUI extends JFrame implements ActionListener {
 	}
 
 	/**************************************************************************
-	 * Adds tiles to the game board and responds to exceptions thrown by
-	 * the engine.
+	 * Adds tiles to the game board when an empty {@code MetroTile} is
+	 * clicked.
 	 * 
 	 * @param e
 	 *            The {@code MouseEvent} that activated this method.
 	 **************************************************************************/
 	private void tileAdder(MouseEvent e) {
 		MetroTile temp = (MetroTile) e.getSource();
-		BufferedImage image = getCurrentActiveTile();
+		if (!temp.getSet())
+			placeTile(temp.getPosition());
+	}
+
+	/**************************************************************************
+	 * Places the current tile and responds to exceptions thrown by the
+	 * engine.
+	 * 
+	 * @param position
+	 *            The position to place the tile on.
+	 **************************************************************************/
+	private void placeTile(Position position) {
 		try {
-			if (!temp.getSet()) {
-				control.setTile(temp.getPosition());
-				temp.confirmSet(image);
-				updatePlayerTileImages();
-				updateScores();
-				if (control.isComplete())
-					endGame();
-				restart.setEnabled(true);
-				save.setEnabled(true);
-			}
+			control.setTile(position);
+			restart.setEnabled(true);
+			save.setEnabled(true);
 		} catch (MiddleOfNowhereException e1) {
 			JOptionPane.showMessageDialog(null,
 					"You must place tiles so that they are"
@@ -450,6 +457,58 @@ public class MetroGUI extends JFrame implements ActionListener {
 		}
 	}
 
+	/**************************************************************************
+	 * Adds the listener that repaints the parts of the frame changed by
+	 * each move.
+	 **************************************************************************/
+	private void gameListenerAdder() {
+		control.addMetroListener(new MetroAdapter() {
+
+			/****************************************************************
+			 * Shows the placed tile and the tile drawn to replace it.
+			 ****************************************************************/
+			public void tilePlaced(MetroEvent e) {
+				if (canvas != null)
+					canvas.setTile(e.getPosition(), e.getTile());
+				else
+					tiles[e.getPosition().getX()][e.getPosition().getY()]
+							.confirmSet(atlas.getTile(e.getTile()));
+				updatePlayerTileImage(e.getPlayerNum());
+			}
+
+			/****************************************************************
+			 * Shows the new score of a player.
+			 ****************************************************************/
+			public void scoreChanged(MetroEvent e) {
+				updateScore(e.getPlayerNum(), e.getScore());
+			}
+
+			/****************************************************************
+			 * Shows the tile of the player whose turn it now is.
+			 ****************************************************************/
+			public void turnAdvanced(MetroEvent e) {
+				updatePlayerTileImage(e.getPlayerNum());
+				if (canvas != null)
+					canvas.updatePreview();
+			}
+
+			/****************************************************************
+			 * Asks to play again once the move has been handled.
+			 ****************************************************************/
+			public void gameOver(MetroEvent e) {
+				SwingUtilities.invokeLater(new Runnable() {
+
+					/********************************************************
+					 * Provides the game over dialog.
+					 ********************************************************/
+					public void run() {
+						endGame();
+					}
+				});
+			}
+		});
+	}
+
 	/**************************************************************************
 	 * Provides a dialog box for when the game has been completed.
 	 **************************************************************************/
@@ -471,12 +530,9 @@ public class MetroGUI extends JFrame implements ActionListener {
 	 *            The orientation number of the tile.
 	 **************************************************************************/
 	private void terminalAdder(int orientation) {
-		BufferedImage terminalImage;
 		TerminalTile terminal;
 		terminals.add(new TerminalTile());
 		terminal = terminals.get(terminals.size() - 1);
-		terminalImage = terminalImages.get(control
-				.getStationOwner(terminals.size() - 1));
 		gamePanel.add(terminal);
 		format(terminal);
 		terminal.addMouseMotionListener(new MouseMotionAdapter() {
@@ -489,45 +545,8 @@ public class MetroGUI extends JFrame implements ActionListener {
 				movedTerminal();
 			}
 		});
-		terminal.setImage(getRotatedImage(orientation, terminalImage));
-	}
-
-	/**************************************************************************
-	 * Rotates a terminal image so that it is facing in the correct
-	 * direction on the game board.
-	 * 
-	 * @param orientation
-	 *            The orientation integer.
-	 * @param terminalImage
-	 *            The image to be rotated.
-	 * @return the rotated image.
-	 **************************************************************************/
-	private BufferedImage getRotatedImage(int orientation,
-			BufferedImage terminalImage) {
-		AffineTransform tx = new AffineTransform();
-		AffineTransformOp op;
-
-		// Rotates the image.
-		switch (orientation) {
-		case TOP:
-			tx.rotate(0, terminalImage.getWidth() / 2, terminalImage
-					.getHeight() / 2);
-			break;
-		case RIGHT:
-			tx.rotate(Math.PI / 2.0, terminalImage.getWidth() / 2,
-					terminalImage.getHeight() / 2);
-			break;
-		case BOTTOM:
-			tx.rotate(Math.PI, terminalImage.getWidth() / 2,
-					terminalImage.getHeight() / 2);
-			break;
-		case LEFT:
-			tx.rotate(3 * Math.PI / 2.0, terminalImage.getWidth() / 2,
-					terminalImage.getHeight() / 2);
-			break;
-		}
-		op = new AffineTransformOp(tx, AffineTransformOp.TYPE_BILINEAR);
-		return op.filter(terminalImage, null);
+		terminal.setImage(atlas.getTerminal(control
+				.getStationOwner(terminals.size() - 1), orientation));
 	}
 
 	/**************************************************************************
@@ -563,8 +582,8 @@ public class MetroGUI extends JFrame implements ActionListener {
 				movedTerminal();
 			}
 		});
-		blank1.setImage(cornerTile);
-		blank2.setImage(cornerTile);
+		blank1.setImage(atlas.getCorner());
+		blank2.setImage(atlas.getCorner());
 		gamePanel.add(blank1);
 		for (int i = 0; i < cols; i++)
 			terminalAdder(orientation);
@@ -918,7 +937,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 		format(label);
 		setPlayerScoreColors(index, label);
 		panel.add(label);
-		playerTiles[index] = new MetroTile(background);
+		playerTiles[index] = new MetroTile(atlas.getBackground());
 		playerTiles[index].setPreferredSize(PANEL_SIZE);
 		playerTiles[index].setId(index);
 		panel.add(playerTiles[index]);
@@ -938,6 +957,8 @@ public class MetroGUI extends JFrame implements ActionListener {
 						.getDrawPlayer())
 					control.deactivateDrawPile();
 				updatePlayerTileImages();
+				if (canvas != null)
+					canvas.updatePreview();
 			}
 		});
 	}
@@ -1030,24 +1051,44 @@ public class MetroGUI extends JFrame implements ActionListener {
 	 **************************************************************************/
 	private void updateScores() {
 		for (int i = 0; i < playerScores.length; i++)
-			playerScores[i].setText("Player " + Integer.toString(i + 1)
-					+ ": " + control.getScore(i));
+			updateScore(i, control.getScore(i));
+	}
+
+	/**************************************************************************
+	 * Updates the score of one player.
+	 * 
+	 * @param playerNum
+	 *            The number of the player.
+	 * @param score
+	 *            The score of the player.
+	 **************************************************************************/
+	private void updateScore(int playerNum, int score) {
+		playerScores[playerNum].setText("Player "
+				+ Integer.toString(playerNum + 1) + ": " + score);
 	}
 
 	/**************************************************************************
 	 * Updates the images for each player's pile on the side panel.
 	 **************************************************************************/
 	private void updatePlayerTileImages() {
-		ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
-		ColorConvertOp op = new ColorConvertOp(cs, null);
-		for (int i = 0; i < playerTiles.length; i++) {
-			if (i != control.getCurrentPlayerNum()
-					&& i != playerTiles.length)
-				playerTiles[i].previewImage(op.filter(
-						getCurrentTile(i), null));
-			else
-				playerTiles[i].previewImage(getCurrentTile(i));
-		}
+		for (int i = 0; i < playerTiles.length; i++)
+			updatePlayerTileImage(i);
+	}
+
+	/**************************************************************************
+	 * Updates the image of one pile on the side panel. Every pile but
+	 * the one of the current player is shown in gray.
+	 * 
+	 * @param playerNum
+	 *            The player number of the pile, or the number of players
+	 *            for the draw pile.
+	 **************************************************************************/
+	private void updatePlayerTileImage(int playerNum) {
+		if (playerNum != control.getCurrentPlayerNum())
+			playerTiles[playerNum].previewImage(atlas.getGrayTile(control
+					.getCurrentTile(playerNum)));
+		else
+			playerTiles[playerNum].previewImage(getCurrentTile(playerNum));
 	}
 
 	/**************************************************************************
@@ -1073,7 +1114,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 	 * @return the current tile image for the specified player number.
 	 **************************************************************************/
 	private BufferedImage getCurrentTile(int playerNum) {
-		return tile.get(control.getCurrentTile(playerNum));
+		return atlas.getTile(control.getCurrentTile(playerNum));
 	}
 
 	/**************************************************************************
@@ -1083,7 +1124,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 	 * @return the current active tile image.
 	 **************************************************************************/
 	private BufferedImage getCurrentActiveTile() {
-		return tile.get(control.getCurrentActiveTile());
+		return atlas.getTile(control.getCurrentActiveTile());
 	}
 
 	/**************************************************************************
@@ -1096,7 +1137,7 @@ public class MetroGUI extends JFrame implements ActionListener {
 				if (tiles[i][j].getSet() != true
 						&& !tiles[i][j].equals(current)
 						&& tiles[i][j].getImageDisplayed())
-					tiles[i][j].clear(background);
+					tiles[i][j].clear(atlas.getBackground());
 			}
 	}
 
@@ -1104,12 +1145,17 @@ public class MetroGUI extends JFrame implements ActionListener {
 	 * Sets the tiles on the game board after a load has been called.
 	 **************************************************************************/
 	private void setTilesFromLoad() {
-		int[][] board = control.getGameBoard();
+		int[][] board;
 		BufferedImage image;
+
+		// A canvas is built from the loaded board.
+		if (canvas != null)
+			return;
+		board = control.getGameBoard();
 		for (int i = 0; i < board.length; i++)
 			for (int j = 0; j < board[i].length; j++)
 				if (board[i][j] != -1) {
-					image = tile.get(board[i][j]);
+					image = atlas.getTile(board[i][j]);
 					tiles[i][j].confirmSet(image);
 				}
 	}
@@ -0,0 +1,408 @@
+package gui;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.ImageIO;
+import javax.swing.JOptionPane;
+
+/**************************************************************************
+ * Holds every image the Metro board is drawn from, prepared once so
+ * that drawing is only a copy. The tile images are kept in colour and
+ * in gray, and the terminal images are kept turned to face each side
+ * of the board. Every image is copied into the format of the screen.
+ * 
+ * The images are read from the {@code images} folder on the class path.
+ * They are read and prepared in parallel in the background, and each
+ * one is only waited for the first time it is needed, so the window
+ * can be shown while the rest are still loading.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class TileAtlas {
+
+	/** The orientation value of the top terminals. */
+	protected static final int TOP = 1;
+
+	/** The orientation value of the right terminals. */
+	protected static final int RIGHT = 2;
+
+	/** The orientation value of the bottom terminals. */
+	protected static final int BOTTOM = 3;
+
+	/** The orientation value of the left terminals. */
+	protected static final int LEFT = 4;
+
+	/** The folder of the images on the class path. */
+	private static final String IMAGES = "/images/";
+
+	/** The tile images being prepared, in colour and then in gray. */
+	private List<Future<BufferedImage[]>> tileLoads;
+
+	/** The terminal images being prepared, in every orientation. */
+	private List<Future<BufferedImage[]>> terminalLoads;
+
+	/** The background and the corner images being prepared. */
+	private Future<BufferedImage[]> boardLoad;
+
+	/** The tile images in colour, indexed by tile type. */
+	private BufferedImage[] tiles;
+
+	/** The tile images in gray, indexed by tile type. */
+	private BufferedImage[] grayTiles;
+
+	/** The terminal images, indexed by owner and then orientation. */
+	private BufferedImage[][] terminals;
+
+	/** The image of an empty cell. */
+	private BufferedImage background;
+
+	/** The image of the corners of the board. */
+	private BufferedImage corner;
+
+	/**************************************************************************
+	 * Constructor for the {@code TileAtlas} class. Starts reading and
+	 * preparing every image in the background. The tile images are
+	 * named from {@code a.jpg} and the terminal images from {@code
+	 * 0.jpg}.
+	 * 
+	 * @param numOfTiles
+	 *            The number of tile types.
+	 * @param numOfTerminals
+	 *            The number of terminal owners.
+	 **************************************************************************/
+	protected TileAtlas(int numOfTiles, int numOfTerminals) {
+		ExecutorService loader = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors(), new ThreadFactory() {
+
+			/****************************************************************
+			 * Creates a loading thread that does not keep the program
+			 * running.
+			 ****************************************************************/
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "Metro image loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		tiles = new BufferedImage[numOfTiles];
+		grayTiles = new BufferedImage[numOfTiles];
+		terminals = new BufferedImage[numOfTerminals][];
+		tileLoads = new ArrayList<Future<BufferedImage[]>>(numOfTiles);
+		terminalLoads = new ArrayList<Future<BufferedImage[]>>(
+				numOfTerminals);
+
+		// The images of an empty board are queued first.
+		boardLoad = loader.submit(new Callable<BufferedImage[]>() {
+
+			/****************************************************************
+			 * Prepares the background and the corner images.
+			 ****************************************************************/
+			public BufferedImage[] call() throws IOException {
+				BufferedImage[] images = {
+						toCompatible(readImage("background.jpg")),
+						toCompatible(readImage("cornertile.jpg")) };
+				return images;
+			}
+		});
+		for (int i = 0; i < numOfTerminals; i++)
+			terminalLoads.add(loader.submit(new TerminalLoad(i)));
+		for (int i = 0; i < numOfTiles; i++)
+			tileLoads.add(loader.submit(new TileLoad(i)));
+		loader.shutdown();
+	}
+
+	/**************************************************************************
+	 * Gets the colour image of a tile type.
+	 * 
+	 * @param type
+	 *            The tile type.
+	 * @return the colour image of the tile.
+	 **************************************************************************/
+	protected BufferedImage getTile(int type) {
+		if (tiles[type] == null)
+			loadTile(type);
+		return tiles[type];
+	}
+
+	/**************************************************************************
+	 * Gets the gray image of a tile type.
+	 * 
+	 * @param type
+	 *            The tile type.
+	 * @return the gray image of the tile.
+	 **************************************************************************/
+	protected BufferedImage getGrayTile(int type) {
+		if (grayTiles[type] == null)
+			loadTile(type);
+		return grayTiles[type];
+	}
+
+	/**************************************************************************
+	 * Gets the image of a terminal facing the given side of the board.
+	 * 
+	 * @param owner
+	 *            The owner of the terminal.
+	 * @param orientation
+	 *            The orientation integer of the terminal.
+	 * @return the image of the terminal.
+	 **************************************************************************/
+	protected BufferedImage getTerminal(int owner, int orientation) {
+		if (terminals[owner] == null)
+			terminals[owner] = waitFor(terminalLoads.get(owner));
+		return terminals[owner][orientation];
+	}
+
+	/**************************************************************************
+	 * Gets the image of an empty cell.
+	 * 
+	 * @return the background image.
+	 **************************************************************************/
+	protected BufferedImage getBackground() {
+		if (background == null)
+			loadBoard();
+		return background;
+	}
+
+	/**************************************************************************
+	 * Gets the image of the corners of the board.
+	 * 
+	 * @return the corner image.
+	 **************************************************************************/
+	protected BufferedImage getCorner() {
+		if (corner == null)
+			loadBoard();
+		return corner;
+	}
+
+	/**************************************************************************
+	 * Waits for both images of a tile type.
+	 * 
+	 * @param type
+	 *            The tile type.
+	 **************************************************************************/
+	private void loadTile(int type) {
+		BufferedImage[] images = waitFor(tileLoads.get(type));
+		tiles[type] = images[0];
+		grayTiles[type] = images[1];
+	}
+
+	/**************************************************************************
+	 * Waits for the background and the corner images.
+	 **************************************************************************/
+	private void loadBoard() {
+		BufferedImage[] images = waitFor(boardLoad);
+		background = images[0];
+		corner = images[1];
+	}
+
+	/**************************************************************************
+	 * Waits for images to be prepared. An image that cannot be read
+	 * ends the program with the reason, as the game cannot be shown
+	 * without it.
+	 * 
+	 * @param load
+	 *            The images being prepared.
+	 * @return the prepared images.
+	 **************************************************************************/
+	private BufferedImage[] waitFor(Future<BufferedImage[]> load) {
+		boolean interrupted = false;
+		try {
+			while (true)
+				try {
+					return load.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+		} catch (ExecutionException e) {
+			JOptionPane.showMessageDialog(null, "Image Load Error: "
+					+ e.getCause().getMessage(), "Program Terminating",
+					JOptionPane.ERROR_MESSAGE);
+			System.exit(0);
+			return null;
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**************************************************************************
+	 * Reads an image from the class path. A missing image means the
+	 * program was packaged without its images.
+	 * 
+	 * @param name
+	 *            The file name of the image.
+	 * @return the image.
+	 * @throws IOException
+	 *             If the image cannot be found or read.
+	 **************************************************************************/
+	private static BufferedImage readImage(String name) throws IOException {
+		URL url = TileAtlas.class.getResource(IMAGES + name);
+		BufferedImage image;
+		if (url == null)
+			throw new IOException("Missing image " + IMAGES + name
+					+ " on the class path");
+		image = ImageIO.read(url);
+		if (image == null)
+			throw new IOException("Unreadable image " + name);
+		return image;
+	}
+
+	/**************************************************************************
+	 * Rotates a terminal image so that it is facing in the correct
+	 * direction on the game board.
+	 * 
+	 * @param orientation
+	 *            The orientation integer.
+	 * @param terminalImage
+	 *            The image to be rotated.
+	 * @return the rotated image.
+	 **************************************************************************/
+	private static BufferedImage getRotatedImage(int orientation,
+			BufferedImage terminalImage) {
+		AffineTransform tx = new AffineTransform();
+		AffineTransformOp op;
+
+		// Rotates the image.
+		switch (orientation) {
+		case TOP:
+			tx.rotate(0, terminalImage.getWidth() / 2, terminalImage
+					.getHeight() / 2);
+			break;
+		case RIGHT:
+			tx.rotate(Math.PI / 2.0, terminalImage.getWidth() / 2,
+					terminalImage.getHeight() / 2);
+			break;
+		case BOTTOM:
+			tx.rotate(Math.PI, terminalImage.getWidth() / 2,
+					terminalImage.getHeight() / 2);
+			break;
+		case LEFT:
+			tx.rotate(3 * Math.PI / 2.0, terminalImage.getWidth() / 2,
+					terminalImage.getHeight() / 2);
+			break;
+		}
+		op = new AffineTransformOp(tx, AffineTransformOp.TYPE_BILINEAR);
+		return op.filter(terminalImage, null);
+	}
+
+	/**************************************************************************
+	 * Copies an image into the format of the screen so that drawing it
+	 * needs no conversion. Without a screen the format of a plain RGB
+	 * image is used.
+	 * 
+	 * @param image
+	 *            The image to copy.
+	 * @return the copy of the image.
+	 **************************************************************************/
+	private static BufferedImage toCompatible(BufferedImage image) {
+		BufferedImage copy;
+		Graphics2D g;
+		if (GraphicsEnvironment.isHeadless())
+			copy = new BufferedImage(image.getWidth(), image.getHeight(),
+					BufferedImage.TYPE_INT_RGB);
+		else
+			copy = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration()
+					.createCompatibleImage(image.getWidth(),
+							image.getHeight(), Transparency.OPAQUE);
+		g = copy.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+
+	/**************************************************************************
+	 * A task that reads a tile image and prepares it in colour and in
+	 * gray.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private static class TileLoad implements Callable<BufferedImage[]> {
+
+		/** The tile type. */
+		private int type;
+
+		/**************************************************************************
+		 * Constructor for the {@code TileLoad} class.
+		 * 
+		 * @param type
+		 *            The tile type.
+		 **************************************************************************/
+		private TileLoad(int type) {
+			this.type = type;
+		}
+
+		/**************************************************************************
+		 * Reads and prepares the tile image.
+		 * 
+		 * @return the colour and the gray images.
+		 * @throws IOException
+		 *             If the image cannot be read.
+		 **************************************************************************/
+		public BufferedImage[] call() throws IOException {
+			char name = (char) ('a' + type);
+			BufferedImage image = readImage(name + ".jpg");
+			ColorConvertOp gray = new ColorConvertOp(ColorSpace
+					.getInstance(ColorSpace.CS_GRAY), null);
+			BufferedImage[] images = { toCompatible(image),
+					toCompatible(gray.filter(image, null)) };
+			return images;
+		}
+	}
+
+	/**************************************************************************
+	 * A task that reads a terminal image and turns it to face each side
+	 * of the board.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private static class TerminalLoad implements Callable<BufferedImage[]> {
+
+		/** The owner of the terminal. */
+		private int owner;
+
+		/**************************************************************************
+		 * Constructor for the {@code TerminalLoad} class.
+		 * 
+		 * @param owner
+		 *            The owner of the terminal.
+		 **************************************************************************/
+		private TerminalLoad(int owner) {
+			this.owner = owner;
+		}
+
+		/**************************************************************************
+		 * Reads and turns the terminal image.
+		 * 
+		 * @return the images indexed by orientation.
+		 * @throws IOException
+		 *             If the image cannot be read.
+		 **************************************************************************/
+		public BufferedImage[] call() throws IOException {
+			BufferedImage image = readImage(owner + ".jpg");
+			BufferedImage[] images = new BufferedImage[LEFT + 1];
+			for (int j = TOP; j <= LEFT; j++)
+				images[j] = toCompatible(getRotatedImage(j, image));
+			return images;
+		}
+	}
+}
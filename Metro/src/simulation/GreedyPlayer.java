@@ -0,0 +1,60 @@
+package simulation;
+
+import game.MetroControl;
+import java.util.BitSet;
+import java.util.Random;
+
+/**************************************************************************
+ * A player policy that places each tile on the legal cell that gives
+ * the largest immediate score gain. Ties are broken at random.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class GreedyPlayer implements MetroPlayer {
+
+	/**************************************************************************
+	 * Places the current tile on the legal cell with the best score.
+	 * Each cell is tried on one copy of the game, which is put back with
+	 * an undo before the next cell is tried.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param random
+	 *            The random number generator of the game.
+	 * @return {@code true} if a tile was placed, {@code false} if there
+	 *         is no legal placement.
+	 **************************************************************************/
+	public boolean takeTurn(MetroControl game, Random random) {
+		BitSet legal = game.getLegalMoves();
+		int player = game.getCurrentPlayerNum();
+		int bestScore = Integer.MIN_VALUE;
+		int best = -1;
+		int ties = 0;
+		int score;
+		MetroControl trial = new MetroControl(game);
+		for (int i = legal.nextSetBit(0); i >= 0; i = legal
+				.nextSetBit(i + 1)) {
+			if (!RandomPlayer.placeTile(trial, i))
+				continue;
+			score = trial.getScore(player);
+			trial.undoTile();
+			if (score > bestScore) {
+				bestScore = score;
+				best = i;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0)
+				best = i;
+		}
+		return best != -1 && RandomPlayer.placeTile(game, best);
+	}
+
+	/**************************************************************************
+	 * Gets the name of the policy.
+	 * 
+	 * @return the name of the policy.
+	 **************************************************************************/
+	public String getName() {
+		return "greedy";
+	}
+}
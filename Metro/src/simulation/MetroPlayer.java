@@ -0,0 +1,33 @@
+package simulation;
+
+import game.MetroControl;
+import java.util.Random;
+
+/**************************************************************************
+ * An interface representing a computer player policy for headless
+ * games of Metro.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public interface MetroPlayer {
+
+	/**************************************************************************
+	 * Places the current tile for the player whose turn it is.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param random
+	 *            The random number generator of the game.
+	 * @return {@code true} if a tile was placed, {@code false} if there
+	 *         is no legal placement.
+	 **************************************************************************/
+	boolean takeTurn(MetroControl game, Random random);
+
+	/**************************************************************************
+	 * Gets the name of the policy.
+	 * 
+	 * @return the name of the policy.
+	 **************************************************************************/
+	String getName();
+}
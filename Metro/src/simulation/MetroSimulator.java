@@ -0,0 +1,249 @@
+package simulation;
+
+import game.MetroControl;
+import game.ScoreKeeper;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**************************************************************************
+ * A headless simulator that plays complete games of Metro between
+ * computer player policies. Batches of games are split across the cores
+ * of the machine on a fork-join pool.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class MetroSimulator {
+
+	/** The number of games each task plays without splitting further. */
+	private static final int BATCH = 16;
+
+	/** The time budget for each move of a searching player. */
+	private static final long SEARCH_MILLIS = 10;
+
+	/** The fewest and most players a game can have. */
+	private static final int MIN_PLAYERS = 2, MAX_PLAYERS = 6;
+
+	/** How to run the simulator from the command line. */
+	private static final String USAGE = "Usage: MetroSimulator [games "
+			+ "[rows [cols [policy...]]]]\n"
+			+ "Each policy is greedy, random or search, one for each of "
+			+ MIN_PLAYERS + " to " + MAX_PLAYERS + " players.";
+
+	/** The number of rows and columns in the game board. */
+	private int rows, cols;
+
+	/** The policy of each player. */
+	private MetroPlayer[] players;
+
+	/** The seed that the stacks and players of the games are based on. */
+	private long seed;
+
+	/** The pool that plays the games. */
+	private ForkJoinPool pool;
+
+	/**************************************************************************
+	 * Constructor for the {@code MetroSimulator} class.
+	 * 
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @param players
+	 *            The policy of each player.
+	 * @param seed
+	 *            The seed that the stacks and players of the games are
+	 *            based on.
+	 **************************************************************************/
+	public MetroSimulator(int rows, int cols, MetroPlayer[] players,
+			long seed) {
+		this.rows = rows;
+		this.cols = cols;
+		this.players = players;
+		this.seed = seed;
+		pool = new ForkJoinPool();
+	}
+
+	/**************************************************************************
+	 * Plays the given number of games in parallel with the given scoring
+	 * system.
+	 * 
+	 * @param games
+	 *            The number of games to play.
+	 * @param scoreType
+	 *            The type of scoring system.
+	 * @return the distribution of the final scores.
+	 **************************************************************************/
+	public ScoreDistribution run(int games, int scoreType) {
+		int[][] scores = new int[games][];
+		int[] tilesPlaced = new int[games];
+		long start = System.nanoTime();
+		pool.invoke(new GameBatch(scoreType, 0, games, scores,
+				tilesPlaced));
+		return new ScoreDistribution(scores, tilesPlaced, rows * cols,
+				System.nanoTime() - start);
+	}
+
+	/**************************************************************************
+	 * Plays a single game to the end.
+	 * 
+	 * @param scoreType
+	 *            The type of scoring system.
+	 * @param game
+	 *            The index of the game, which selects its seed.
+	 * @param scores
+	 *            The array to store the final scores in.
+	 * @param tilesPlaced
+	 *            The array to store the number of placed tiles in.
+	 **************************************************************************/
+	private void playGame(int scoreType, int game, int[][] scores,
+			int[] tilesPlaced) {
+		Random random = new Random(seed + game * 0x9E3779B97F4A7C15L);
+		MetroControl control = new MetroControl();
+		int placed = 0;
+		control.newGame(players.length, rows, cols, scoreType,
+				random.nextLong());
+		while (!control.isComplete()
+				&& players[control.getCurrentPlayerNum()].takeTurn(
+						control, random))
+			placed++;
+		scores[game] = new int[players.length];
+		for (int i = 0; i < players.length; i++)
+			scores[game][i] = control.getScore(i);
+		tilesPlaced[game] = placed;
+	}
+
+	/**************************************************************************
+	 * Shuts down the pool that plays the games.
+	 **************************************************************************/
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**************************************************************************
+	 * A task that plays a range of games, splitting the range in half
+	 * until it is small enough to play directly.
+	 * 
+	 * @author Sam Eary and Tyler Blanchard
+	 * @version 1.0
+	 **************************************************************************/
+	private class GameBatch extends RecursiveTask<Void> {
+
+		/** The serial version ID. */
+		private static final long serialVersionUID = 3126851043379551846L;
+
+		/** The type of scoring system. */
+		private int scoreType;
+
+		/** The first game and one past the last game of the range. */
+		private int start, end;
+
+		/** The final scores of every game. */
+		private int[][] scores;
+
+		/** The number of tiles placed in every game. */
+		private int[] tilesPlaced;
+
+		/**************************************************************************
+		 * Constructor for the {@code GameBatch} class.
+		 * 
+		 * @param scoreType
+		 *            The type of scoring system.
+		 * @param start
+		 *            The first game of the range.
+		 * @param end
+		 *            One past the last game of the range.
+		 * @param scores
+		 *            The final scores of every game.
+		 * @param tilesPlaced
+		 *            The number of tiles placed in every game.
+		 **************************************************************************/
+		private GameBatch(int scoreType, int start, int end,
+				int[][] scores, int[] tilesPlaced) {
+			this.scoreType = scoreType;
+			this.start = start;
+			this.end = end;
+			this.scores = scores;
+			this.tilesPlaced = tilesPlaced;
+		}
+
+		/**************************************************************************
+		 * Plays the range of games.
+		 * 
+		 * @return {@code null} once every game has been played.
+		 **************************************************************************/
+		protected Void compute() {
+			if (end - start <= BATCH) {
+				for (int i = start; i < end; i++)
+					playGame(scoreType, i, scores, tilesPlaced);
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new GameBatch(scoreType, start, middle, scores,
+						tilesPlaced), new GameBatch(scoreType, middle,
+						end, scores, tilesPlaced));
+			}
+			return null;
+		}
+	}
+
+	/**************************************************************************
+	 * Gets the player policy with the given name.
+	 * 
+	 * @param name
+	 *            The name of the policy.
+	 * @return the player policy.
+	 **************************************************************************/
+	private static MetroPlayer getPlayer(String name) {
+		if (name.equals("greedy"))
+			return new GreedyPlayer();
+		else if (name.equals("random"))
+			return new RandomPlayer();
+		else if (name.equals("search"))
+			return new SearchPlayer(SEARCH_MILLIS);
+		else
+			throw new IllegalArgumentException("Unknown policy: " + name);
+	}
+
+	/**************************************************************************
+	 * Runs the simulator from the command line. The arguments are the
+	 * number of games, the number of rows and columns, and then the
+	 * policy of each player, for example
+	 * {@code 1000 8 8 greedy random random}. Without any policies two
+	 * random players are used. A run can be repeated by setting the
+	 * {@code seed} system property to the seed it printed.
+	 * 
+	 * @param args
+	 *            The command line arguments.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int cols = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		String[] names = { "random", "random" };
+		if (args.length > 3) {
+			names = new String[args.length - 3];
+			System.arraycopy(args, 3, names, 0, names.length);
+		}
+		if (names.length < MIN_PLAYERS || names.length > MAX_PLAYERS) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		MetroPlayer[] players = new MetroPlayer[names.length];
+		for (int i = 0; i < players.length; i++)
+			players[i] = getPlayer(names[i]);
+		String[] modes = { "Simple", "Crossover", "Time" };
+		int[] types = { ScoreKeeper.SIMPLE, ScoreKeeper.CROSS,
+				ScoreKeeper.TIME };
+		long seed = Long.getLong("seed", System.nanoTime());
+		MetroSimulator simulator = new MetroSimulator(rows, cols,
+				players, seed);
+		System.out.println(games + " games on " + rows + "x" + cols
+				+ " boards, seed " + seed);
+		for (int i = 0; i < types.length; i++) {
+			System.out.println(modes[i] + " scoring:");
+			System.out.print(simulator.run(games, types[i]).report(names));
+		}
+		simulator.shutdown();
+	}
+}
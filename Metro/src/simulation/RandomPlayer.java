@@ -0,0 +1,67 @@
+package simulation;
+
+import game.MetroControl;
+import java.util.BitSet;
+import java.util.Random;
+import utility.*;
+
+/**************************************************************************
+ * A player policy that places each tile on a random legal cell.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class RandomPlayer implements MetroPlayer {
+
+	/**************************************************************************
+	 * Places the current tile on a random legal cell.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param random
+	 *            The random number generator of the game.
+	 * @return {@code true} if a tile was placed, {@code false} if there
+	 *         is no legal placement.
+	 **************************************************************************/
+	public boolean takeTurn(MetroControl game, Random random) {
+		BitSet legal = game.getLegalMoves();
+		int cell;
+		if (legal.isEmpty())
+			return false;
+		cell = legal.nextSetBit(0);
+		for (int k = random.nextInt(legal.cardinality()); k > 0; k--)
+			cell = legal.nextSetBit(cell + 1);
+		return placeTile(game, cell);
+	}
+
+	/**************************************************************************
+	 * Gets the name of the policy.
+	 * 
+	 * @return the name of the policy.
+	 **************************************************************************/
+	public String getName() {
+		return "random";
+	}
+
+	/**************************************************************************
+	 * Places the current tile on the given legal cell.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param cell
+	 *            The packed cell {@code row * cols + col} of the tile.
+	 * @return {@code true} if the tile was placed, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected static boolean placeTile(MetroControl game, int cell) {
+		try {
+			game.setTile(new Position(cell / game.getCols(), cell
+					% game.getCols()));
+			return true;
+		} catch (MiddleOfNowhereException e) {
+			return false;
+		} catch (CutoffException e) {
+			return false;
+		}
+	}
+}
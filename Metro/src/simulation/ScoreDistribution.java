@@ -0,0 +1,163 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**************************************************************************
+ * A class to summarize the scores of a batch of simulated Metro games.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class ScoreDistribution {
+
+	/** The final scores of each game, indexed by game and player. */
+	private int[][] scores;
+
+	/** The number of tiles placed in each game. */
+	private int[] tilesPlaced;
+
+	/** The number of cells on the game board. */
+	private int cells;
+
+	/** The time taken to play the games in nanoseconds. */
+	private long elapsed;
+
+	/**************************************************************************
+	 * Constructor for the {@code ScoreDistribution} class.
+	 * 
+	 * @param scores
+	 *            The final scores of each game, indexed by game and
+	 *            player.
+	 * @param tilesPlaced
+	 *            The number of tiles placed in each game.
+	 * @param cells
+	 *            The number of cells on the game board.
+	 * @param elapsed
+	 *            The time taken to play the games in nanoseconds.
+	 **************************************************************************/
+	public ScoreDistribution(int[][] scores, int[] tilesPlaced, int cells,
+			long elapsed) {
+		this.scores = scores;
+		this.tilesPlaced = tilesPlaced;
+		this.cells = cells;
+		this.elapsed = elapsed;
+	}
+
+	/**************************************************************************
+	 * Gets the number of games played.
+	 * 
+	 * @return the number of games played.
+	 **************************************************************************/
+	public int getGames() {
+		return scores.length;
+	}
+
+	/**************************************************************************
+	 * Gets the number of games played per second.
+	 * 
+	 * @return the number of games played per second.
+	 **************************************************************************/
+	public double getGamesPerSecond() {
+		return scores.length / (elapsed / 1e9);
+	}
+
+	/**************************************************************************
+	 * Gets the number of games that ended before the board was full
+	 * because no legal placement remained.
+	 * 
+	 * @return the number of stalled games.
+	 **************************************************************************/
+	public int getStalledGames() {
+		int stalled = 0;
+		for (int i = 0; i < tilesPlaced.length; i++)
+			if (tilesPlaced[i] < cells)
+				stalled++;
+		return stalled;
+	}
+
+	/**************************************************************************
+	 * Gets the mean score of the specified player.
+	 * 
+	 * @param player
+	 *            The number of the player.
+	 * @return the mean score of the player.
+	 **************************************************************************/
+	public double getMean(int player) {
+		long total = 0;
+		for (int i = 0; i < scores.length; i++)
+			total += scores[i][player];
+		return (double) total / scores.length;
+	}
+
+	/**************************************************************************
+	 * Gets the number of games won by the specified player. Shared wins
+	 * count for every player with the top score.
+	 * 
+	 * @param player
+	 *            The number of the player.
+	 * @return the number of games won by the player.
+	 **************************************************************************/
+	public int getWins(int player) {
+		int wins = 0;
+		for (int i = 0; i < scores.length; i++)
+			if (scores[i][player] == getWinningScore(i))
+				wins++;
+		return wins;
+	}
+
+	/**************************************************************************
+	 * Gets the given percentile of the scores of every player in every
+	 * game.
+	 * 
+	 * @param percent
+	 *            The percentile between {@code 0} and {@code 100}.
+	 * @return the score at the given percentile.
+	 **************************************************************************/
+	public int getPercentile(double percent) {
+		int[] all = new int[scores.length * scores[0].length];
+		int k = 0;
+		for (int i = 0; i < scores.length; i++)
+			for (int j = 0; j < scores[i].length; j++)
+				all[k++] = scores[i][j];
+		Arrays.sort(all);
+		return all[(int) Math.round(percent / 100 * (all.length - 1))];
+	}
+
+	/**************************************************************************
+	 * Gets the top score of the specified game.
+	 * 
+	 * @param game
+	 *            The index of the game.
+	 * @return the top score of the game.
+	 **************************************************************************/
+	private int getWinningScore(int game) {
+		int best = Integer.MIN_VALUE;
+		for (int j = 0; j < scores[game].length; j++)
+			best = Math.max(best, scores[game][j]);
+		return best;
+	}
+
+	/**************************************************************************
+	 * Gets a printable report of the distribution.
+	 * 
+	 * @param names
+	 *            The names of the policy of each player.
+	 * @return the report of the distribution.
+	 **************************************************************************/
+	public String report(String[] names) {
+		StringBuilder out = new StringBuilder();
+		if (scores.length == 0)
+			return "  no games played\n";
+		out.append(String.format("  %d games, %.1f games/sec, %d stalled%n",
+				getGames(), getGamesPerSecond(), getStalledGames()));
+		out.append(String.format(
+				"  scores: min %d, p10 %d, median %d, p90 %d, max %d%n",
+				getPercentile(0), getPercentile(10), getPercentile(50),
+				getPercentile(90), getPercentile(100)));
+		for (int i = 0; i < names.length; i++)
+			out.append(String.format(
+					"  player %d (%s): mean %.2f, wins %d%n", i + 1,
+					names[i], getMean(i), getWins(i)));
+		return out.toString();
+	}
+}
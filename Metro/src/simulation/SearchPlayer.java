@@ -0,0 +1,62 @@
+package simulation;
+
+import game.MetroControl;
+import java.util.Random;
+import utility.*;
+
+/**************************************************************************
+ * A player policy that searches ahead for the best placement within a
+ * time budget for each move.
+ * 
+ * @author Sam Eary and Tyler Blanchard
+ * @version 1.0
+ **************************************************************************/
+public class SearchPlayer implements MetroPlayer {
+
+	/** The time budget for each move in milliseconds. */
+	private long millis;
+
+	/**************************************************************************
+	 * Constructor for the {@code SearchPlayer} class.
+	 * 
+	 * @param millis
+	 *            The time budget for each move in milliseconds.
+	 **************************************************************************/
+	public SearchPlayer(long millis) {
+		this.millis = millis;
+	}
+
+	/**************************************************************************
+	 * Places the current tile on the best cell the search finds.
+	 * 
+	 * @param game
+	 *            The game being played.
+	 * @param random
+	 *            The random number generator of the game, which is not
+	 *            used.
+	 * @return {@code true} if a tile was placed, {@code false} if there
+	 *         is no legal placement.
+	 **************************************************************************/
+	public boolean takeTurn(MetroControl game, Random random) {
+		Position best = game.getBestMove(millis);
+		if (best == null)
+			return false;
+		try {
+			game.setTile(best);
+			return true;
+		} catch (MiddleOfNowhereException e) {
+			return false;
+		} catch (CutoffException e) {
+			return false;
+		}
+	}
+
+	/**************************************************************************
+	 * Gets the name of the policy.
+	 * 
+	 * @return the name of the policy.
+	 **************************************************************************/
+	public String getName() {
+		return "search";
+	}
+}
@@ -128,6 +128,30 @@ public class NumbrixControl {
 	public boolean isComplete() {
 		return game.isComplete();
 	}
+
+	/**************************************************************************
+	 * Gets the number of conflicting spaces on the game-board.
+	 * 
+	 * @return the number of directly invalid spaces.
+	 **************************************************************************/
+	public int getConflictCount() {
+		return game.getInvalidCount();
+	}
+
+	/**************************************************************************
+	 * Tests whether a space on the game-board conflicts with its
+	 * neighbors.
+	 * 
+	 * @param row
+	 *            The row of the space.
+	 * @param col
+	 *            The column of the space.
+	 * @return {@code true} if the space is directly invalid, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	public boolean isConflict(int row, int col) {
+		return game.isInvalid(row, col);
+	}
 	
 	/**************************************************************************
 	 * Finds the first empty space on the game-board.
@@ -0,0 +1,215 @@
+package numbrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**************************************************************************
+ * A class to tell whether a Numbrix game has exactly one completion.
+ * The top levels of the search are split into subtrees, each searched
+ * by its own copy of a {@code NumbrixSolver} on a work-stealing pool,
+ * and every copy stops as soon as a second completion has been found.
+ * A check made from a task already running on a fork-join pool splits
+ * its search on that pool instead.
+ *
+ * @author Sam Eary
+ * @version 1.0
+ **************************************************************************/
+public class NumbrixCounter {
+
+	/** The result for a game with no completion. */
+	public static final int NONE = 0;
+
+	/** The result for a game with exactly one completion. */
+	public static final int UNIQUE = 1;
+
+	/** The result for a game with more than one completion. */
+	public static final int MULTIPLE = 2;
+
+	/** The number of guesses deep the search is split into subtrees. */
+	private static final int SPLIT = 6;
+
+	/** The number of nanoseconds in a second. */
+	private static final double NANOS = 1e9;
+
+	/** The pool shared by every counter. */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	/** The board being checked, before any search. */
+	private NumbrixSolver board;
+
+	/** The number of cells filled by every subtree of the last check. */
+	private AtomicLong nodes;
+
+	/** The length of the last check in nanoseconds. */
+	private long elapsed;
+
+	/**************************************************************************
+	 * Constructor for the {@code NumbrixCounter} class.
+	 *
+	 * @param board
+	 *            The game board, with {@code EMPTY} on unknown cells.
+	 * @throws InvalidGameStateException
+	 *             if a number is out of range or duplicated.
+	 **************************************************************************/
+	public NumbrixCounter(int[][] board) throws InvalidGameStateException {
+		this.board = new NumbrixSolver(board);
+		nodes = new AtomicLong();
+	}
+
+	/**************************************************************************
+	 * Counts the completions of the board up to two.
+	 *
+	 * @return {@code NONE}, {@code UNIQUE}, or {@code MULTIPLE}.
+	 **************************************************************************/
+	public int checkUniqueness() {
+		long start = System.nanoTime();
+		AtomicInteger solutions = new AtomicInteger();
+		NumbrixSolver root = new NumbrixSolver(board);
+		Subtree task = null;
+		root.setLimit(solutions, MULTIPLE);
+		nodes.set(0);
+		if (root.isFeasible()) {
+			if (root.isBlank())
+				task = new Subtree(root, SPLIT);
+			else if (root.isPromising())
+				task = new Subtree(root, 0);
+		}
+		if (task != null && ForkJoinTask.inForkJoinPool())
+			task.invoke();
+		else if (task != null)
+			POOL.invoke(task);
+		elapsed = System.nanoTime() - start;
+		return Math.min(solutions.get(), MULTIPLE);
+	}
+
+	/**************************************************************************
+	 * Gets the number of cells filled by the last check.
+	 *
+	 * @return the number of nodes searched.
+	 **************************************************************************/
+	public long getNodes() {
+		return nodes.get();
+	}
+
+	/**************************************************************************
+	 * Gets the length of the last check.
+	 *
+	 * @return the length of the check in nanoseconds.
+	 **************************************************************************/
+	public long getElapsedNanos() {
+		return elapsed;
+	}
+
+	/**************************************************************************
+	 * Gets the throughput of the last check across every thread.
+	 *
+	 * @return the number of nodes searched per second.
+	 **************************************************************************/
+	public double getNodesPerSecond() {
+		return elapsed == 0 ? 0 : nodes.get() * NANOS / elapsed;
+	}
+
+	/**************************************************************************
+	 * A task that searches the subtree below a partly filled board. It
+	 * makes forced moves itself and splits at each guess until it is
+	 * deep enough to search the rest of the subtree directly.
+	 *
+	 * @author Sam Eary
+	 * @version 1.0
+	 **************************************************************************/
+	private class Subtree extends RecursiveAction {
+
+		/** The serial version ID. */
+		private static final long serialVersionUID = 5470390917442866851L;
+
+		/** The copy of the search that owns the subtree. */
+		private NumbrixSolver solver;
+
+		/** The number of guesses made above the subtree. */
+		private int depth;
+
+		/**************************************************************************
+		 * Constructor for the {@code Subtree} class.
+		 *
+		 * @param solver
+		 *            The copy of the search that owns the subtree.
+		 * @param depth
+		 *            The number of guesses made above the subtree.
+		 **************************************************************************/
+		private Subtree(NumbrixSolver solver, int depth) {
+			this.solver = solver;
+			this.depth = depth;
+		}
+
+		/**************************************************************************
+		 * Searches the subtree.
+		 **************************************************************************/
+		protected void compute() {
+			if (depth >= SPLIT)
+				solver.search();
+			else
+				split();
+			nodes.addAndGet(solver.getNodes());
+		}
+
+		/**************************************************************************
+		 * Makes the forced moves below the board and then searches each
+		 * guess at the next end in its own subtree.
+		 **************************************************************************/
+		private void split() {
+			int[] moves = new int[4];
+			int count = solver.chooseEnd(moves);
+			while (count == 1) {
+				solver.advance(moves[0]);
+				if (!solver.isPromising())
+					return;
+				count = solver.chooseEnd(moves);
+			}
+			if (count == NumbrixSolver.COMPLETE) {
+				solver.extend();
+				return;
+			}
+			List<Subtree> tasks = new ArrayList<Subtree>();
+			NumbrixSolver copy;
+			for (int k = 0; k < count; k++) {
+				copy = new NumbrixSolver(solver);
+				copy.advance(moves[k]);
+				if (copy.isPromising())
+					tasks.add(new Subtree(copy, depth + 1));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**************************************************************************
+	 * Checks the game in each file given on the command line and prints
+	 * whether it has one completion and the throughput of the check.
+	 *
+	 * @param args
+	 *            The names of the files to be checked.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		String[] results = { "none", "unique", "multiple" };
+		NumbrixEngine game;
+		NumbrixCounter counter;
+		for (String filename : args) {
+			game = new NumbrixEngine();
+			try {
+				game.loadGame(filename);
+				counter = new NumbrixCounter(game.getBoard());
+			} catch (Exception e) {
+				System.out.println(filename + ": " + e.getMessage());
+				continue;
+			}
+			System.out.printf("%s: %s, %d nodes in %.3f ms, %.0f nodes/s%n",
+					filename, results[counter.checkUniqueness()], counter
+							.getNodes(), counter.getElapsedNanos() / 1e6,
+					counter.getNodesPerSecond());
+		}
+	}
+}
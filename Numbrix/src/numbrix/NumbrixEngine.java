@@ -55,6 +55,18 @@ public class NumbrixEngine extends java.util.Observable {
 	/** The array representing whether or not data has been duplicated. */
 	private boolean[] unique, uniqueOriginal;
 
+	/**
+	 * The cell of each number on the board, packed as {@code row *
+	 * columns + col}, or {@code OUT_OF_RANGE} if it is not on the board.
+	 */
+	private int[] positionOf, positionOriginal;
+
+	/** The array representing whether or not each cell is directly invalid. */
+	private boolean[][] invalid, invalidOriginal;
+
+	/** The number of directly invalid cells on the board. */
+	private int invalidCount, invalidCountOriginal;
+
 	/**************************************************************************
 	 * Primary constructor for the {@code NumbrixEngine} class.
 	 * Instantiates the class.
@@ -107,6 +119,32 @@ public class NumbrixEngine extends java.util.Observable {
 		duplicateBoard();
 	}
 
+	/**************************************************************************
+	 * Loads a game from a board array and verifies that it is valid in
+	 * the same way as a game loaded from a text file.
+	 * 
+	 * @param data
+	 *            The array representing the game board, with {@code
+	 *            EMPTY} on unknown spaces.
+	 * @throws InvalidGameStateException
+	 *             if the game is invalid.
+	 **************************************************************************/
+	public void loadGame(int[][] data) throws InvalidGameStateException {
+		if (data.length < 1 || data[0].length < 1)
+			throw new InvalidGameStateException(RANGE_ERROR);
+		rows = data.length;
+		columns = data[0].length;
+		update();
+		for (int i = 0; i < board.length; i++) {
+			if (data[i].length != columns)
+				throw new InvalidGameStateException(RANGE_ERROR);
+			for (int j = 0; j < board[i].length; j++)
+				setCell(invalidEntryChecker(data[i][j], LOAD), i, j);
+		}
+		finalValidityChecker();
+		duplicateBoard();
+	}
+
 	/**************************************************************************
 	 * Loads the game size.
 	 * 
@@ -194,8 +232,7 @@ public class NumbrixEngine extends java.util.Observable {
 			sc = new Scanner(data);
 			for (int j = 0; j < board[i].length; j++) {
 				if (sc.hasNextInt())
-					board[i][j] = invalidEntryChecker(sc.nextInt(),
-							LOAD);
+					setCell(invalidEntryChecker(sc.nextInt(), LOAD), i, j);
 				else
 					throw new ParseException("Invalid Data", 176);
 				if (j + INCREMENT == board[i].length && sc.hasNextInt())
@@ -272,15 +309,68 @@ public class NumbrixEngine extends java.util.Observable {
 	 **************************************************************************/
 	private void finalValidityChecker()
 			throws InvalidGameStateException {
-		int errors = 0;
-		for (int i = 0; i < board.length; i++)
-			for (int j = 0; j < board[i].length; j++)
-				if (!directlyInvalidChecker(board[i][j], i, j))
-					errors++;
-		if (errors != EMPTY)
+		if (validityCounter() != EMPTY)
 			throw new InvalidGameStateException(INVALID_ERROR);
 	}
 
+	/**************************************************************************
+	 * Checks every element of the {@code board} for direct errors and
+	 * records which elements are invalid. This is only needed when a
+	 * whole board is loaded, since later edits are checked by {@code
+	 * neighborValidityChecker()}.
+	 * 
+	 * @return the number of directly invalid elements.
+	 **************************************************************************/
+	private int validityCounter() {
+		invalidCount = 0;
+		for (int i = 0; i < board.length; i++)
+			for (int j = 0; j < board[i].length; j++) {
+				invalid[i][j] = !directlyInvalidChecker(board[i][j], i, j);
+				if (invalid[i][j])
+					invalidCount++;
+			}
+		return invalidCount;
+	}
+
+	/**************************************************************************
+	 * Re-checks an element that has just been changed along with its
+	 * four neighbors, which are the only elements whose validity the
+	 * change can affect, and updates the count of invalid elements.
+	 * 
+	 * @param row
+	 *            The row of the changed element.
+	 * @param col
+	 *            The column of the changed element.
+	 **************************************************************************/
+	private void neighborValidityChecker(int row, int col) {
+		cellValidityChecker(row, col);
+		if (row > 0)
+			cellValidityChecker(row - INCREMENT, col);
+		if (row < board.length - 1)
+			cellValidityChecker(row + INCREMENT, col);
+		if (col > 0)
+			cellValidityChecker(row, col - INCREMENT);
+		if (col < board[row].length - 1)
+			cellValidityChecker(row, col + INCREMENT);
+	}
+
+	/**************************************************************************
+	 * Re-checks a single element and updates the count of invalid
+	 * elements if its validity has changed.
+	 * 
+	 * @param row
+	 *            The row of the element.
+	 * @param col
+	 *            The column of the element.
+	 **************************************************************************/
+	private void cellValidityChecker(int row, int col) {
+		boolean now = !directlyInvalidChecker(board[row][col], row, col);
+		if (now != invalid[row][col]) {
+			invalid[row][col] = now;
+			invalidCount += now ? INCREMENT : -INCREMENT;
+		}
+	}
+
 	/**************************************************************************
 	 * Tests input data to see if it is directly invalid. For, example
 	 * if an entry is 5, and is surrounded by 25, 81, 56, and 42, then
@@ -360,6 +450,71 @@ public class NumbrixEngine extends java.util.Observable {
 		return grid;
 	}
 
+	/**************************************************************************
+	 * Gets the number of directly invalid elements on the board. This is
+	 * kept up to date as numbers are added, so it costs nothing to ask.
+	 * 
+	 * @return the number of invalid elements.
+	 **************************************************************************/
+	public int getInvalidCount() {
+		return invalidCount;
+	}
+
+	/**************************************************************************
+	 * Tests whether an element of the board is directly invalid, for
+	 * example after a neighbor was changed to a number that leaves it no
+	 * way to continue its chain.
+	 * 
+	 * @param row
+	 *            The row of the element.
+	 * @param col
+	 *            The column of the element.
+	 * @return {@code true} if the element is directly invalid, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	public boolean isInvalid(int row, int col) {
+		return invalid[row][col];
+	}
+
+	/**************************************************************************
+	 * Gets the cell that a number is on.
+	 * 
+	 * @param number
+	 *            The number to look for.
+	 * @return the cell packed as {@code row * getCols() + col}, or
+	 *         {@code OUT_OF_RANGE} if the number is not on the board.
+	 **************************************************************************/
+	public int getPosition(int number) {
+		if (number < 1 || number > board_size)
+			return OUT_OF_RANGE;
+		return positionOf[number];
+	}
+
+	/**************************************************************************
+	 * Tests whether a chain of numbers can still join two numbers on the
+	 * board. The chain needs one step for each number between them, so
+	 * the cells must be no further apart than that, and an odd or even
+	 * gap must match an odd or even distance. Numbers that are not on
+	 * the board can always be joined.
+	 * 
+	 * @param low
+	 *            The lower number.
+	 * @param high
+	 *            The higher number.
+	 * @return {@code false} if no chain of the right length can join the
+	 *         two numbers, {@code true} otherwise.
+	 **************************************************************************/
+	public boolean isReachable(int low, int high) {
+		int from = getPosition(low);
+		int to = getPosition(high);
+		if (from == OUT_OF_RANGE || to == OUT_OF_RANGE)
+			return true;
+		int distance = Math.abs(from / columns - to / columns)
+				+ Math.abs(from % columns - to % columns);
+		int steps = Math.abs(high - low);
+		return distance <= steps && (steps - distance) % 2 == 0;
+	}
+
 	/**************************************************************************
 	 * Tests the board for completeness.
 	 * 
@@ -443,7 +598,8 @@ public class NumbrixEngine extends java.util.Observable {
 		if (directlyInvalidChecker(number, row, col)) {
 			unique[board[row][col]] = false;
 			unique[number] = true;
-			board[row][col] = number;
+			setCell(number, row, col);
+			neighborValidityChecker(row, col);
 			changes++;
 		} else {
 
@@ -470,8 +626,15 @@ public class NumbrixEngine extends java.util.Observable {
 	private void duplicateBoard() {
 		originalBoard = new int[rows][columns];
 		uniqueOriginal = new boolean[unique.length];
+		positionOriginal = new int[positionOf.length];
+		invalidOriginal = new boolean[rows][columns];
 		copyBooleanArray(uniqueOriginal, unique);
 		copyBoards(originalBoard, board);
+		for (int i = 0; i < rows; i++)
+			copyBooleanArray(invalidOriginal[i], invalid[i]);
+		invalidCountOriginal = invalidCount;
+		System.arraycopy(positionOf, 0, positionOriginal, 0,
+				positionOf.length);
 	}
 
 	/**************************************************************************
@@ -480,9 +643,34 @@ public class NumbrixEngine extends java.util.Observable {
 	public void resetBoard() {
 		copyBoards(board, originalBoard);
 		copyBooleanArray(unique, uniqueOriginal);
+		System.arraycopy(positionOriginal, 0, positionOf, 0,
+				positionOf.length);
+		for (int i = 0; i < rows; i++)
+			copyBooleanArray(invalid[i], invalidOriginal[i]);
+		invalidCount = invalidCountOriginal;
 		changes = 0;
 	}
 
+	/**************************************************************************
+	 * Puts a number in a cell and moves the number out of the position
+	 * index, along with any number that was in the cell before.
+	 * 
+	 * @param number
+	 *            The number to put in the cell, or {@code EMPTY}.
+	 * @param row
+	 *            The row of the cell.
+	 * @param col
+	 *            The column of the cell.
+	 **************************************************************************/
+	private void setCell(int number, int row, int col) {
+		int old = board[row][col];
+		if (old != EMPTY)
+			positionOf[old] = OUT_OF_RANGE;
+		if (number != EMPTY)
+			positionOf[number] = row * columns + col;
+		board[row][col] = number;
+	}
+
 	/**************************************************************************
 	 * Duplicates one board and stores it in another one.
 	 * 
@@ -528,9 +716,10 @@ public class NumbrixEngine extends java.util.Observable {
 		update();
 		for (int i = 0; i < board.length; i++)
 			for (int j = 0; j < board[i].length; j++)
-				board[i][j] = 0;
+				setCell(EMPTY, i, j);
 		for (int k = 0; k < unique.length; k++)
 			unique[k] = false;
+		validityCounter();
 		duplicateBoard();
 	}
 
@@ -541,6 +730,11 @@ public class NumbrixEngine extends java.util.Observable {
 		board = new int[rows][columns];
 		board_size = rows * columns;
 		unique = new boolean[board_size + 1];
+		positionOf = new int[board_size + 1];
+		invalid = new boolean[rows][columns];
+		invalidCount = 0;
+		for (int k = 0; k < positionOf.length; k++)
+			positionOf[k] = OUT_OF_RANGE;
 		changes = 0;
 	}
 
@@ -217,6 +217,64 @@ public class NumbrixEngineTest
 
 	} // end getPrefixedFiles
 
+	/**************************************************************************
+	 * Make sure the engine knows where each number is after loading,
+	 * adding numbers, and resetting.
+	 **************************************************************************/
+	private static void testPositions() throws InvalidGameStateException
+	{
+		NumbrixEngine game = new NumbrixEngine();
+		int[][] board = { { 1, 0, 0 }, { 0, 0, 0 }, { 0, 0, 9 } };
+		boolean passed = true;
+		game.loadGame(board);
+		passed &= game.getPosition(1) == 0 && game.getPosition(9) == 8;
+		passed &= game.getPosition(2) == NumbrixEngine.OUT_OF_RANGE;
+		passed &= game.isReachable(1, 9) && game.isReachable(1, 4);
+		game.addNumber(2, 0, 1);
+		game.addNumber(3, 1, 1);
+		passed &= game.getPosition(3) == 4 && game.isReachable(3, 9);
+		game.addNumber(4, 1, 1);
+		passed &= game.getPosition(3) == NumbrixEngine.OUT_OF_RANGE
+				&& game.getPosition(4) == 4;
+		game.resetBoard();
+		passed &= game.getPosition(2) == NumbrixEngine.OUT_OF_RANGE
+				&& game.getPosition(4) == NumbrixEngine.OUT_OF_RANGE
+				&& game.getPosition(9) == 8;
+		board[2][2] = 4;
+		game.loadGame(board);
+		passed &= !game.isReachable(1, 4) && !game.isReachable(4, 1);
+		System.out.println("Position test\t" + (passed ? "PASSED" : "FAILED"));
+		if (!passed)
+			numFailures++;
+	}
+
+	/**************************************************************************
+	 * Make sure adding a number re-checks the numbers next to it and
+	 * keeps the count of invalid spaces up to date.
+	 **************************************************************************/
+	private static void testValidity() throws InvalidGameStateException
+	{
+		NumbrixEngine game = new NumbrixEngine();
+		boolean passed = true;
+		game.newBlankGame(3, 3);
+		passed &= game.getInvalidCount() == 0;
+		game.addNumber(1, 0, 0);
+		game.addNumber(5, 0, 1);
+		passed &= game.getInvalidCount() == 0;
+
+		// 1 is left with no empty neighbor and no 2 next to it.
+		game.addNumber(3, 1, 0);
+		passed &= game.getInvalidCount() == 1 && game.isInvalid(0, 0);
+		game.addNumber(2, 1, 0);
+		passed &= game.getInvalidCount() == 0 && !game.isInvalid(0, 0);
+		game.addNumber(3, 1, 0);
+		game.resetBoard();
+		passed &= game.getInvalidCount() == 0 && !game.isInvalid(0, 0);
+		System.out.println("Validity test\t" + (passed ? "PASSED" : "FAILED"));
+		if (!passed)
+			numFailures++;
+	}
+
 	private static void runNoParams() throws FileNotFoundException,
 			ParseException, InvalidGameStateException
 	{
@@ -249,6 +307,8 @@ public class NumbrixEngineTest
 	{
 		System.out.println("Running all tests.");
 		testFileNotFound();
+		testPositions();
+		testValidity();
 		testWillNotParse();
 		testInvalidState();
 		testProblem();
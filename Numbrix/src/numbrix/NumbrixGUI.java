@@ -562,6 +562,7 @@ public class NumbrixGUI implements ActionListener {
 						control.addEntry(
 								entries[i][j].getText().trim(), i, j);
 						entries[i][j].setFont(change);
+						conflictDisplay(i, j);
 						autoFocus();
 						gameCompletenessCheck();
 					} catch (NumberFormatException e1) {
@@ -577,6 +578,26 @@ public class NumbrixGUI implements ActionListener {
 				}
 	}
 
+	/**************************************************************************
+	 * Colors a changed text field and its neighbors red if they conflict
+	 * with the numbers around them, and white otherwise.
+	 * 
+	 * @param row
+	 *            The row of the changed text field.
+	 * @param col
+	 *            The column of the changed text field.
+	 **************************************************************************/
+	private void conflictDisplay(int row, int col) {
+		int[][] cells = { { row, col }, { row - 1, col }, { row + 1, col },
+				{ row, col - 1 }, { row, col + 1 } };
+		for (int[] cell : cells)
+			if (cell[0] >= 0 && cell[0] < entries.length && cell[1] >= 0
+					&& cell[1] < entries[cell[0]].length)
+				entries[cell[0]][cell[1]].setForeground(control
+						.isConflict(cell[0], cell[1]) ? Color.RED
+						: Color.WHITE);
+	}
+
 	/**************************************************************************
 	 * Gets the first empty text field and then sets the focus on that
 	 * field.
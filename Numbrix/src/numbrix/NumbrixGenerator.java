@@ -0,0 +1,448 @@
+package numbrix;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**************************************************************************
+ * A generator of random Numbrix games with exactly one completion. Each
+ * game starts from a random path through every cell of the board, and
+ * numbers are then removed one at a time for as long as the game still
+ * has one completion. Batches of games are split across the cores of
+ * the machine on a fork-join pool.
+ *
+ * @author Sam Eary
+ * @version 1.0
+ **************************************************************************/
+public class NumbrixGenerator {
+
+	/** The difficulty of a game solved with only a few guesses. */
+	public static final int EASY = 0;
+
+	/** The difficulty of a game solved with about a guess per cell. */
+	public static final int MEDIUM = 1;
+
+	/** The difficulty of a game that needs a longer search. */
+	public static final int HARD = 2;
+
+	/** The names of the difficulties, used to tag the written games. */
+	public static final String[] DIFFICULTIES = { "easy", "medium", "hard" };
+
+	/** The number of games each task generates without splitting further. */
+	private static final int BATCH = 4;
+
+	/** The number of backbite moves made per cell to shuffle a path. */
+	private static final int SHUFFLES = 10;
+
+	/** The number of guesses per empty cell that each difficulty allows. */
+	private static final double[] GUESSES = { 0.5, 2 };
+
+	/** The row and column offsets of the neighbours of a cell. */
+	private static final int[][] STEPS = { { -1, 0 }, { 1, 0 }, { 0, -1 },
+			{ 0, 1 } };
+
+	/** The number of rows and columns in the game board. */
+	private int rows, cols;
+
+	/** The seed that the games are based on. */
+	private long seed;
+
+	/** The pool that generates the games. */
+	private ForkJoinPool pool;
+
+	/**************************************************************************
+	 * Constructor for the {@code NumbrixGenerator} class.
+	 *
+	 * @param rows
+	 *            The number of rows in the game board.
+	 * @param cols
+	 *            The number of columns in the game board.
+	 * @param seed
+	 *            The seed that the games are based on.
+	 **************************************************************************/
+	public NumbrixGenerator(int rows, int cols, long seed) {
+		if (rows < 1 || cols < 1)
+			throw new IllegalArgumentException(NumbrixEngine.RANGE_ERROR);
+		this.rows = rows;
+		this.cols = cols;
+		this.seed = seed;
+		pool = new ForkJoinPool();
+	}
+
+	/**************************************************************************
+	 * Generates the given number of games in parallel.
+	 *
+	 * @param games
+	 *            The number of games to generate.
+	 * @return the games, each with its completion.
+	 **************************************************************************/
+	public Puzzle[] run(int games) {
+		Puzzle[] puzzles = new Puzzle[games];
+		pool.invoke(new PuzzleBatch(0, games, puzzles));
+		return puzzles;
+	}
+
+	/**************************************************************************
+	 * Generates a single game. The same index always gives the same game
+	 * for the same seed and board size.
+	 *
+	 * @param game
+	 *            The index of the game, which selects its seed.
+	 * @return the game with its completion.
+	 **************************************************************************/
+	public Puzzle generate(int game) {
+		Random random = new Random(seed + game * 0x9E3779B97F4A7C15L);
+		int[][] solution = randomPath(random);
+		int[][] board = new int[rows][cols];
+		int[] order = new int[rows * cols];
+		int givens = order.length;
+		int cell, value;
+		for (int i = 0; i < rows; i++)
+			System.arraycopy(solution[i], 0, board[i], 0, cols);
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		for (int i = order.length - 1; i > 0; i--) {
+			cell = random.nextInt(i + 1);
+			value = order[i];
+			order[i] = order[cell];
+			order[cell] = value;
+		}
+		for (int i = 0; i < order.length; i++) {
+			cell = order[i];
+			value = board[cell / cols][cell % cols];
+			board[cell / cols][cell % cols] = NumbrixEngine.EMPTY;
+			if (isUnique(board))
+				givens--;
+			else
+				board[cell / cols][cell % cols] = value;
+		}
+		return new Puzzle(game, board, solution, givens);
+	}
+
+	/**************************************************************************
+	 * Checks that a game has exactly one completion and that the engine
+	 * would load it. The engine turns down a few boards that do have a
+	 * completion, and those boards are never kept.
+	 *
+	 * @param board
+	 *            The game board, with {@code EMPTY} on unknown cells.
+	 * @return true if the game can be played as a puzzle.
+	 **************************************************************************/
+	private boolean isUnique(int[][] board) {
+		try {
+			NumbrixCounter counter = new NumbrixCounter(board);
+			if (counter.checkUniqueness() != NumbrixCounter.UNIQUE)
+				return false;
+			new NumbrixEngine().loadGame(board);
+			return true;
+		} catch (InvalidGameStateException e) {
+			return false;
+		}
+	}
+
+	/**************************************************************************
+	 * Builds a random path through every cell of the board. The path
+	 * starts as a snake through the rows and is shuffled with backbite
+	 * moves: one end of the path is joined to a random neighbour, and
+	 * the part of the path between the end and that neighbour is turned
+	 * around so that it ends the path instead. Only the cells of that
+	 * part move, so only their positions are updated.
+	 *
+	 * @param random
+	 *            The source of random numbers.
+	 * @return the board with every number of the path filled in.
+	 **************************************************************************/
+	private int[][] randomPath(Random random) {
+		int size = rows * cols;
+		int[] path = new int[size];
+		int[] positionOf = new int[size];
+		int[][] board = new int[rows][cols];
+		int cell, row, col, step, next;
+		boolean head;
+		for (int i = 0; i < size; i++) {
+			row = i / cols;
+			col = row % 2 == 0 ? i % cols : cols - 1 - i % cols;
+			path[i] = row * cols + col;
+			positionOf[path[i]] = i;
+		}
+		for (int move = 0; move < SHUFFLES * size; move++) {
+			head = random.nextBoolean();
+			cell = path[head ? 0 : size - 1];
+			step = random.nextInt(STEPS.length);
+			row = cell / cols + STEPS[step][0];
+			col = cell % cols + STEPS[step][1];
+			if (row < 0 || row >= rows || col < 0 || col >= cols)
+				continue;
+			next = positionOf[row * cols + col];
+			if (head)
+				reverse(path, positionOf, 0, next - 1);
+			else
+				reverse(path, positionOf, next + 1, size - 1);
+		}
+		for (int i = 0; i < size; i++) {
+			cell = path[i];
+			board[cell / cols][cell % cols] = i + NumbrixEngine.INCREMENT;
+		}
+		return board;
+	}
+
+	/**************************************************************************
+	 * Reverses part of a path and moves its cells in the position index.
+	 *
+	 * @param path
+	 *            The cells of the path in order.
+	 * @param positionOf
+	 *            The position of each cell in the path.
+	 * @param first
+	 *            The first position of the part.
+	 * @param last
+	 *            The last position of the part.
+	 **************************************************************************/
+	private static void reverse(int[] path, int[] positionOf, int first,
+			int last) {
+		int swap;
+		while (first < last) {
+			swap = path[first];
+			path[first] = path[last];
+			path[last] = swap;
+			positionOf[path[first]] = first++;
+			positionOf[path[last]] = last--;
+		}
+	}
+
+	/**************************************************************************
+	 * Shuts down the pool that generates the games.
+	 **************************************************************************/
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**************************************************************************
+	 * A generated game with its completion and difficulty.
+	 *
+	 * @author Sam Eary
+	 * @version 1.0
+	 **************************************************************************/
+	public static class Puzzle {
+
+		/** The index of the game in its batch. */
+		private int index;
+
+		/** The game board, with {@code EMPTY} on unknown cells. */
+		private int[][] board;
+
+		/** The only completion of the game. */
+		private int[][] solution;
+
+		/** The number of numbers given on the board. */
+		private int givens;
+
+		/** The difficulty of the game. */
+		private int difficulty;
+
+		/**************************************************************************
+		 * Constructor for the {@code Puzzle} class. The difficulty comes
+		 * from how much guessing a solver needs to complete the game.
+		 *
+		 * @param index
+		 *            The index of the game in its batch.
+		 * @param board
+		 *            The game board, with {@code EMPTY} on unknown cells.
+		 * @param solution
+		 *            The only completion of the game.
+		 * @param givens
+		 *            The number of numbers given on the board.
+		 **************************************************************************/
+		private Puzzle(int index, int[][] board, int[][] solution,
+				int givens) {
+			this.index = index;
+			this.board = board;
+			this.solution = solution;
+			this.givens = givens;
+			int empty = board.length * board[0].length - givens;
+			NumbrixSolver solver;
+			try {
+				solver = new NumbrixSolver(board);
+			} catch (InvalidGameStateException e) {
+				throw new IllegalStateException(e.getMessage());
+			}
+			solver.solve();
+			difficulty = EASY;
+			while (difficulty < HARD
+					&& solver.getGuesses() > GUESSES[difficulty] * empty)
+				difficulty++;
+		}
+
+		/**************************************************************************
+		 * Gets the index of the game in its batch.
+		 *
+		 * @return the index of the game.
+		 **************************************************************************/
+		public int getIndex() {
+			return index;
+		}
+
+		/**************************************************************************
+		 * Gets the game board.
+		 *
+		 * @return the board, with {@code EMPTY} on unknown cells.
+		 **************************************************************************/
+		public int[][] getBoard() {
+			return board;
+		}
+
+		/**************************************************************************
+		 * Gets the only completion of the game.
+		 *
+		 * @return the completed board.
+		 **************************************************************************/
+		public int[][] getSolution() {
+			return solution;
+		}
+
+		/**************************************************************************
+		 * Gets the number of numbers given on the board.
+		 *
+		 * @return the number of givens.
+		 **************************************************************************/
+		public int getGivens() {
+			return givens;
+		}
+
+		/**************************************************************************
+		 * Gets the difficulty of the game.
+		 *
+		 * @return {@code EASY}, {@code MEDIUM}, or {@code HARD}.
+		 **************************************************************************/
+		public int getDifficulty() {
+			return difficulty;
+		}
+
+		/**************************************************************************
+		 * Writes the game to a file in the format read by
+		 * {@code NumbrixEngine.loadGame}.
+		 *
+		 * @param file
+		 *            The file to write.
+		 * @param seed
+		 *            The seed of the batch, recorded in the file header.
+		 * @throws FileNotFoundException
+		 *             if the file cannot be written.
+		 **************************************************************************/
+		public void write(File file, long seed) throws FileNotFoundException {
+			PrintWriter out = new PrintWriter(file);
+			try {
+				out.println("#");
+				out.println("# Generated game " + index + " of seed " + seed);
+				out.println("# Difficulty " + DIFFICULTIES[difficulty]
+						+ ", " + givens + " givens");
+				out.println("#");
+				out.println(board.length + " " + board[0].length);
+				for (int i = 0; i < board.length; i++) {
+					for (int j = 0; j < board[i].length; j++)
+						out.print((j == 0 ? "" : " ") + board[i][j]);
+					out.println();
+				}
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**************************************************************************
+	 * A task that generates a range of games, splitting the range in half
+	 * until it is small enough to generate directly.
+	 *
+	 * @author Sam Eary
+	 * @version 1.0
+	 **************************************************************************/
+	private class PuzzleBatch extends RecursiveTask<Void> {
+
+		/** The serial version ID. */
+		private static final long serialVersionUID = 6043117815893017124L;
+
+		/** The first game and one past the last game of the range. */
+		private int start, end;
+
+		/** The generated games. */
+		private Puzzle[] puzzles;
+
+		/**************************************************************************
+		 * Constructor for the {@code PuzzleBatch} class.
+		 *
+		 * @param start
+		 *            The first game of the range.
+		 * @param end
+		 *            One past the last game of the range.
+		 * @param puzzles
+		 *            The generated games.
+		 **************************************************************************/
+		private PuzzleBatch(int start, int end, Puzzle[] puzzles) {
+			this.start = start;
+			this.end = end;
+			this.puzzles = puzzles;
+		}
+
+		/**************************************************************************
+		 * Generates the range of games.
+		 *
+		 * @return {@code null} once every game has been generated.
+		 **************************************************************************/
+		protected Void compute() {
+			if (end - start <= BATCH) {
+				for (int i = start; i < end; i++)
+					puzzles[i] = generate(i);
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new PuzzleBatch(start, middle, puzzles),
+						new PuzzleBatch(middle, end, puzzles));
+			}
+			return null;
+		}
+	}
+
+	/**************************************************************************
+	 * Runs the generator from the command line. The arguments are the
+	 * number of games, the number of rows and columns, and the folder to
+	 * write the games to, for example {@code 1000 9 9 Games/generated}.
+	 * Each game is written to a file named after its difficulty and
+	 * index. A run can be repeated by setting the {@code seed} system
+	 * property to the seed it printed.
+	 *
+	 * @param args
+	 *            The command line arguments.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		int cols = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+		File folder = new File(args.length > 3 ? args[3] : "generated");
+		long seed = Long.getLong("seed", System.nanoTime());
+		NumbrixGenerator generator = new NumbrixGenerator(rows, cols, seed);
+		int[] counts = new int[DIFFICULTIES.length];
+		System.out.println(games + " games on " + rows + "x" + cols
+				+ " boards, seed " + seed);
+		long start = System.nanoTime();
+		Puzzle[] puzzles = generator.run(games);
+		double minutes = (System.nanoTime() - start) / 60e9;
+		generator.shutdown();
+		folder.mkdirs();
+		for (Puzzle puzzle : puzzles) {
+			counts[puzzle.getDifficulty()]++;
+			try {
+				puzzle.write(new File(folder,
+						DIFFICULTIES[puzzle.getDifficulty()] + "_"
+								+ puzzle.getIndex() + ".game"), seed);
+			} catch (FileNotFoundException e) {
+				System.out.println(e.getMessage());
+				return;
+			}
+		}
+		for (int i = 0; i < counts.length; i++)
+			System.out.println(DIFFICULTIES[i] + ": " + counts[i]);
+		System.out.printf("%.0f games per minute%n", games / minutes);
+	}
+}
@@ -0,0 +1,1222 @@
+package numbrix;
+
+import java.io.FileNotFoundException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**************************************************************************
+ * A class to solve Numbrix games. The missing numbers form gaps between
+ * the given numbers, and the search fills each gap one cell at a time
+ * from either end. The end with the fewest moves is extended first,
+ * and then the gap with the least room to wander, so forced moves are
+ * made before anything is guessed. A move is pruned when the other end
+ * of its gap is farther away than the numbers left to reach it, and
+ * when it leaves an empty cell or a region of empty cells that can no
+ * longer be filled. The regions are kept up to date as numbers are
+ * placed and removed, so only a region that a move splits is flooded.
+ *
+ * @author Sam Eary
+ * @version 1.0
+ **************************************************************************/
+public class NumbrixSolver {
+
+	/** The number of moves found when every gap has been filled. */
+	protected static final int COMPLETE = -1;
+
+	/** Represents a number that is not on the board. */
+	private static final int UNPLACED = -1;
+
+	/** The number of nanoseconds in a second. */
+	private static final double NANOS = 1e9;
+
+	/**
+	 * The steps to the cells around a cell, going around it from above,
+	 * with the neighbors at the even indices.
+	 */
+	private static final int[][] RING = { { -1, 0 }, { -1, 1 }, { 0, 1 },
+			{ 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, -1 } };
+
+	/** The number of rows, of columns, and the size of the board. */
+	private int rows, columns, board_size;
+
+	/** The number on each packed cell, or {@code EMPTY}. */
+	private int[] cells;
+
+	/** The packed cell of each number, or {@code UNPLACED}. */
+	private int[] positionOf;
+
+	/** The packed cells adjacent to each packed cell. */
+	private int[][] adjacent;
+
+	/** The number of empty or open cells adjacent to each empty cell. */
+	private int[] links;
+
+	/** The number of empty cells with at most one link and with none. */
+	private int deadEnds, isolated;
+
+	/** The mark of the last flood of each cell. */
+	private int[] marks;
+
+	/** The last mark given to a flood of the cells. */
+	private int visits;
+
+	/** The cells waiting to be flooded. */
+	private int[] stack;
+
+	/** The region of each empty cell. */
+	private int[] region;
+
+	/** The number of regions that have been numbered. */
+	private int regionCount;
+
+	/**
+	 * The cells moved into a new region when a region was split, and
+	 * the regions they were moved out of.
+	 */
+	private int[] trailCells, trailRegions;
+
+	/** The number of cells on the trail. */
+	private int trailSize;
+
+	/** The size of the trail and the number of regions before each move. */
+	private int[] trailMarks, regionMarks;
+
+	/** The number of numbers placed by the search. */
+	private int depth;
+
+	/** The number of open numbers each region touches, and one of them. */
+	private int[] contacts, contact;
+
+	/** The cells waiting to be flooded in each part of a split region. */
+	private int[][] fronts;
+
+	/** The color of each packed cell on a checkerboard. */
+	private int[] color;
+
+	/**
+	 * The number of cells of each color in each region, the numbers
+	 * that could fill them, and the numbers that must fill them.
+	 */
+	private int[][] regionSize, capacity, demand;
+
+	/** The highest number placed up from the bottom of each gap. */
+	private int[] lower;
+
+	/** The lowest number placed down from the top of each gap. */
+	private int[] upper;
+
+	/** The number of gaps between the given numbers. */
+	private int gaps;
+
+	/** The gap and the end of it chosen by {@code chooseEnd()}. */
+	private int chosenGap;
+
+	/** Whether the bottom of the chosen gap is extended upward. */
+	private boolean chosenUp;
+
+	/** The number of completions found by every copy of the search. */
+	private AtomicInteger solutions;
+
+	/** The number of completions at which the search stops. */
+	private int limit;
+
+	/** Whether the board has been solved. */
+	private boolean solved;
+
+	/** The number of cells filled by the last search. */
+	private long nodes;
+
+	/** The number of ends with more than one move in the last search. */
+	private long guesses;
+
+	/** The length of the last search in nanoseconds. */
+	private long elapsed;
+
+	/**************************************************************************
+	 * Constructor for the {@code NumbrixSolver} class. Copies the
+	 * board to be solved.
+	 *
+	 * @param board
+	 *            The game board, with {@code EMPTY} on unknown cells.
+	 * @throws InvalidGameStateException
+	 *             if a number is out of range or duplicated.
+	 **************************************************************************/
+	public NumbrixSolver(int[][] board) throws InvalidGameStateException {
+		rows = board.length;
+		columns = rows == 0 ? 0 : board[0].length;
+		board_size = rows * columns;
+		if (board_size == 0)
+			throw new InvalidGameStateException(NumbrixEngine.RANGE_ERROR);
+		cells = new int[board_size];
+		positionOf = new int[board_size + 2];
+		for (int k = 0; k < positionOf.length; k++)
+			positionOf[k] = UNPLACED;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < columns; j++)
+				given(board[i][j], i * columns + j);
+		adjacencyLoader();
+		gapLoader();
+		linkLoader();
+	}
+
+	/**************************************************************************
+	 * Copy constructor for the {@code NumbrixSolver} class. The copy
+	 * shares the count of completions with the original, so that the
+	 * copies can search different parts of the same board.
+	 *
+	 * @param other
+	 *            The solver to copy.
+	 **************************************************************************/
+	protected NumbrixSolver(NumbrixSolver other) {
+		rows = other.rows;
+		columns = other.columns;
+		board_size = other.board_size;
+		cells = other.cells.clone();
+		positionOf = other.positionOf.clone();
+		adjacent = other.adjacent;
+		color = other.color;
+		links = other.links.clone();
+		deadEnds = other.deadEnds;
+		isolated = other.isolated;
+		lower = other.lower.clone();
+		upper = other.upper.clone();
+		gaps = other.gaps;
+		chosenGap = other.chosenGap;
+		chosenUp = other.chosenUp;
+		solutions = other.solutions;
+		limit = other.limit;
+		region = other.region.clone();
+		regionSize = new int[][] { other.regionSize[0].clone(),
+				other.regionSize[1].clone() };
+		regionCount = other.regionCount;
+		trailCells = other.trailCells.clone();
+		trailRegions = other.trailRegions.clone();
+		trailSize = other.trailSize;
+		trailMarks = other.trailMarks.clone();
+		regionMarks = other.regionMarks.clone();
+		depth = other.depth;
+		marks = new int[board_size];
+		stack = new int[board_size];
+		fronts = new int[4][board_size];
+		capacity = new int[2][other.contacts.length];
+		demand = new int[2][other.contacts.length];
+		contacts = new int[other.contacts.length];
+		contact = new int[other.contacts.length];
+	}
+
+	/**************************************************************************
+	 * Places a given number on the board before the search.
+	 *
+	 * @param number
+	 *            The given number, or {@code EMPTY}.
+	 * @param cell
+	 *            The packed cell of the number.
+	 * @throws InvalidGameStateException
+	 *             if the number is out of range or duplicated.
+	 **************************************************************************/
+	private void given(int number, int cell)
+			throws InvalidGameStateException {
+		if (number == NumbrixEngine.EMPTY)
+			return;
+		if (number < 1 || number > board_size)
+			throw new InvalidGameStateException(NumbrixEngine.RANGE_ERROR);
+		if (positionOf[number] != UNPLACED)
+			throw new InvalidGameStateException(NumbrixEngine.DUPLICATE);
+		cells[cell] = number;
+		positionOf[number] = cell;
+	}
+
+	/**************************************************************************
+	 * Finds the cells adjacent to every cell and the color of every
+	 * cell.
+	 **************************************************************************/
+	private void adjacencyLoader() {
+		int count, row, col;
+		int[] near = new int[4];
+		adjacent = new int[board_size][];
+		color = new int[board_size];
+		for (int cell = 0; cell < board_size; cell++) {
+			row = cell / columns;
+			col = cell % columns;
+			color[cell] = (row + col) % 2;
+			count = 0;
+			if (row > 0)
+				near[count++] = cell - columns;
+			if (row < rows - 1)
+				near[count++] = cell + columns;
+			if (col > 0)
+				near[count++] = cell - 1;
+			if (col < columns - 1)
+				near[count++] = cell + 1;
+			adjacent[cell] = new int[count];
+			System.arraycopy(near, 0, adjacent[cell], 0, count);
+		}
+	}
+
+	/**************************************************************************
+	 * Finds the gaps of missing numbers between the given numbers. The
+	 * gaps below the lowest and above the highest given number are
+	 * bounded by zero and by one more than the size of the board.
+	 **************************************************************************/
+	private void gapLoader() {
+		int previous = 0;
+		lower = new int[board_size + 1];
+		upper = new int[board_size + 1];
+		gaps = 0;
+		for (int number = 1; number <= board_size + 1; number++) {
+			if (number <= board_size && positionOf[number] == UNPLACED)
+				continue;
+			if (number - previous > 1) {
+				lower[gaps] = previous;
+				upper[gaps] = number;
+				gaps++;
+			}
+			previous = number;
+		}
+	}
+
+	/**************************************************************************
+	 * Counts the links of every empty cell and numbers the regions of
+	 * empty cells. Each move makes at most three new regions, which
+	 * bounds the number of regions the search can number.
+	 **************************************************************************/
+	private void linkLoader() {
+		int ids = 4 * board_size + 1;
+		links = new int[board_size];
+		marks = new int[board_size];
+		stack = new int[board_size];
+		fronts = new int[4][board_size];
+		region = new int[board_size];
+		regionSize = new int[2][ids];
+		capacity = new int[2][ids];
+		demand = new int[2][ids];
+		contacts = new int[ids];
+		contact = new int[ids];
+		trailCells = new int[board_size];
+		trailRegions = new int[board_size];
+		trailMarks = new int[board_size + 1];
+		regionMarks = new int[board_size + 1];
+		regionCount = 0;
+		visits++;
+		for (int cell = 0; cell < board_size; cell++)
+			if (cells[cell] == NumbrixEngine.EMPTY && marks[cell] != visits)
+				flood(cell, regionCount++);
+		deadEnds = 0;
+		isolated = 0;
+		for (int cell = 0; cell < board_size; cell++) {
+			if (cells[cell] != NumbrixEngine.EMPTY)
+				continue;
+			for (int near : adjacent[cell])
+				if (isLink(near))
+					links[cell]++;
+			if (links[cell] <= 1)
+				deadEnds++;
+			if (links[cell] == 0)
+				isolated++;
+		}
+	}
+
+	/**************************************************************************
+	 * Searches for a completion of the board. Once one has been found,
+	 * later calls return it again without searching.
+	 *
+	 * @return {@code true} if the board has a completion, {@code false}
+	 *         if there is none.
+	 **************************************************************************/
+	public boolean solve() {
+		if (solved)
+			return true;
+		long start = System.nanoTime();
+		nodes = 0;
+		guesses = 0;
+		setLimit(new AtomicInteger(), 1);
+		solved = isFeasible() && search();
+		elapsed = System.nanoTime() - start;
+		return solved;
+	}
+
+	/**************************************************************************
+	 * Gets the completed board.
+	 *
+	 * @return the array representing the completed game board, or
+	 *         {@code null} if the board has not been solved.
+	 **************************************************************************/
+	public int[][] getSolution() {
+		if (!solved)
+			return null;
+		int[][] board = new int[rows][columns];
+		for (int cell = 0; cell < board_size; cell++)
+			board[cell / columns][cell % columns] = cells[cell];
+		return board;
+	}
+
+	/**************************************************************************
+	 * Gets the number of cells filled by the last search.
+	 *
+	 * @return the number of nodes searched.
+	 **************************************************************************/
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**************************************************************************
+	 * Gets the number of times the last search had to guess between
+	 * moves. A board solved without guessing only needed forced moves.
+	 *
+	 * @return the number of guesses.
+	 **************************************************************************/
+	public long getGuesses() {
+		return guesses;
+	}
+
+	/**************************************************************************
+	 * Gets the length of the last search.
+	 *
+	 * @return the length of the search in nanoseconds.
+	 **************************************************************************/
+	public long getElapsedNanos() {
+		return elapsed;
+	}
+
+	/**************************************************************************
+	 * Gets the throughput of the last search.
+	 *
+	 * @return the number of nodes searched per second.
+	 **************************************************************************/
+	public double getNodesPerSecond() {
+		return elapsed == 0 ? 0 : nodes * NANOS / elapsed;
+	}
+
+	/**************************************************************************
+	 * Tests the given numbers against each other before searching. Two
+	 * given numbers must be no farther apart on the board than they are
+	 * in value, and a path between them alternates the colors of a
+	 * checkerboard, so the distance and the difference must both be
+	 * even or both be odd. On a board with an odd number of cells the
+	 * path starts and ends on the color that has more cells.
+	 *
+	 * @return {@code false} if the board cannot be completed, {@code
+	 *         true} if the search is needed to tell.
+	 **************************************************************************/
+	protected boolean isFeasible() {
+		int previous = NumbrixEngine.EMPTY;
+		int cell, distance;
+		for (int number = 1; number <= board_size; number++) {
+			cell = positionOf[number];
+			if (cell == UNPLACED)
+				continue;
+			if (board_size % 2 == 1 && (color[cell] + number) % 2 == 0)
+				return false;
+			if (previous != NumbrixEngine.EMPTY) {
+				distance = getDistance(positionOf[previous], cell);
+				if (distance > number - previous
+						|| (number - previous - distance) % 2 != 0)
+					return false;
+			}
+			previous = number;
+		}
+		return true;
+	}
+
+	/**************************************************************************
+	 * Sets the count of completions shared by the copies of the search
+	 * and the number of completions at which they stop.
+	 *
+	 * @param solutions
+	 *            The count of completions.
+	 * @param limit
+	 *            The number of completions to stop at.
+	 **************************************************************************/
+	protected void setLimit(AtomicInteger solutions, int limit) {
+		this.solutions = solutions;
+		this.limit = limit;
+	}
+
+	/**************************************************************************
+	 * Tests to see if the board has no given numbers.
+	 *
+	 * @return {@code true} if the board is blank, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	protected boolean isBlank() {
+		return lower[0] == 0 && upper[0] == board_size + 1;
+	}
+
+	/**************************************************************************
+	 * Starts the search. A blank board has no chain to extend, so one
+	 * is started on every cell in turn.
+	 *
+	 * @return {@code true} if the search reached its limit of
+	 *         completions, {@code false} otherwise.
+	 **************************************************************************/
+	protected boolean search() {
+		if (!isBlank())
+			return isPromising() && extend();
+		for (int cell = 0; cell < board_size; cell++) {
+			advance(0, true, cell);
+			if (isPromising() && extend())
+				return true;
+			retreat(0, true, cell);
+		}
+		return false;
+	}
+
+	/**************************************************************************
+	 * Extends one end of a gap by one cell and searches on from there.
+	 * Every completion found is counted, and the search stops once the
+	 * copies of the search have found as many as the limit. The board
+	 * is left on the completion that reached the limit.
+	 *
+	 * @return {@code true} if the search reached its limit of
+	 *         completions, {@code false} otherwise.
+	 **************************************************************************/
+	protected boolean extend() {
+		if (solutions.get() >= limit)
+			return true;
+		int[] moves = new int[4];
+		int count = chooseEnd(moves);
+		if (count == COMPLETE)
+			return solutions.incrementAndGet() >= limit;
+		int gap = chosenGap;
+		boolean up = chosenUp;
+		if (count > 1)
+			guesses++;
+		for (int k = 0; k < count; k++) {
+			advance(gap, up, moves[k]);
+			if (isPromising() && extend())
+				return true;
+			retreat(gap, up, moves[k]);
+		}
+		return false;
+	}
+
+	/**************************************************************************
+	 * Chooses the end of a gap to extend next. The end with the fewest
+	 * moves is chosen, so an end with a single move is always filled
+	 * before anything is guessed, and then the gap with the least room
+	 * to wander.
+	 *
+	 * @param moves
+	 *            The array to store the packed cells of the moves in.
+	 * @return the number of moves, or {@code COMPLETE} if every gap has
+	 *         been filled.
+	 **************************************************************************/
+	protected int chooseEnd(int[] moves) {
+		int[] found = new int[4];
+		int count = COMPLETE;
+		int slack = 0;
+		int size, spare;
+		for (int i = 0; i < gaps && count != 0 && count != 1; i++) {
+			if (upper[i] - lower[i] <= 1)
+				continue;
+			spare = getSlack(i);
+			for (int end = 0; end < 2 && count != 0 && count != 1; end++) {
+				if (positionOf[end == 0 ? lower[i] : upper[i]] == UNPLACED)
+					continue;
+				size = getMoves(i, end == 0, found);
+				if (count == COMPLETE || size < count
+						|| (size == count && spare < slack)) {
+					System.arraycopy(found, 0, moves, 0, size);
+					count = size;
+					slack = spare;
+					chosenGap = i;
+					chosenUp = end == 0;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**************************************************************************
+	 * Extends the end chosen by {@code chooseEnd()} by one cell.
+	 *
+	 * @param cell
+	 *            The packed cell of one of the moves.
+	 **************************************************************************/
+	protected void advance(int cell) {
+		advance(chosenGap, chosenUp, cell);
+	}
+
+	/**************************************************************************
+	 * Extends one end of a gap by one cell.
+	 *
+	 * @param gap
+	 *            The index of the gap.
+	 * @param up
+	 *            {@code true} to extend the bottom of the gap upward,
+	 *            {@code false} to extend its top downward.
+	 * @param cell
+	 *            The packed cell of the move.
+	 **************************************************************************/
+	private void advance(int gap, boolean up, int cell) {
+		if (up)
+			place(++lower[gap], cell);
+		else
+			place(--upper[gap], cell);
+	}
+
+	/**************************************************************************
+	 * Takes back a move made by {@code advance()}.
+	 *
+	 * @param gap
+	 *            The index of the gap.
+	 * @param up
+	 *            {@code true} if the bottom of the gap was extended,
+	 *            {@code false} if its top was.
+	 * @param cell
+	 *            The packed cell of the move.
+	 **************************************************************************/
+	private void retreat(int gap, boolean up, int cell) {
+		if (up)
+			remove(lower[gap]--, cell);
+		else
+			remove(upper[gap]++, cell);
+	}
+
+	/**************************************************************************
+	 * Gets the number of extra steps a gap has to wander between its
+	 * ends. The gaps below the lowest and above the highest given
+	 * number are free to wander anywhere.
+	 *
+	 * @param gap
+	 *            The index of the gap.
+	 * @return the slack of the gap.
+	 **************************************************************************/
+	private int getSlack(int gap) {
+		int bottom = positionOf[lower[gap]];
+		int top = positionOf[upper[gap]];
+		if (bottom == UNPLACED || top == UNPLACED)
+			return board_size;
+		return upper[gap] - lower[gap] - getDistance(bottom, top);
+	}
+
+	/**************************************************************************
+	 * Finds the moves that extend one end of a gap. A cell is left out
+	 * when the other end of the gap is too far away from it. When the
+	 * next number is the first or last number, a cell that could only
+	 * be joined to this end is the only move.
+	 *
+	 * @param gap
+	 *            The index of the gap.
+	 * @param up
+	 *            {@code true} to extend the bottom of the gap upward,
+	 *            {@code false} to extend its top downward.
+	 * @param moves
+	 *            The array to store the packed cells of the moves in.
+	 * @return the number of moves.
+	 **************************************************************************/
+	private int getMoves(int gap, boolean up, int[] moves) {
+		int head = positionOf[up ? lower[gap] : upper[gap]];
+		int next = up ? lower[gap] + 1 : upper[gap] - 1;
+		int target = positionOf[up ? upper[gap] : lower[gap]];
+		int room = upper[gap] - lower[gap] - 1;
+		int count = 0;
+		int dead = UNPLACED;
+		for (int cell : adjacent[head]) {
+			if (cells[cell] != NumbrixEngine.EMPTY
+					|| (target != UNPLACED && getDistance(cell, target) > room))
+				continue;
+			if (links[cell] <= 1)
+				dead = dead == UNPLACED ? cell : board_size;
+			count = insertMove(moves, count, cell);
+		}
+		if ((next == 1 || next == board_size) && dead != UNPLACED
+				&& dead != board_size) {
+			moves[0] = dead;
+			count = 1;
+		}
+		return count;
+	}
+
+	/**************************************************************************
+	 * Tests to see if the board can still be completed after a number
+	 * has been placed. Every empty cell needs at least one link, and
+	 * only the unplaced first and last numbers may have fewer than two.
+	 * Every region of empty cells must touch an open number. A region
+	 * that touches a single open number can be entered but not left, so
+	 * that number must be the end of a chain going to the first or last
+	 * number. The rest of a gap runs through a single region that
+	 * touches both of its ends, so some region must have room for it,
+	 * and the gaps that could run through a region must be able to fill
+	 * it. Both are counted separately for each color of the
+	 * checkerboard, since the numbers of a gap alternate between them.
+	 *
+	 * @return {@code false} if the board cannot be completed, {@code
+	 *         true} if the search must go on to tell.
+	 **************************************************************************/
+	protected boolean isPromising() {
+		int ends = getFreeEnds();
+		if (isolated > 0 || deadEnds > ends)
+			return false;
+		for (int k = 0; k < regionCount; k++) {
+			contacts[k] = 0;
+			for (int color = 0; color < 2; color++) {
+				capacity[color][k] = 0;
+				demand[color][k] = 0;
+			}
+		}
+		visits++;
+		for (int i = 0; i < gaps; i++)
+			if (upper[i] - lower[i] > 1) {
+				touch(positionOf[lower[i]]);
+				touch(positionOf[upper[i]]);
+			}
+		for (int k = 0; k < regionCount; k++) {
+			if (regionSize[0][k] + regionSize[1][k] == 0)
+				continue;
+			if (contacts[k] == 0)
+				return false;
+			if (contacts[k] == 1 && (ends-- == 0 || !isFreeEnd(contact[k])))
+				return false;
+		}
+		for (int i = 0; i < gaps; i++)
+			if (upper[i] - lower[i] > 1 && !hasRoom(i))
+				return false;
+		for (int k = 0; k < regionCount; k++)
+			for (int color = 0; color < 2; color++)
+				if (capacity[color][k] < regionSize[color][k]
+						|| demand[color][k] > regionSize[color][k])
+					return false;
+		return true;
+	}
+
+	/**************************************************************************
+	 * Counts an open number as a contact of each region next to it. A
+	 * number next to a region on more than one side is only counted
+	 * once, and so is a number at the end of two gaps.
+	 *
+	 * @param cell
+	 *            The packed cell of the open number, or {@code UNPLACED}
+	 *            if the end of the gap is not on the board.
+	 **************************************************************************/
+	private void touch(int cell) {
+		int[] touched = new int[4];
+		int count = 0;
+		int id;
+		if (cell == UNPLACED || marks[cell] == visits)
+			return;
+		marks[cell] = visits;
+		for (int near : adjacent[cell]) {
+			if (cells[near] != NumbrixEngine.EMPTY)
+				continue;
+			id = region[near];
+			if (isListed(id, touched, count))
+				continue;
+			touched[count++] = id;
+			contacts[id]++;
+			contact[id] = cell;
+		}
+	}
+
+	/**************************************************************************
+	 * Finds the regions a gap could run through and counts the numbers
+	 * of each color it has left toward filling them. When there is only
+	 * one such region, the numbers are also counted as a demand on it.
+	 *
+	 * @param gap
+	 *            The index of the gap.
+	 * @return {@code false} if no region has room for the gap, {@code
+	 *         true} otherwise.
+	 **************************************************************************/
+	private boolean hasRoom(int gap) {
+		int bottom = positionOf[lower[gap]];
+		int top = positionOf[upper[gap]];
+		int room = upper[gap] - lower[gap] - 1;
+		int[] need = new int[2];
+		int[] touched = new int[4];
+		int count = 0;
+		int id, head;
+
+		// The colors alternate away from either end of the gap.
+		head = bottom != UNPLACED ? bottom : top;
+		need[color[head]] = room / 2;
+		need[1 - color[head]] = room - room / 2;
+		for (int near : adjacent[head]) {
+			if (cells[near] != NumbrixEngine.EMPTY)
+				continue;
+			id = region[near];
+			if (isListed(id, touched, count)
+					|| regionSize[0][id] < need[0]
+					|| regionSize[1][id] < need[1]
+					|| (bottom != UNPLACED && top != UNPLACED
+							&& !isTouching(top, id)))
+				continue;
+			touched[count++] = id;
+		}
+		if (count == 0)
+			return false;
+		for (int k = 0; k < count; k++)
+			for (int c = 0; c < 2; c++) {
+				capacity[c][touched[k]] += need[c];
+				if (count == 1)
+					demand[c][touched[k]] += need[c];
+			}
+		return true;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a cell touches a region.
+	 *
+	 * @param cell
+	 *            The packed cell.
+	 * @param id
+	 *            The index of the region.
+	 * @return {@code true} if an empty cell next to the cell is in the
+	 *         region, {@code false} otherwise.
+	 **************************************************************************/
+	private boolean isTouching(int cell, int id) {
+		for (int near : adjacent[cell])
+			if (cells[near] == NumbrixEngine.EMPTY && region[near] == id)
+				return true;
+		return false;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a region is in a list.
+	 *
+	 * @param id
+	 *            The region.
+	 * @param touched
+	 *            The list of regions.
+	 * @param count
+	 *            The number of regions in the list.
+	 * @return {@code true} if the region is listed, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	private boolean isListed(int id, int[] touched, int count) {
+		for (int k = 0; k < count; k++)
+			if (touched[k] == id)
+				return true;
+		return false;
+	}
+
+	/**************************************************************************
+	 * Marks a region of empty cells and counts its cells of each color.
+	 *
+	 * @param start
+	 *            A packed cell of the region.
+	 * @param id
+	 *            The index of the region.
+	 **************************************************************************/
+	private void flood(int start, int id) {
+		int size = 0;
+		int cell;
+		regionSize[0][id] = 0;
+		regionSize[1][id] = 0;
+		marks[start] = visits;
+		region[start] = id;
+		stack[size++] = start;
+		while (size > 0) {
+			cell = stack[--size];
+			regionSize[color[cell]][id]++;
+			for (int near : adjacent[cell])
+				if (cells[near] == NumbrixEngine.EMPTY
+						&& marks[near] != visits) {
+					marks[near] = visits;
+					region[near] = id;
+					stack[size++] = near;
+				}
+		}
+	}
+
+	/**************************************************************************
+	 * Splits the region of a cell that has just been filled if the cell
+	 * was the only way between its empty neighbors. The parts next to
+	 * the cell are flooded a cell at a time each, joining any that meet,
+	 * until no more than one is still growing. That part is the largest
+	 * and keeps the region, so it is never flooded to the end, and the
+	 * others are moved into new regions on the trail so that {@code
+	 * join()} can undo the split.
+	 *
+	 * @param cell
+	 *            The packed cell that has just been filled.
+	 **************************************************************************/
+	private void split(int cell) {
+		int id = region[cell];
+		int base = visits + 1;
+		int count = 0;
+		int keep = UNPLACED;
+		int active, next, other;
+		int[] starts, owner, sizes, tops;
+		if (isJoined(cell))
+			return;
+		starts = new int[4];
+		owner = new int[4];
+		sizes = new int[4];
+		tops = new int[4];
+		for (int near : adjacent[cell])
+			if (cells[near] == NumbrixEngine.EMPTY) {
+				marks[near] = base + count;
+				starts[count] = near;
+				owner[count] = count;
+				fronts[count][tops[count]++] = near;
+				count++;
+			}
+		visits += starts.length;
+		active = count;
+		while (active > 1)
+			for (int k = 0; k < count; k++) {
+				if (owner[k] != k || tops[k] == 0)
+					continue;
+				next = fronts[k][--tops[k]];
+				sizes[k]++;
+				for (int near : adjacent[next]) {
+					if (cells[near] != NumbrixEngine.EMPTY)
+						continue;
+					if (marks[near] < base) {
+						marks[near] = base + k;
+						fronts[k][tops[k]++] = near;
+						continue;
+					}
+					other = marks[near] - base;
+					while (owner[other] != other)
+						other = owner[other];
+					if (other == k)
+						continue;
+					System.arraycopy(fronts[other], 0, fronts[k], tops[k],
+							tops[other]);
+					tops[k] += tops[other];
+					tops[other] = 0;
+					sizes[k] += sizes[other];
+					owner[other] = k;
+					active--;
+				}
+				if (tops[k] == 0)
+					active--;
+			}
+		for (int k = 0; k < count; k++)
+			if (owner[k] == k && (tops[k] > 0 || keep == UNPLACED
+					|| (tops[keep] == 0 && sizes[k] > sizes[keep])))
+				keep = k;
+		for (int k = 0; k < count; k++)
+			if (owner[k] == k && k != keep)
+				relabel(starts[k], id, regionCount++);
+	}
+
+	/**************************************************************************
+	 * Undoes the splits made by the last move, moving the cells on the
+	 * trail back into the regions they came from.
+	 **************************************************************************/
+	private void join() {
+		int cell;
+		depth--;
+		while (trailSize > trailMarks[depth]) {
+			cell = trailCells[--trailSize];
+			regionSize[color[cell]][region[cell]]--;
+			region[cell] = trailRegions[trailSize];
+			regionSize[color[cell]][region[cell]]++;
+		}
+		regionCount = regionMarks[depth];
+	}
+
+	/**************************************************************************
+	 * Tests to see if the empty neighbors of a cell are joined to each
+	 * other around its corners, in which case filling the cell cannot
+	 * have split their region. The cells around the cell are walked in
+	 * a ring, and each run of empty cells holding a neighbor is counted.
+	 *
+	 * @param cell
+	 *            The packed cell.
+	 * @return {@code true} if the empty neighbors lie in a single run,
+	 *         {@code false} if they might have been split.
+	 **************************************************************************/
+	private boolean isJoined(int cell) {
+		int row = cell / columns;
+		int col = cell % columns;
+		int ring = 0;
+		int runs = 0;
+		for (int k = 0; k < RING.length; k++)
+			if (isEmpty(row + RING[k][0], col + RING[k][1]))
+				ring |= 1 << k;
+		for (int k = 0; k < RING.length; k++) {
+			if ((ring & 1 << k) == 0
+					|| (ring & 1 << (k + RING.length - 1) % RING.length) != 0)
+				continue;
+			for (int j = k; (ring & 1 << j % RING.length) != 0; j++)
+				if (j % 2 == 0) {
+					runs++;
+					break;
+				}
+		}
+		return runs <= 1;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a cell is on the board and empty.
+	 *
+	 * @param row
+	 *            The row of the cell.
+	 * @param col
+	 *            The column of the cell.
+	 * @return {@code true} if the cell is on the board and empty, {@code
+	 *         false} otherwise.
+	 **************************************************************************/
+	private boolean isEmpty(int row, int col) {
+		return row >= 0 && row < rows && col >= 0 && col < columns
+				&& cells[row * columns + col] == NumbrixEngine.EMPTY;
+	}
+
+	/**************************************************************************
+	 * Moves a part of a region into a new region, keeping each cell it
+	 * moves on the trail.
+	 *
+	 * @param start
+	 *            A packed cell of the part.
+	 * @param from
+	 *            The index of the region being split.
+	 * @param to
+	 *            The index of the new region.
+	 **************************************************************************/
+	private void relabel(int start, int from, int to) {
+		int size = 0;
+		int cell;
+		regionSize[0][to] = 0;
+		regionSize[1][to] = 0;
+		region[start] = to;
+		stack[size++] = start;
+		while (size > 0) {
+			cell = stack[--size];
+			regionSize[color[cell]][from]--;
+			regionSize[color[cell]][to]++;
+			if (trailSize == trailCells.length) {
+				trailCells = Arrays.copyOf(trailCells, 2 * trailSize);
+				trailRegions = Arrays.copyOf(trailRegions, 2 * trailSize);
+			}
+			trailCells[trailSize] = cell;
+			trailRegions[trailSize++] = from;
+			for (int near : adjacent[cell])
+				if (cells[near] == NumbrixEngine.EMPTY && region[near] == from) {
+					region[near] = to;
+					stack[size++] = near;
+				}
+		}
+	}
+
+
+	/**************************************************************************
+	 * Tests to see if a number is the end of a chain going to the first
+	 * or last number, which are not given.
+	 *
+	 * @param cell
+	 *            The packed cell of the number.
+	 * @return {@code true} if the number is the end of such a chain,
+	 *         {@code false} otherwise.
+	 **************************************************************************/
+	private boolean isFreeEnd(int cell) {
+		return (lower[0] == 0 && positionOf[upper[0]] == cell)
+				|| (upper[gaps - 1] == board_size + 1
+						&& positionOf[lower[gaps - 1]] == cell);
+	}
+
+	/**************************************************************************
+	 * Adds a move to the list of moves, keeping the cells with the
+	 * fewest links first.
+	 *
+	 * @param moves
+	 *            The list of moves.
+	 * @param count
+	 *            The number of moves in the list.
+	 * @param cell
+	 *            The packed cell of the move.
+	 * @return the new number of moves in the list.
+	 **************************************************************************/
+	private int insertMove(int[] moves, int count, int cell) {
+		int k = count;
+		while (k > 0 && links[moves[k - 1]] > links[cell]) {
+			moves[k] = moves[k - 1];
+			k--;
+		}
+		moves[k] = cell;
+		return count + 1;
+	}
+
+	/**************************************************************************
+	 * Places a number on an empty cell and updates the links of the
+	 * cells around it.
+	 *
+	 * @param number
+	 *            The number to be placed.
+	 * @param cell
+	 *            The packed cell of the number.
+	 **************************************************************************/
+	private void place(int number, int cell) {
+		nodes++;
+		if (links[cell] <= 1)
+			deadEnds--;
+		if (links[cell] == 0)
+			isolated--;
+		cells[cell] = number;
+		positionOf[number] = cell;
+		regionSize[color[cell]][region[cell]]--;
+		trailMarks[depth] = trailSize;
+		regionMarks[depth++] = regionCount;
+		split(cell);
+		if (!isOpen(cell))
+			close(cell);
+		if (number > 1 && positionOf[number - 1] != UNPLACED
+				&& !isOpen(positionOf[number - 1]))
+			close(positionOf[number - 1]);
+		if (positionOf[number + 1] != UNPLACED
+				&& !isOpen(positionOf[number + 1]))
+			close(positionOf[number + 1]);
+	}
+
+	/**************************************************************************
+	 * Removes a number placed by {@code place()}, undoing its changes
+	 * in reverse order.
+	 *
+	 * @param number
+	 *            The number to be removed.
+	 * @param cell
+	 *            The packed cell of the number.
+	 **************************************************************************/
+	private void remove(int number, int cell) {
+		join();
+		regionSize[color[cell]][region[cell]]++;
+		if (positionOf[number + 1] != UNPLACED
+				&& !isOpen(positionOf[number + 1]))
+			open(positionOf[number + 1]);
+		if (number > 1 && positionOf[number - 1] != UNPLACED
+				&& !isOpen(positionOf[number - 1]))
+			open(positionOf[number - 1]);
+		if (!isOpen(cell))
+			open(cell);
+		positionOf[number] = UNPLACED;
+		cells[cell] = NumbrixEngine.EMPTY;
+		if (links[cell] == 0)
+			isolated++;
+		if (links[cell] <= 1)
+			deadEnds++;
+	}
+
+	/**************************************************************************
+	 * Takes a cell that has just been closed away from the links of
+	 * the empty cells around it.
+	 *
+	 * @param cell
+	 *            The packed cell.
+	 **************************************************************************/
+	private void close(int cell) {
+		for (int near : adjacent[cell])
+			if (cells[near] == NumbrixEngine.EMPTY) {
+				links[near]--;
+				if (links[near] == 1)
+					deadEnds++;
+				else if (links[near] == 0)
+					isolated++;
+			}
+	}
+
+	/**************************************************************************
+	 * Gives a cell that has just been opened back to the links of the
+	 * empty cells around it.
+	 *
+	 * @param cell
+	 *            The packed cell.
+	 **************************************************************************/
+	private void open(int cell) {
+		for (int near : adjacent[cell])
+			if (cells[near] == NumbrixEngine.EMPTY) {
+				if (links[near] == 1)
+					deadEnds--;
+				else if (links[near] == 0)
+					isolated--;
+				links[near]++;
+			}
+	}
+
+	/**************************************************************************
+	 * Tests to see if an empty cell could be joined to a cell.
+	 *
+	 * @param cell
+	 *            The packed cell.
+	 * @return {@code true} if the cell is empty or open, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	private boolean isLink(int cell) {
+		return cells[cell] == NumbrixEngine.EMPTY || isOpen(cell);
+	}
+
+	/**************************************************************************
+	 * Tests to see if a number still needs a neighbor. A number is open
+	 * while the number above or below it has not been placed.
+	 *
+	 * @param cell
+	 *            The packed cell of the number.
+	 * @return {@code true} if the number is open, {@code false}
+	 *         otherwise.
+	 **************************************************************************/
+	private boolean isOpen(int cell) {
+		int number = cells[cell];
+		return (number > 1 && positionOf[number - 1] == UNPLACED)
+				|| (number < board_size && positionOf[number + 1] == UNPLACED);
+	}
+
+	/**************************************************************************
+	 * Gets the number of ends of the chain that have not been placed.
+	 * Every empty cell with one link must hold one of them.
+	 *
+	 * @return the number of unplaced ends.
+	 **************************************************************************/
+	private int getFreeEnds() {
+		int ends = positionOf[1] == UNPLACED ? 1 : 0;
+		if (board_size > 1 && positionOf[board_size] == UNPLACED)
+			ends++;
+		return ends;
+	}
+
+	/**************************************************************************
+	 * Gets the number of steps between two cells.
+	 *
+	 * @param cell
+	 *            The first packed cell.
+	 * @param other
+	 *            The second packed cell.
+	 * @return the Manhattan distance between the cells.
+	 **************************************************************************/
+	private int getDistance(int cell, int other) {
+		return Math.abs(cell / columns - other / columns)
+				+ Math.abs(cell % columns - other % columns);
+	}
+
+	/**************************************************************************
+	 * Solves the game in each file given on the command line and prints
+	 * the completion and the throughput of the search.
+	 *
+	 * @param args
+	 *            The names of the files to be solved.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		NumbrixEngine game;
+		NumbrixSolver solver;
+		for (String filename : args) {
+			game = new NumbrixEngine();
+			try {
+				game.loadGame(filename);
+				solver = new NumbrixSolver(game.getBoard());
+			} catch (FileNotFoundException e) {
+				System.out.println(filename + ": not found");
+				continue;
+			} catch (ParseException e) {
+				System.out.println(filename + ": " + e.getMessage());
+				continue;
+			} catch (InvalidGameStateException e) {
+				System.out.println(filename + ": " + e.getMessage());
+				continue;
+			}
+			if (solver.solve())
+				for (int[] row : solver.getSolution()) {
+					for (int number : row)
+						System.out.print(number + " ");
+					System.out.println();
+				}
+			else
+				System.out.println("No solution");
+			System.out.printf("%s: %d nodes in %.3f ms, %.0f nodes/s%n",
+					filename, solver.getNodes(),
+					solver.getElapsedNanos() / 1e6,
+					solver.getNodesPerSecond());
+		}
+	}
+}
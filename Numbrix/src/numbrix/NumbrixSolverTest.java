@@ -0,0 +1,280 @@
+package numbrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**************************************************************************
+ * Tests {@code NumbrixSolver} and {@code NumbrixCounter} against the
+ * games in the Games folder and against every path through a small
+ * board, and checks the games made by {@code NumbrixGenerator}.
+ * 
+ * @author Sam Eary
+ * @version 1.0
+ **************************************************************************/
+public class NumbrixSolverTest {
+
+	/** The number of failed tests. */
+	private static int numFailures = 0;
+
+	/** The medium game from the Games folder. */
+	private static final int[][] MEDIUM = { { 0, 0, 23, 0, 21 },
+			{ 10, 0, 8, 0, 0 }, { 0, 2, 0, 6, 0 }, { 12, 0, 4, 0, 18 },
+			{ 0, 14, 0, 16, 0 } };
+
+	/**
+	 * A hard game with eleven given numbers and one completion, made by
+	 * {@code NumbrixGenerator} for a 10 by 10 board with seed 9.
+	 */
+	private static final int[][] HARD = {
+			{ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 },
+			{ 0, 0, 0, 0, 0, 0, 86, 0, 0, 0 },
+			{ 0, 0, 0, 0, 0, 0, 0, 82, 0, 0 },
+			{ 0, 93, 98, 0, 0, 1, 0, 0, 0, 0 },
+			{ 0, 0, 0, 100, 0, 0, 0, 0, 0, 0 },
+			{ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 },
+			{ 0, 0, 0, 0, 65, 0, 51, 0, 0, 0 },
+			{ 0, 0, 28, 0, 60, 0, 0, 0, 0, 0 },
+			{ 31, 0, 0, 0, 0, 0, 0, 0, 0, 0 },
+			{ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 } };
+
+	/** The number of times the hard game is solved before it is timed. */
+	private static final int WARM_UPS = 10;
+
+	/**************************************************************************
+	 * Prints and counts the result of a test.
+	 * 
+	 * @param name
+	 *            The name of the test.
+	 * @param passed
+	 *            Whether the test passed.
+	 **************************************************************************/
+	private static void report(String name, boolean passed) {
+		System.out.println(name + "\t" + (passed ? "PASSED" : "FAILED"));
+		if (!passed)
+			numFailures++;
+	}
+
+	/**************************************************************************
+	 * Tests to see if a board is a completion of a game.
+	 * 
+	 * @param game
+	 *            The game board.
+	 * @param board
+	 *            The completed board.
+	 * @return {@code true} if every number is on the board once, next to
+	 *         the number after it, and on its given cell.
+	 **************************************************************************/
+	private static boolean isCompletion(int[][] game, int[][] board) {
+		int rows = game.length;
+		int cols = game[0].length;
+		int[] rowOf = new int[rows * cols + 1];
+		int[] colOf = new int[rows * cols + 1];
+		boolean[] seen = new boolean[rows * cols + 1];
+		if (board == null)
+			return false;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++) {
+				int number = board[i][j];
+				if (number < 1 || number > rows * cols || seen[number]
+						|| (game[i][j] != 0 && game[i][j] != number))
+					return false;
+				seen[number] = true;
+				rowOf[number] = i;
+				colOf[number] = j;
+			}
+		for (int k = 1; k < rows * cols; k++)
+			if (Math.abs(rowOf[k] - rowOf[k + 1])
+					+ Math.abs(colOf[k] - colOf[k + 1]) != 1)
+				return false;
+		return true;
+	}
+
+	/**************************************************************************
+	 * Makes sure the games in the Games folder are solved.
+	 **************************************************************************/
+	private static void testGames() {
+		int[][] hard = new int[20][20];
+		int[][] blank = new int[30][4];
+		long best = Long.MAX_VALUE;
+		boolean solved = true;
+		hard[0][0] = 400;
+		hard[7][9] = 1;
+		try {
+			NumbrixSolver solver = new NumbrixSolver(MEDIUM);
+			report("Medium game", solver.solve()
+					&& isCompletion(MEDIUM, solver.getSolution()));
+			report("Medium game count", new NumbrixCounter(MEDIUM)
+					.checkUniqueness() == NumbrixCounter.MULTIPLE);
+			solver = new NumbrixSolver(blank);
+			report("Blank game", solver.solve()
+					&& isCompletion(blank, solver.getSolution()));
+
+			// The ends are the same color, so there is no completion.
+			solver = new NumbrixSolver(hard);
+			report("Parity game", !solver.solve()
+					&& solver.getSolution() == null);
+			report("Parity game count", new NumbrixCounter(hard)
+					.checkUniqueness() == NumbrixCounter.NONE);
+
+			// The best of several runs, so the timing is not of the JIT.
+			for (int k = 0; k < WARM_UPS; k++) {
+				solver = new NumbrixSolver(HARD);
+				solved &= solver.solve()
+						&& isCompletion(HARD, solver.getSolution());
+				best = Math.min(best, solver.getElapsedNanos());
+			}
+			System.out.printf("Hard game: %d nodes in %.3f ms%n", solver
+					.getNodes(), best / 1e6);
+			report("Hard game", solved && best < 100000000L);
+			report("Hard game count", new NumbrixCounter(HARD)
+					.checkUniqueness() == NumbrixCounter.UNIQUE);
+		} catch (InvalidGameStateException e) {
+			report("Games: " + e.getMessage(), false);
+		}
+	}
+
+	/**************************************************************************
+	 * Makes sure invalid boards are rejected.
+	 **************************************************************************/
+	private static void testInvalid() {
+		int[][] duplicate = { { 1, 0 }, { 0, 1 } };
+		int[][] range = { { 5, 0 }, { 0, 0 } };
+		int rejected = 0;
+		try {
+			new NumbrixSolver(duplicate);
+		} catch (InvalidGameStateException e) {
+			rejected++;
+		}
+		try {
+			new NumbrixSolver(range);
+		} catch (InvalidGameStateException e) {
+			rejected++;
+		}
+		report("Invalid boards", rejected == 2);
+	}
+
+	/**************************************************************************
+	 * Finds every path through a board.
+	 * 
+	 * @param board
+	 *            The board, numbered along the path so far.
+	 * @param row
+	 *            The row of the last number.
+	 * @param col
+	 *            The column of the last number.
+	 * @param number
+	 *            The last number.
+	 * @param paths
+	 *            The list to add the completed boards to.
+	 **************************************************************************/
+	private static void pathLoader(int[][] board, int row, int col,
+			int number, ArrayList<int[][]> paths) {
+		int rows = board.length;
+		int cols = board[0].length;
+		int[][] steps = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+		board[row][col] = number;
+		if (number == rows * cols) {
+			int[][] path = new int[rows][];
+			for (int i = 0; i < rows; i++)
+				path[i] = board[i].clone();
+			paths.add(path);
+		}
+		for (int[] step : steps) {
+			int i = row + step[0];
+			int j = col + step[1];
+			if (i >= 0 && i < rows && j >= 0 && j < cols && board[i][j] == 0)
+				pathLoader(board, i, j, number + 1, paths);
+		}
+		board[row][col] = 0;
+	}
+
+	/**************************************************************************
+	 * Makes sure every pair of numbers on every pair of cells of a three
+	 * by three board is solved exactly when some path goes through them,
+	 * and is unique exactly when one path does.
+	 **************************************************************************/
+	private static void testSmallBoards() {
+		int size = 3;
+		int cells = size * size;
+		int wrong = 0;
+		int unique = 0;
+		int matches;
+		int[][] game = new int[size][size];
+		ArrayList<int[][]> paths = new ArrayList<int[][]>();
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				pathLoader(game, i, j, 1, paths);
+		for (int a = 0; a < cells; a++)
+			for (int b = 0; b < cells; b++)
+				for (int low = 1; low <= cells && a != b; low++)
+					for (int high = low + 1; high <= cells; high++) {
+						game[a / size][a % size] = low;
+						game[b / size][b % size] = high;
+						matches = 0;
+						for (int[][] path : paths)
+							if (path[a / size][a % size] == low
+									&& path[b / size][b % size] == high)
+								matches++;
+						try {
+							NumbrixSolver solver = new NumbrixSolver(game);
+							NumbrixCounter counter = new NumbrixCounter(game);
+							if (solver.solve() != matches > 0
+									|| (matches > 0 && !isCompletion(game,
+											solver.getSolution()))
+									|| counter.checkUniqueness() != Math.min(
+											matches, NumbrixCounter.MULTIPLE))
+								wrong++;
+							if (matches == 1)
+								unique++;
+						} catch (InvalidGameStateException e) {
+							wrong++;
+						}
+						game[a / size][a % size] = 0;
+						game[b / size][b % size] = 0;
+					}
+		report("Small boards (" + paths.size() + " paths, " + unique
+				+ " unique)", wrong == 0);
+	}
+
+	/**************************************************************************
+	 * Makes sure generated games have exactly one completion, load in
+	 * the engine, and are the same for the same seed.
+	 **************************************************************************/
+	private static void testGenerator() {
+		NumbrixGenerator generator = new NumbrixGenerator(6, 7, 42);
+		NumbrixGenerator.Puzzle[] puzzles = generator.run(20);
+		NumbrixGenerator.Puzzle again = generator.generate(7);
+		int wrong = 0;
+		generator.shutdown();
+		for (NumbrixGenerator.Puzzle puzzle : puzzles) {
+			try {
+				new NumbrixEngine().loadGame(puzzle.getBoard());
+				NumbrixCounter counter = new NumbrixCounter(puzzle
+						.getBoard());
+				if (counter.checkUniqueness() != NumbrixCounter.UNIQUE
+						|| !isCompletion(puzzle.getBoard(), puzzle
+								.getSolution()))
+					wrong++;
+			} catch (InvalidGameStateException e) {
+				wrong++;
+			}
+		}
+		report("Generated games", wrong == 0);
+		report("Generated game repeated", Arrays.deepEquals(
+				puzzles[7].getBoard(), again.getBoard()));
+	}
+
+	/**************************************************************************
+	 * Runs all of the tests.
+	 * 
+	 * @param args
+	 *            The command line arguments, which are not used.
+	 **************************************************************************/
+	public static void main(String[] args) {
+		testGames();
+		testInvalid();
+		testSmallBoards();
+		testGenerator();
+		System.out.println("Number of failures:  " + numFailures);
+	}
+}